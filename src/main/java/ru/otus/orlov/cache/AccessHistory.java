@@ -0,0 +1,113 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * История обращений к лентам пользователей.
+ * Число отслеживаемых пользователей ограничено, редкие вытесняются. Самые частые периодически и при остановке
+ * сохраняются в файл горячих ключей, по которому следующий запуск прогревает кэш.
+ */
+@Slf4j
+@Component
+public class AccessHistory {
+    /** Счетчики обращений по пользователю */
+    private final Cache<Long, LongAdder> counters;
+
+    /** Файл горячих ключей */
+    private final Path hotKeysFile;
+
+    /** Сколько самых частых пользователей сохранять */
+    private final int topN;
+
+    public AccessHistory(@Value("${feed.warmup.history-size:100000}") final long historySize,
+                         @Value("${feed.warmup.hot-keys-file:hot-keys.txt}") final Path hotKeysFile,
+                         @Value("${feed.warmup.top-n:1000}") final int topN) {
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(historySize)
+                .build();
+        this.hotKeysFile = hotKeysFile;
+        this.topN = topN;
+    }
+
+    /** Учитывает обращение к ленте пользователя */
+    public void record(final Long userId) {
+        counters.get(userId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Самые частые пользователи.
+     *
+     * @param limit сколько вернуть
+     * @return идентификаторы, самые частые первыми
+     */
+    public List<Long> top(final int limit) {
+        final PriorityQueue<Map.Entry<Long, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        counters.asMap().forEach((userId, counter) -> {
+            heap.add(Map.entry(userId, counter.sum()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        final List<Map.Entry<Long, Long>> entries = new ArrayList<>(heap);
+        entries.sort(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries.stream().map(Map.Entry::getKey).toList();
+    }
+
+    /**
+     * Читает сохраненные горячие ключи.
+     *
+     * @return идентификаторы пользователей или пустой список, если файла нет
+     */
+    public List<Long> loadHotKeys() {
+        if (!Files.isReadable(hotKeysFile)) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(hotKeysFile, StandardCharsets.UTF_8).stream()
+                    .map(String::strip)
+                    .filter(line -> !line.isEmpty())
+                    .map(Long::valueOf)
+                    .toList();
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Не удалось прочитать горячие ключи из {}: {}", hotKeysFile, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /** Сохраняет самых частых пользователей в файл горячих ключей */
+    @PreDestroy
+    @Scheduled(initialDelayString = "${feed.warmup.persist-ms:300000}",
+            fixedDelayString = "${feed.warmup.persist-ms:300000}")
+    public void persist() {
+        final List<Long> hotKeys = top(topN);
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+        try {
+            // Пишем во временный файл и переносим его, чтобы запуск не прочитал файл наполовину
+            final Path tmp = hotKeysFile.resolveSibling(hotKeysFile.getFileName() + ".tmp");
+            Files.write(tmp, hotKeys.stream().map(String::valueOf).toList(), StandardCharsets.UTF_8);
+            Files.move(tmp, hotKeysFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Сохранено {} горячих ключей в {}", hotKeys.size(), hotKeysFile);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить горячие ключи в {}: {}", hotKeysFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Поколения кэша - счетчики, увеличение которых логически сбрасывает все зависящие от них записи.
+ * Поколение кэша входит в ключ L2, поэтому сброс кэша целиком - одно увеличение вместо удаления ключей,
+ * прежние ключи L2 удаляются по сроку жизни. Поколение автора входит в поколение каждого значения,
+ * собранного из его постов (сумма поколений всех авторов значения), поэтому изменение или удаление поста
+ * сбрасывает ленты всех подписчиков одним увеличением, без перебора подписчиков.
+ * Записи с устаревшим поколением считаются промахом при чтении и вытесняются из L1 по размеру.
+ * Счетчики хранятся в L2, экземпляры держат их локальную копию и получают новые значения рассылкой;
+ * пропущенная рассылка догоняется после истечения локальной копии.
+ * Каждое увеличение, известное экземпляру, получает номер: по номерам загрузка проверяет, не менялись ли
+ * за ее время поколения, от которых зависит загруженное значение.
+ */
+@Slf4j
+@Component
+public class CacheGenerations {
+    /** Префикс поколения кэша */
+    private static final String CACHE_PREFIX = "cache:";
+
+    /** Префикс поколения автора */
+    private static final String AUTHOR_PREFIX = "author:";
+
+    /** Общее хранилище */
+    private final SharedCacheStore sharedStore;
+
+    /** Рассылка новых поколений */
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    /** Локальные копии поколений кэшей по имени кэша */
+    private final Cache<String, Long> caches;
+
+    /** Локальные копии поколений авторов по идентификатору автора */
+    private final Cache<Long, Long> authors;
+
+    /** Номер последнего увеличения поколений, известного этому экземпляру */
+    private final AtomicLong changes = new AtomicLong();
+
+    /** Последние известные поколения и номера их увеличений по ключу поколения */
+    private final Cache<String, Observed> observed;
+
+    /** Наибольший номер увеличения среди вытесненных из {@link #observed} - номер для забытых ключей */
+    private final AtomicLong evictedChange = new AtomicLong();
+
+    public CacheGenerations(final SharedCacheStore sharedStore,
+                            final CacheInvalidationBroadcaster broadcaster,
+                            @Value("${feed.cache.generations.max-size:100000}") final long maxSize,
+                            @Value("${feed.cache.generations.refresh-ms:5000}") final long refreshMs) {
+        this.sharedStore = sharedStore;
+        this.broadcaster = broadcaster;
+        this.caches = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(refreshMs))
+                .build();
+        this.authors = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(refreshMs))
+                .build();
+        this.observed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .evictionListener((final String key, final Observed value, final RemovalCause cause) -> {
+                    if (value != null) {
+                        evictedChange.accumulateAndGet(value.change(), Math::max);
+                    }
+                })
+                .build();
+    }
+
+    /** Поколение кэша */
+    public long ofCache(final String cacheName) {
+        return caches.get(cacheName, name -> load(CACHE_PREFIX + name));
+    }
+
+    /**
+     * Суммарное поколение авторов. Поколения только растут, поэтому сумма меняется при любом увеличении.
+     *
+     * @param authorIds идентификаторы авторов
+     * @return сумма поколений
+     */
+    public long ofAuthors(final Collection<Long> authorIds) {
+        if (authorIds.isEmpty()) {
+            return 0;
+        }
+        long sum = 0;
+        List<Long> missing = null;
+        for (final Long authorId : authorIds) {
+            final Long generation = authors.getIfPresent(authorId);
+            if (generation != null) {
+                sum += generation;
+            } else {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(authorId);
+            }
+        }
+        if (missing != null) {
+            for (final long generation : authors.getAll(missing, this::loadAuthors).values()) {
+                sum += generation;
+            }
+        }
+        return sum;
+    }
+
+    /** Сбрасывает кэш целиком на всех экземплярах */
+    public void incrementCache(final String cacheName) {
+        increment(CACHE_PREFIX + cacheName, caches, cacheName);
+    }
+
+    /** Сбрасывает все значения, собранные из постов автора, на всех экземплярах */
+    public void incrementAuthor(final Long authorId) {
+        increment(AUTHOR_PREFIX + authorId, authors, authorId);
+    }
+
+    /**
+     * Применяет поколения, полученные рассылкой от другого экземпляра.
+     *
+     * @param generations поколения по ключу поколения
+     */
+    public void apply(final Map<String, Long> generations) {
+        generations.forEach((key, generation) -> {
+            if (key.startsWith(AUTHOR_PREFIX)) {
+                authors.asMap().merge(Long.valueOf(key.substring(AUTHOR_PREFIX.length())), generation, Math::max);
+            } else if (key.startsWith(CACHE_PREFIX)) {
+                caches.asMap().merge(key.substring(CACHE_PREFIX.length()), generation, Math::max);
+            } else {
+                return;
+            }
+            // Своя же рассылка вернется с уже известным поколением и увеличением не считается
+            observe(key, generation, true);
+        });
+    }
+
+    /**
+     * Номер последнего увеличения поколений, известного этому экземпляру, - отметка перед загрузкой значения
+     * для {@link #changedSince(String, Collection, long)}.
+     */
+    public long changes() {
+        return changes.get();
+    }
+
+    /**
+     * Увеличивались ли после отметки поколение кэша или поколения авторов значения. Если да, значение могло
+     * собраться до увеличения, а поколение получило бы уже после него, и кэшировать его нельзя.
+     * Увеличения поколений других авторов и кэшей значению не мешают.
+     *
+     * @param cacheName имя кэша
+     * @param authorIds авторы значения
+     * @param changes   отметка {@link #changes()}, снятая до загрузки значения
+     * @return true, если значение могло устареть за время загрузки
+     */
+    public boolean changedSince(final String cacheName, final Collection<Long> authorIds, final long changes) {
+        if (changeOf(CACHE_PREFIX + cacheName) > changes) {
+            return true;
+        }
+        for (final Long authorId : authorIds) {
+            if (changeOf(AUTHOR_PREFIX + authorId) > changes) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Увеличивает поколение в L2, обновляет локальную копию и рассылает новое значение.
+     *
+     * @param key      ключ поколения в L2
+     * @param local    локальные копии
+     * @param localKey ключ локальной копии
+     */
+    private <K> void increment(final String key, final Cache<K, Long> local, final K localKey) {
+        long generation;
+        try {
+            generation = sharedStore.incrementGeneration(key);
+        } catch (RuntimeException e) {
+            // Без L2 сброс остается локальным и доходит до остальных рассылкой
+            log.warn("Не удалось увеличить поколение {} в общем кэше: {}", key, e.getMessage());
+            try {
+                generation = local.get(localKey, k -> load(key)) + 1;
+            } catch (RuntimeException loadError) {
+                // Поколение неизвестно, поэтому и значения этого поколения не читаются, пока L2 недоступен
+                log.warn("Не удалось прочитать поколение {} из общего кэша: {}", key, loadError.getMessage());
+                return;
+            }
+        }
+        local.asMap().merge(localKey, generation, Math::max);
+        observe(key, generation, true);
+        broadcaster.broadcastGenerations(Map.of(key, generation));
+    }
+
+    /**
+     * Запоминает поколение ключа; рост известного поколения получает следующий номер увеличения.
+     *
+     * @param key        ключ поколения
+     * @param generation поколение
+     * @param increased  получено ли поколение увеличением или рассылкой, а не чтением из L2: тогда увеличением
+     *                   считается и первое знакомство с ключом
+     */
+    private void observe(final String key, final long generation, final boolean increased) {
+        observed.asMap().compute(key, (k, known) -> {
+            if (known != null && known.generation() >= generation) {
+                return known;
+            }
+            return known == null && !increased ? new Observed(generation, evictedChange.get())
+                    : new Observed(generation, changes.incrementAndGet());
+        });
+    }
+
+    /** Номер последнего увеличения поколения ключа */
+    private long changeOf(final String key) {
+        final Observed known = observed.getIfPresent(key);
+        return known == null ? evictedChange.get() : known.change();
+    }
+
+    private long load(final String key) {
+        return loadAll(List.of(key)).get(key);
+    }
+
+    private Map<Long, Long> loadAuthors(final Set<? extends Long> authorIds) {
+        final Map<String, Long> generations = loadAll(authorIds.stream().map(id -> AUTHOR_PREFIX + id).toList());
+        final Map<Long, Long> result = new HashMap<>();
+        authorIds.forEach(id -> result.put(id, generations.get(AUTHOR_PREFIX + id)));
+        return result;
+    }
+
+    /**
+     * Поколения из L2; отсутствующие - 0. Ошибка L2 пробрасывается: принятое за 0 поколение могло бы совпасть
+     * с поколением устаревшего значения, поэтому без поколений значения не читаются и не кэшируются.
+     */
+    private Map<String, Long> loadAll(final List<String> keys) {
+        final Map<String, Long> generations = new HashMap<>(sharedStore.getGenerations(keys));
+        keys.forEach(key -> {
+            generations.putIfAbsent(key, 0L);
+            // Догнать пропущенную рассылку: поколение в L2 выросло, пока локальной копии не было
+            observe(key, generations.get(key), false);
+        });
+        return generations;
+    }
+
+    /**
+     * Последнее известное поколение ключа.
+     *
+     * @param generation поколение
+     * @param change     номер увеличения, с которым оно стало известно
+     */
+    private record Observed(long generation, long change) {
+    }
+}
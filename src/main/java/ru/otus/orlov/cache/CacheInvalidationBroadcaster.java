@@ -0,0 +1,57 @@
+package ru.otus.orlov.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.CacheInvalidationDto;
+
+/**
+ * Рассылает сброс ключей кэша через fanout exchange {@value #EXCHANGE}.
+ * У каждого экземпляра приложения своя очередь, привязанная к exchange, поэтому сообщение получают все экземпляры.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBroadcaster {
+    /** Exchange сброса кэша */
+    public static final String EXCHANGE = "cache.invalidation";
+
+    /** Template Очереди Rabbit */
+    private final RabbitTemplate rabbitTemplate;
+
+    /**
+     * Рассылает сброс ключей кэша.
+     * Ошибка брокера не пробрасывается: L2 к этому моменту уже очищен, а L1 других экземпляров
+     * устареет не дольше, чем на время жизни записи L1.
+     *
+     * @param cacheName имя кэша
+     * @param keys      ключи; null - весь кэш
+     */
+    public void broadcast(final String cacheName, final Collection<Long> keys) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "",
+                    new CacheInvalidationDto(cacheName, keys == null ? null : List.copyOf(keys), null));
+        } catch (AmqpException e) {
+            log.warn("Не удалось разослать сброс кэша {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Рассылает новые поколения. Экземпляр, пропустивший сообщение, узнает поколение из L2
+     * после истечения своей локальной копии.
+     *
+     * @param generations поколения по ключу поколения
+     */
+    public void broadcastGenerations(final Map<String, Long> generations) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", new CacheInvalidationDto(null, null, Map.copyOf(generations)));
+        } catch (AmqpException e) {
+            log.warn("Не удалось разослать поколения кэша {}: {}", generations.keySet(), e.getMessage());
+        }
+    }
+}
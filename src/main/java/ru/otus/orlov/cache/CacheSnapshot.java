@@ -0,0 +1,234 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Снимок кэшей на диске: горячие значения переживают перезапуск экземпляра.
+ * Снимок пишется периодически и при остановке, по файлу на кэш с двоичным форматом значений
+ * ({@link CacheSpec#offHeapCodec()}); кэши без него не сохраняются. В файл попадают сначала самые горячие
+ * значения L1, затем значения хранилища вне кучи - они уже сериализованы и копируются как есть.
+ * Формат: заголовок (метка формата и версия), затем для каждого значения признак горячего значения, ключ,
+ * момент записи, поколение и байты значения с длиной.
+ * При запуске файл отображается в память и разбирается до прогрева ({@link CacheWarmUp}), так что прогрев
+ * и первые запросы находят окна уже в кэше: горячие - в L1, остальные - вне кучи. Значения старше жесткого срока
+ * или прежнего поколения отбрасываются, остальные сохраняют момент записи: значение старше мягкого срока
+ * перезагрузится в фоне при первом чтении, как и до перезапуска.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CacheSnapshot implements ApplicationRunner {
+    /** Метка формата в начале файла */
+    private static final int MAGIC = 0x43534e50;
+
+    /** Версия формата; меняется вместе с форматом записи, файл другой версии не читается */
+    private static final int VERSION = 1;
+
+    /** Заголовок: метка и версия */
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    /** Поля значения без байт: признак горячего значения, ключ, момент записи, поколение, длина */
+    private static final int ENTRY_FIXED_BYTES = 1 + 3 * Long.BYTES + Integer.BYTES;
+
+    /** Менеджер кэша */
+    private final TwoLevelCacheManager cacheManager;
+
+    /** Включены ли снимки */
+    private final boolean enabled;
+
+    /** Каталог файлов снимка */
+    private final Path dir;
+
+    /** Сколько значений одного кэша сохранять */
+    private final int maxEntries;
+
+    /** Длительность последнего восстановления */
+    private volatile long restoreMs;
+
+    /** Восстановленные при запуске значения по имени кэша */
+    private final Map<String, Integer> restored = new ConcurrentHashMap<>();
+
+    public CacheSnapshot(final TwoLevelCacheManager cacheManager,
+                         final MeterRegistry meterRegistry,
+                         @Value("${feed.cache.snapshot.enabled:true}") final boolean enabled,
+                         @Value("${feed.cache.snapshot.dir:cache-snapshot}") final Path dir,
+                         @Value("${feed.cache.snapshot.max-entries:20000}") final int maxEntries) {
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.maxEntries = maxEntries;
+        TimeGauge.builder("cache.snapshot.restore.duration", this, TimeUnit.MILLISECONDS,
+                        snapshot -> snapshot.restoreMs)
+                .description("Длительность восстановления кэша из снимка при запуске")
+                .register(meterRegistry);
+        for (final String cacheName : cacheManager.getCacheNames()) {
+            Gauge.builder("cache.snapshot.restored", restored, counts -> counts.getOrDefault(cacheName, 0))
+                    .description("Значения, восстановленные из снимка при запуске")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        final long start = System.nanoTime();
+        for (final String cacheName : cacheManager.getCacheNames()) {
+            final TwoLevelCache cache = cacheManager.getCache(cacheName);
+            if (cache.spec().offHeapCodec() != null && Files.isReadable(file(cacheName))) {
+                restored.put(cacheName, restore(cache));
+            }
+        }
+        restoreMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!restored.isEmpty()) {
+            log.info("Кэш восстановлен из снимка за {} мс: {}", restoreMs, restored);
+        }
+    }
+
+    /** Сохраняет значения кэшей в файлы снимка */
+    @PreDestroy
+    @Scheduled(initialDelayString = "${feed.cache.snapshot.persist-ms:60000}",
+            fixedDelayString = "${feed.cache.snapshot.persist-ms:60000}")
+    public void persist() {
+        if (!enabled) {
+            return;
+        }
+        for (final String cacheName : cacheManager.getCacheNames()) {
+            final TwoLevelCache cache = cacheManager.getCache(cacheName);
+            if (cache.spec().offHeapCodec() != null) {
+                persist(cache);
+            }
+        }
+    }
+
+    /**
+     * Восстанавливает значения кэша из его файла снимка.
+     *
+     * @param cache кэш
+     * @return сколько значений положено в кэш
+     */
+    int restore(final TwoLevelCache cache) {
+        final Path file = file(cache.getName());
+        int count = 0;
+        int dropped = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Снимок кэша {} в {} другого формата, пропущен", cache.getName(), file);
+                return 0;
+            }
+            while (buffer.remaining() >= ENTRY_FIXED_BYTES) {
+                final boolean hot = buffer.get() != 0;
+                final long key = buffer.getLong();
+                final long writtenAtMillis = buffer.getLong();
+                final long generation = buffer.getLong();
+                final int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    // Длине из испорченного файла верить нельзя: отрицательная или огромная уронила бы запуск
+                    log.warn("Снимок кэша {} в {} испорчен: длина значения {} при остатке {} байт, остаток пропущен",
+                            cache.getName(), file, length, buffer.remaining());
+                    break;
+                }
+                final byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                if (cache.restore(key, new OffHeapStore.Stored(bytes, writtenAtMillis, generation), hot)) {
+                    count++;
+                } else {
+                    dropped++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Обрезанный или испорченный файл: остаются значения, прочитанные до ошибки
+            final String reason = e instanceof BufferUnderflowException ? "файл обрезан" : e.getMessage();
+            log.warn("Снимок кэша {} в {} прочитан не полностью: {}", cache.getName(), file, reason);
+        }
+        log.debug("Из снимка кэша {}: восстановлено {}, отброшено устаревших {}", cache.getName(), count, dropped);
+        return count;
+    }
+
+    /**
+     * Сохраняет значения кэша в его файл снимка: самые горячие из L1, затем из хранилища вне кучи.
+     *
+     * @param cache кэш
+     */
+    void persist(final TwoLevelCache cache) {
+        final Path file = file(cache.getName());
+        final OffHeapCodec codec = cache.spec().offHeapCodec();
+        final Set<Object> written = new HashSet<>();
+        try {
+            Files.createDirectories(dir);
+            // Пишем во временный файл и переносим его, чтобы запуск не прочитал файл наполовину
+            final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (final Map.Entry<Object, StampedValue> entry : cache.hottestEntries(maxEntries).entrySet()) {
+                    final StampedValue stamped = entry.getValue();
+                    write(out, true, entry.getKey(), new OffHeapStore.Stored(codec.encode(stamped.value()),
+                            stamped.writtenAtMillis(), stamped.generation()));
+                    written.add(entry.getKey());
+                }
+                cache.forEachOffHeap((key, stored) -> {
+                    if (written.size() < maxEntries && written.add(key)) {
+                        write(out, false, key, stored);
+                    }
+                });
+            }
+            if (written.isEmpty()) {
+                Files.delete(tmp);
+                return;
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Сохранено {} значений кэша {} в {}", written.size(), cache.getName(), file);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Не удалось сохранить снимок кэша {} в {}: {}", cache.getName(), file, e.getMessage());
+        }
+    }
+
+    private static void write(final DataOutputStream out, final boolean hot, final Object key,
+                              final OffHeapStore.Stored stored) {
+        try {
+            out.writeBoolean(hot);
+            out.writeLong((Long) key);
+            out.writeLong(stored.writtenAtMillis());
+            out.writeLong(stored.generation());
+            out.writeInt(stored.bytes().length);
+            out.write(stored.bytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(final String cacheName) {
+        return dir.resolve(cacheName + ".snapshot");
+    }
+}
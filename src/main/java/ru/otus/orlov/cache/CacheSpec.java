@@ -0,0 +1,34 @@
+package ru.otus.orlov.cache;
+
+import java.time.Duration;
+
+/**
+ * Настройки одного кэша.
+ *
+ * @param softTtl        возраст, после которого значение отдается как есть, а в фоне запускается перезагрузка
+ * @param hardTtl        возраст, после которого значение удаляется и чтение ждет загрузку
+ * @param refreshThreads сколько фоновых перезагрузок кэша выполняется одновременно
+ * @param localMaxBytes  бюджет L1 в куче по оценке {@code weigher}
+ * @param weigher        оценка размера значения в куче
+ * @param authors        авторы значения, чьи поколения входят в поколение значения; null - только поколение кэша
+ * @param offHeapBytes   объем локального хранилища вне кучи между L1 и L2, 0 - без него
+ * @param offHeapCodec   сериализация значений для хранилища вне кучи, нужна при {@code offHeapBytes > 0}
+ * @param hotKeys        частота обращений к ключам: горячие ключи закрепляются в L1 и не вытесняются по размеру;
+ *                       null - без закрепления
+ */
+public record CacheSpec(Duration softTtl, Duration hardTtl, int refreshThreads,
+                        long localMaxBytes, ValueWeigher weigher, ValueAuthors authors,
+                        long offHeapBytes, OffHeapCodec offHeapCodec, HotKeySketch hotKeys) {
+
+    public CacheSpec {
+        if (offHeapBytes > 0 && offHeapCodec == null) {
+            throw new IllegalArgumentException("Для хранилища вне кучи нужна сериализация значений");
+        }
+    }
+
+    /** Кэш без авторов значений, хранилища вне кучи и закрепления горячих ключей */
+    public CacheSpec(final Duration softTtl, final Duration hardTtl, final int refreshThreads,
+                     final long localMaxBytes, final ValueWeigher weigher) {
+        this(softTtl, hardTtl, refreshThreads, localMaxBytes, weigher, null, 0, null, null);
+    }
+}
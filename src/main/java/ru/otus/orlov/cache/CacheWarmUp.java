@@ -0,0 +1,159 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.services.PostService;
+import ru.otus.orlov.services.UserService;
+
+/**
+ * Прогрев кэшей лент и профилей после запуска.
+ * Spring Boot переводит readiness в ACCEPTING_TRAFFIC только после выполнения всех {@link ApplicationRunner},
+ * поэтому трафик на экземпляр приходит уже на прогретый кэш. Прогрев ограничен по времени: по истечении таймаута
+ * экземпляр становится готовым с тем, что успело загрузиться.
+ * Пользователи берутся из файла горячих ключей, а если его нет - из недавно входивших по таблице tokens.
+ * Окна, восстановленные из снимка ({@link CacheSnapshot}), прогрев находит уже в кэше.
+ */
+@Slf4j
+@Component
+public class CacheWarmUp implements ApplicationRunner {
+    /** История обращений и горячие ключи */
+    private final AccessHistory accessHistory;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Сервис работы с постами */
+    private final PostService postService;
+
+    /** Сервис работы с пользователями */
+    private final UserService userService;
+
+    /** Менеджер кэша */
+    private final TwoLevelCacheManager cacheManager;
+
+    /** Включен ли прогрев */
+    private final boolean enabled;
+
+    /** Сколько пользователей прогревать */
+    private final int topN;
+
+    /** Потоки прогрева - ограничивают параллельную нагрузку на БД */
+    private final int threads;
+
+    /** Максимальная длительность прогрева */
+    private final long timeoutMs;
+
+    /** Длительность последнего прогрева */
+    private volatile long durationMs;
+
+    /** Заполненность L1 после прогрева по имени кэша */
+    private final Map<String, Double> fillRatios = new ConcurrentHashMap<>();
+
+    public CacheWarmUp(final AccessHistory accessHistory,
+                       final UserRepository userRepository,
+                       final PostService postService,
+                       final UserService userService,
+                       final TwoLevelCacheManager cacheManager,
+                       final MeterRegistry meterRegistry,
+                       @Value("${feed.warmup.enabled:true}") final boolean enabled,
+                       @Value("${feed.warmup.top-n:1000}") final int topN,
+                       @Value("${feed.warmup.threads:8}") final int threads,
+                       @Value("${feed.warmup.timeout-ms:60000}") final long timeoutMs) {
+        this.accessHistory = accessHistory;
+        this.userRepository = userRepository;
+        this.postService = postService;
+        this.userService = userService;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.threads = threads;
+        this.timeoutMs = timeoutMs;
+        TimeGauge.builder("cache.warmup.duration", this, TimeUnit.MILLISECONDS, warmUp -> warmUp.durationMs)
+                .description("Длительность прогрева кэша при запуске")
+                .register(meterRegistry);
+        for (final String cacheName : cacheManager.getCacheNames()) {
+            Gauge.builder("cache.warmup.fill.ratio", fillRatios, ratios -> ratios.getOrDefault(cacheName, 0.0))
+                    .description("Заполненность L1 после прогрева")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        final List<Long> userIds = userIds();
+        if (userIds.isEmpty()) {
+            log.info("Прогрев кэша пропущен: нет горячих ключей и недавно входивших пользователей");
+            return;
+        }
+        final long start = System.nanoTime();
+        final AtomicInteger failed = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory("cache-warmup-"));
+        try {
+            CompletableFuture.allOf(userIds.stream()
+                            .map(userId -> CompletableFuture.runAsync(() -> warm(userId, failed), executor))
+                            .toArray(CompletableFuture[]::new))
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Прогрев кэша не уложился в {} мс, экземпляр принимает трафик с частично прогретым кэшем",
+                    timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Прогрев кэша прерван: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        for (final String cacheName : cacheManager.getCacheNames()) {
+            fillRatios.put(cacheName, cacheManager.getCache(cacheName).occupancy());
+        }
+        log.info("Прогрев кэша: {} пользователей за {} мс, ошибок {}, заполненность L1 {}",
+                userIds.size(), durationMs, failed.get(), fillRatios);
+    }
+
+    /** Пользователи для прогрева: горячие ключи, если сохранены, иначе недавно входившие */
+    private List<Long> userIds() {
+        final List<Long> hotKeys = accessHistory.loadHotKeys();
+        if (!hotKeys.isEmpty()) {
+            return hotKeys.subList(0, Math.min(topN, hotKeys.size()));
+        }
+        return userRepository.findRecentlyActiveUserIds(topN);
+    }
+
+    /** Загружает в кэш окно ленты и профиль пользователя */
+    private void warm(final Long userId, final AtomicInteger failed) {
+        try {
+            // Страница из одного поста загружает в кэш все окно ленты
+            postService.getFeed(userId, 0, 1).get(timeoutMs, TimeUnit.MILLISECONDS);
+            userService.findById(userId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.debug("Не удалось прогреть кэш пользователя {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.otus.orlov.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/** Авторы постов окна ленты */
+@Component
+public class FeedWindowAuthors implements ValueAuthors {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<Long> authors(final Object value) {
+        final PageImplDto<Post> window = (PageImplDto<Post>) value;
+        final Set<Long> authors = new HashSet<>();
+        for (Post post : window.getContent()) {
+            authors.add(post.getUserId());
+        }
+        return authors;
+    }
+}
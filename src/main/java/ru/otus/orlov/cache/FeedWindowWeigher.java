@@ -0,0 +1,27 @@
+package ru.otus.orlov.cache;
+
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/** Размер окна ленты в куче: страница, список и посты с контентом, датой и идентификаторами */
+@Component
+public class FeedWindowWeigher implements ValueWeigher {
+    /** PageImplDto: ссылка на список, два int и long */
+    private static final int PAGE = HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES + Long.BYTES);
+
+    /** Post без контента: объект с четырьмя ссылками, два Long и LocalDateTime */
+    private static final int POST = HeapSize.object(4 * HeapSize.REFERENCE) + 2 * HeapSize.BOXED_LONG
+            + HeapSize.LOCAL_DATE_TIME;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int weigh(final Object value) {
+        final PageImplDto<Post> window = (PageImplDto<Post>) value;
+        long size = PAGE + HeapSize.arrayList(window.getContent().size());
+        for (Post post : window.getContent()) {
+            size += POST + HeapSize.string(post.getContent());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/** Срок жизни записи L1 отсчитывается от момента записи значения, а не от момента попадания в L1 */
+class HardTtlExpiry implements Expiry<Object, Object> {
+    /** Жесткий срок жизни */
+    private final long hardTtlMillis;
+
+    HardTtlExpiry(final Duration hardTtl) {
+        this.hardTtlMillis = hardTtl.toMillis();
+    }
+
+    @Override
+    public long expireAfterCreate(final Object key, final Object value, final long currentTime) {
+        return remainingNanos(value);
+    }
+
+    @Override
+    public long expireAfterUpdate(final Object key, final Object value, final long currentTime,
+                                  final long currentDuration) {
+        return remainingNanos(value);
+    }
+
+    @Override
+    public long expireAfterRead(final Object key, final Object value, final long currentTime,
+                                final long currentDuration) {
+        return currentDuration;
+    }
+
+    private long remainingNanos(final Object value) {
+        final long age = ((StampedValue) value).ageMillis(System.currentTimeMillis());
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, hardTtlMillis - age));
+    }
+}
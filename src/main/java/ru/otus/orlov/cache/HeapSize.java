@@ -0,0 +1,80 @@
+package ru.otus.orlov.cache;
+
+/**
+ * Размеры типовых объектов в куче 64-битной JVM со сжатыми указателями: заголовок объекта 12 байт,
+ * ссылка 4 байта, выравнивание по 8 байт. Точность - единицы процентов, ее достаточно для бюджета кэша.
+ */
+public final class HeapSize {
+    /** Заголовок объекта */
+    public static final int OBJECT_HEADER = 12;
+
+    /** Заголовок массива */
+    public static final int ARRAY_HEADER = 16;
+
+    /** Ссылка */
+    public static final int REFERENCE = 4;
+
+    /** {@link Long} вне кэша маленьких значений */
+    public static final int BOXED_LONG = 16;
+
+    /** {@link java.util.Date} */
+    public static final int DATE = 24;
+
+    /** {@link java.time.LocalDateTime} вместе с LocalDate и LocalTime */
+    public static final int LOCAL_DATE_TIME = 72;
+
+    /** Запись Caffeine со сроком жизни и весом, ключ {@link Long} и {@link StampedValue} */
+    public static final int CACHE_ENTRY = 104;
+
+    /** Узел {@link java.util.HashMap} */
+    private static final int HASH_MAP_NODE = 32;
+
+    /** HashSet вместе с внутренним HashMap без таблицы */
+    private static final int HASH_SET = 64;
+
+    /** ArrayList без массива элементов */
+    private static final int ARRAY_LIST = 24;
+
+    private HeapSize() {
+    }
+
+    /**
+     * Объект с заданным числом байт полей после заголовка.
+     *
+     * @param fieldBytes байты полей
+     * @return размер с заголовком и выравниванием
+     */
+    public static int object(final int fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /** Строка вместе с массивом символов; null - 0 */
+    public static int string(final String value) {
+        if (value == null) {
+            return 0;
+        }
+        // Латиница хранится по байту на символ, остальное - по два
+        final int bytesPerChar = value.chars().allMatch(ch -> ch < 256) ? 1 : 2;
+        // Поля String: ссылка на массив, hash, coder и hashIsZero
+        return object(REFERENCE + Integer.BYTES + 2) + align(ARRAY_HEADER + value.length() * bytesPerChar);
+    }
+
+    /** ArrayList на {@code size} элементов без самих элементов */
+    public static int arrayList(final int size) {
+        return ARRAY_LIST + align(ARRAY_HEADER + size * REFERENCE);
+    }
+
+    /** HashSet на {@code size} элементов без самих элементов */
+    public static int hashSet(final int size) {
+        int table = 16;
+        while (table * 3 / 4 < size) {
+            table <<= 1;
+        }
+        return HASH_SET + align(ARRAY_HEADER + table * REFERENCE) + size * HASH_MAP_NODE;
+    }
+
+    /** Выравнивание по 8 байт */
+    public static int align(final int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
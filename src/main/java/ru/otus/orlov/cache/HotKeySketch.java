@@ -0,0 +1,173 @@
+package ru.otus.orlov.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Частота обращений к ключам кэша: count-min sketch и список самых частых ключей (top-k).
+ * Sketch - {@code depth} строк по {@code width} счетчиков; обращение увеличивает по счетчику в каждой строке,
+ * оценка частоты - минимум из них. Оценка не меньше настоящей частоты и превышает ее не больше чем на долю
+ * {@code e / width} всех обращений, а память не зависит от числа ключей.
+ * Кандидаты в top-k - ключи с оценкой не ниже k-го кандидата; когда их становится вдвое больше {@code k},
+ * один поток отсекает лишних, остальные не ждут. Все операции без блокировок.
+ * Счетчики периодически делятся пополам ({@link #decay()}), так что частота отражает недавние обращения.
+ */
+public class HotKeySketch {
+    /** Множитель хеша (дробная часть золотого сечения) */
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+    /** Строки sketch */
+    private final int depth;
+
+    /** Маска индекса в строке; ширина строки - степень двойки */
+    private final int mask;
+
+    /** Счетчики всех строк подряд */
+    private final AtomicLongArray counters;
+
+    /** Сколько ключей держать в top-k */
+    private final int k;
+
+    /** С какой оценки частоты за период ключ считается горячим */
+    private final long minCount;
+
+    /** Кандидаты в top-k */
+    private final Set<Long> candidates = ConcurrentHashMap.newKeySet();
+
+    /** Отсекает ли сейчас кто-то лишних кандидатов */
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    /** Оценка k-го кандидата после последнего отсечения: ключи реже не становятся кандидатами */
+    private volatile long threshold;
+
+    /** Горячие ключи, пересчитываются при {@link #decay()} */
+    private volatile Set<Long> hot = Set.of();
+
+    /**
+     * Создает пустой sketch.
+     *
+     * @param width    счетчиков в строке, округляется вверх до степени двойки
+     * @param depth    строк
+     * @param k        сколько ключей держать в top-k
+     * @param minCount с какой оценки частоты за период ключ top-k считается горячим
+     */
+    public HotKeySketch(final int width, final int depth, final int k, final long minCount) {
+        final int rowWidth = Math.max(2, Integer.highestOneBit(width - 1) << 1);
+        this.depth = depth;
+        this.mask = rowWidth - 1;
+        this.counters = new AtomicLongArray(rowWidth * depth);
+        this.k = k;
+        this.minCount = minCount;
+    }
+
+    /**
+     * Учитывает обращение к ключу.
+     *
+     * @param key ключ
+     */
+    public void record(final long key) {
+        final long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        if (estimate >= threshold || candidates.size() < k) {
+            candidates.add(key);
+            if (candidates.size() > 2 * k) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * Оценка частоты ключа за период.
+     *
+     * @param key ключ
+     * @return оценка сверху
+     */
+    public long estimate(final long key) {
+        final long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Самые частые ключи.
+     *
+     * @return ключи с оценкой частоты, самые частые первыми, не больше k
+     */
+    public List<Map.Entry<Long, Long>> top() {
+        final List<Map.Entry<Long, Long>> top = new ArrayList<>();
+        candidates.forEach(key -> top.add(Map.entry(key, estimate(key))));
+        top.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+        return top.size() > k ? List.copyOf(top.subList(0, k)) : top;
+    }
+
+    /**
+     * Горячий ли ключ: входит в top-k с частотой не меньше порога на момент последнего {@link #decay()}.
+     *
+     * @param key ключ кэша
+     * @return горячий ли ключ
+     */
+    public boolean isHot(final Object key) {
+        return key instanceof Long id && hot.contains(id);
+    }
+
+    /** Текущие горячие ключи */
+    public Set<Long> hot() {
+        return hot;
+    }
+
+    /**
+     * Завершает период: пересчитывает горячие ключи по top-k и делит все счетчики пополам.
+     * Обращения, идущие одновременно, могут попасть в счетчик до или после деления - оценка остается приближенной.
+     */
+    public void decay() {
+        hot = Set.copyOf(top().stream()
+                .filter(entry -> entry.getValue() >= minCount)
+                .map(Map.Entry::getKey)
+                .toList());
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+        threshold >>>= 1;
+    }
+
+    /** Оставляет k самых частых кандидатов; если отсечение уже идет в другом потоке, ничего не делает */
+    private void prune() {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final List<Map.Entry<Long, Long>> top = top();
+            final Set<Long> keep = new HashSet<>();
+            top.forEach(entry -> keep.add(entry.getKey()));
+            candidates.retainAll(keep);
+            threshold = top.get(top.size() - 1).getValue();
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    private int index(final long hash, final int row) {
+        // Строки берут разные комбинации двух половин одного хеша (Kirsch - Mitzenmacher)
+        final int combined = (int) hash + row * ((int) (hash >>> 32) | 1);
+        return row * (mask + 1) + (combined & mask);
+    }
+
+    private static long hash(final long key) {
+        long hash = key * GOLDEN;
+        hash ^= hash >>> 32;
+        hash *= GOLDEN;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.otus.orlov.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Горячие ключи кэшей по обращениям к API: отдельный {@link HotKeySketch} на каждый кэш.
+ * Горячие ключи кэш закрепляет в L1 ({@link CacheSpec#hotKeys()}), а список самых частых ключей отдает
+ * actuator endpoint {@code hotkeys}.
+ */
+@Component
+public class HotKeys {
+    /** Sketch по имени кэша */
+    private final Map<String, HotKeySketch> sketches = new ConcurrentHashMap<>();
+
+    /** Счетчиков в строке sketch */
+    private final int width;
+
+    /** Строк sketch */
+    private final int depth;
+
+    /** Сколько самых частых ключей отслеживать */
+    private final int topK;
+
+    /** С какой частоты за период ключ считается горячим */
+    private final long minCount;
+
+    public HotKeys(@Value("${feed.cache.hot-keys.width:4096}") final int width,
+                   @Value("${feed.cache.hot-keys.depth:4}") final int depth,
+                   @Value("${feed.cache.hot-keys.top-k:100}") final int topK,
+                   @Value("${feed.cache.hot-keys.min-count:100}") final long minCount) {
+        this.width = width;
+        this.depth = depth;
+        this.topK = topK;
+        this.minCount = minCount;
+    }
+
+    /**
+     * Учитывает обращение к ключу кэша.
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ
+     */
+    public void record(final String cacheName, final long key) {
+        sketch(cacheName).record(key);
+    }
+
+    /**
+     * Sketch кэша, создается при первом обращении.
+     *
+     * @param cacheName имя кэша
+     * @return sketch
+     */
+    public HotKeySketch sketch(final String cacheName) {
+        return sketches.computeIfAbsent(cacheName, name -> new HotKeySketch(width, depth, topK, minCount));
+    }
+
+    /** Sketch всех кэшей по имени */
+    public Map<String, HotKeySketch> sketches() {
+        return sketches;
+    }
+
+    /** Завершает период: пересчитывает горячие ключи и вдвое уменьшает частоты */
+    @Scheduled(initialDelayString = "${feed.cache.hot-keys.period-ms:60000}",
+            fixedDelayString = "${feed.cache.hot-keys.period-ms:60000}")
+    public void decay() {
+        sketches.values().forEach(HotKeySketch::decay);
+    }
+}
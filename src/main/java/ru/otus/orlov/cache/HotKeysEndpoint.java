@@ -0,0 +1,42 @@
+package ru.otus.orlov.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.HotKeyDto;
+
+/**
+ * Самые частые ключи кэшей экземпляра: {@code GET /actuator/hotkeys} - по всем кэшам,
+ * {@code GET /actuator/hotkeys/{cacheName}} - по одному.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeysEndpoint {
+    /** Горячие ключи */
+    private final HotKeys hotKeys;
+
+    @ReadOperation
+    public Map<String, List<HotKeyDto>> hotKeys() {
+        final Map<String, List<HotKeyDto>> result = new LinkedHashMap<>();
+        hotKeys.sketches().forEach((cacheName, sketch) -> result.put(cacheName, toDto(sketch)));
+        return result;
+    }
+
+    @ReadOperation
+    public List<HotKeyDto> hotKeys(@Selector final String cacheName) {
+        final HotKeySketch sketch = hotKeys.sketches().get(cacheName);
+        return sketch == null ? List.of() : toDto(sketch);
+    }
+
+    private static List<HotKeyDto> toDto(final HotKeySketch sketch) {
+        return sketch.top().stream()
+                .map(entry -> new HotKeyDto(entry.getKey(), entry.getValue(), sketch.isHot(entry.getKey())))
+                .toList();
+    }
+}
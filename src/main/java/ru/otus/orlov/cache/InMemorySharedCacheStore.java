@@ -0,0 +1,91 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Встроенное хранилище L2 в памяти приложения.
+ * Общим оно является только для кэшей одного процесса, поэтому подходит для тестов и запуска в один экземпляр.
+ * Записи удаляются по сроку жизни, в том числе записи прежних поколений кэша, которые больше никто не читает.
+ */
+@Component
+@ConditionalOnProperty(name = "feed.cache.l2.type", havingValue = "embedded", matchIfMissing = true)
+public class InMemorySharedCacheStore implements SharedCacheStore {
+    /** Значения по ключу {@code <имя кэша>:<ключ>} */
+    private final Cache<String, Entry> entries = Caffeine.newBuilder()
+            .expireAfter(new EntryExpiry())
+            .build();
+
+    /** Поколения */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(final String cacheName, final Object key) {
+        final Entry entry = entries.getIfPresent(entryKey(cacheName, key));
+        return entry == null ? null : entry.value();
+    }
+
+    @Override
+    public void put(final String cacheName, final Object key, final Object value, final Duration ttl) {
+        entries.put(entryKey(cacheName, key), new Entry(value, ttl.toNanos()));
+    }
+
+    @Override
+    public void evict(final String cacheName, final Collection<?> keys) {
+        entries.invalidateAll(keys.stream().map(key -> entryKey(cacheName, key)).toList());
+    }
+
+    @Override
+    public long incrementGeneration(final String key) {
+        return generations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public Map<String, Long> getGenerations(final Collection<String> keys) {
+        final Map<String, Long> result = new HashMap<>();
+        for (final String key : keys) {
+            final AtomicLong generation = generations.get(key);
+            if (generation != null) {
+                result.put(key, generation.get());
+            }
+        }
+        return result;
+    }
+
+    private static String entryKey(final String cacheName, final Object key) {
+        return cacheName + ":" + key;
+    }
+
+    /** Значение и срок жизни */
+    private record Entry(Object value, long ttlNanos) {
+    }
+
+    /** Срок жизни записи задается при каждой записи */
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(final String key, final Entry entry, final long currentTime) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(final String key, final Entry entry, final long currentTime,
+                                      final long currentDuration) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(final String key, final Entry entry, final long currentTime,
+                                    final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.otus.orlov.cache;
+
+/**
+ * Двоичное представление значений кэша для хранения вне кучи.
+ * Реализация знает тип значений своего кэша и пишет только его поля, без имен и типов.
+ */
+public interface OffHeapCodec {
+    /**
+     * Сериализует значение.
+     *
+     * @param value значение кэша
+     * @return байты значения
+     */
+    byte[] encode(final Object value);
+
+    /**
+     * Восстанавливает значение.
+     *
+     * @param bytes байты, записанные {@link #encode(Object)}
+     * @return значение кэша
+     */
+    Object decode(final byte[] bytes);
+}
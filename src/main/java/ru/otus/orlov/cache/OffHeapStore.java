@@ -0,0 +1,260 @@
+package ru.otus.orlov.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище сериализованных значений вне кучи.
+ * Память делится на сегменты, у каждого свой {@link ByteBuffer#allocateDirect direct}-буфер и свой индекс
+ * "ключ - смещение и длина" под отдельной блокировкой. Буфер заполняется по кругу как журнал: новое значение
+ * дописывается за последним, а когда место в конце заканчивается, запись продолжается с начала буфера
+ * и вытесняет самые старые значения (FIFO). Перезапись ключа только убирает старое значение из индекса,
+ * его место освобождается при следующем проходе круга.
+ * В куче остаются только индекс и момент записи каждого значения, поэтому сборщик мусора не обходит
+ * содержимое значений, сколько бы их ни было.
+ */
+public class OffHeapStore {
+    /** Значение больше 1/N сегмента не сохраняется */
+    private static final int MAX_VALUE_SHARE = 4;
+
+    /** Сегменты */
+    private final Segment[] segments;
+
+    /** Жесткий срок жизни */
+    private final long hardTtlMillis;
+
+    /** Вытесненные из-за нехватки места значения */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Выделяет память хранилища.
+     *
+     * @param capacityBytes объем памяти вне кучи на все сегменты
+     * @param segmentCount  число сегментов - независимых блокировок
+     * @param hardTtl       жесткий срок жизни значений
+     */
+    public OffHeapStore(final long capacityBytes, final int segmentCount, final Duration hardTtl) {
+        final long segmentBytes = capacityBytes / segmentCount;
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Размер сегмента вне кучи должен быть от 1 байта до 2 ГБ: "
+                    + segmentBytes);
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) segmentBytes);
+        }
+        this.hardTtlMillis = hardTtl.toMillis();
+    }
+
+    /**
+     * Возвращает значение, если оно есть и не старше жесткого срока.
+     *
+     * @param key ключ
+     * @return байты значения с моментом записи и поколением или null
+     */
+    public Stored get(final Object key) {
+        return segment(key).get(key, System.currentTimeMillis() - hardTtlMillis);
+    }
+
+    /**
+     * Сохраняет значение, вытесняя самые старые значения сегмента, если места не хватает.
+     * Значение больше четверти сегмента не сохраняется: оно вытеснило бы слишком много других.
+     *
+     * @param key             ключ
+     * @param bytes           байты значения
+     * @param writtenAtMillis момент записи
+     * @param generation      поколение значения
+     * @return сохранено ли значение
+     */
+    public boolean put(final Object key, final byte[] bytes, final long writtenAtMillis, final long generation) {
+        return segment(key).put(key, bytes, writtenAtMillis, generation);
+    }
+
+    /**
+     * Удаляет значения.
+     *
+     * @param keys ключи
+     */
+    public void invalidateAll(final Collection<?> keys) {
+        keys.forEach(key -> segment(key).remove(key));
+    }
+
+    /**
+     * Обходит значения сегмент за сегментом, от самых новых к самым старым внутри сегмента.
+     * Значения сегмента копируются в кучу под его блокировкой, а обработка идет уже без нее,
+     * так что в куче одновременно не больше одного сегмента.
+     *
+     * @param action обработка ключа и значения
+     */
+    public void forEach(final BiConsumer<Object, Stored> action) {
+        for (Segment segment : segments) {
+            segment.copy().forEach(action);
+        }
+    }
+
+    /** Удаляет все значения */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /** Количество значений */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** Байты, занятые значениями в индексе */
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.usedBytes();
+        }
+        return used;
+    }
+
+    /** Объем памяти вне кучи */
+    public long capacityBytes() {
+        return (long) segments[0].capacity() * segments.length;
+    }
+
+    /** Вытесненные из-за нехватки места значения */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segment(final Object key) {
+        final int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * Байты значения с моментом записи и поколением.
+     *
+     * @param bytes           байты значения
+     * @param writtenAtMillis момент записи, мс от эпохи
+     * @param generation      поколение значения
+     */
+    public record Stored(byte[] bytes, long writtenAtMillis, long generation) {
+    }
+
+    /** Положение значения в буфере сегмента */
+    private record Slot(int offset, int length, long writtenAtMillis, long generation) {
+    }
+
+    /** Сегмент: буфер и индекс, все операции под блокировкой сегмента */
+    private final class Segment {
+        /** Буфер значений */
+        private final ByteBuffer slab;
+
+        /** Индекс в порядке записи - он же порядок значений в буфере, от самого старого */
+        private final LinkedHashMap<Object, Slot> index = new LinkedHashMap<>();
+
+        /** Куда будет записано следующее значение */
+        private int writePos;
+
+        /** Байты значений в индексе */
+        private long usedBytes;
+
+        Segment(final int capacity) {
+            this.slab = ByteBuffer.allocateDirect(capacity);
+        }
+
+        synchronized Stored get(final Object key, final long expiredBeforeMillis) {
+            final Slot slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (slot.writtenAtMillis() <= expiredBeforeMillis) {
+                remove(key);
+                return null;
+            }
+            final byte[] bytes = new byte[slot.length()];
+            slab.get(slot.offset(), bytes);
+            return new Stored(bytes, slot.writtenAtMillis(), slot.generation());
+        }
+
+        synchronized boolean put(final Object key, final byte[] bytes, final long writtenAtMillis,
+                                 final long generation) {
+            remove(key);
+            final int length = bytes.length;
+            if (length > slab.capacity() / MAX_VALUE_SHARE) {
+                return false;
+            }
+            if (writePos + length > slab.capacity()) {
+                // Хвост буфера не вмещает значение: значения в хвосте - самые старые, круг начинается заново
+                evictOldestWhile(slot -> slot.offset() >= writePos);
+                writePos = 0;
+            }
+            // Значения прошлого круга, которые перекрывает новое; значения текущего круга лежат до writePos
+            final int end = writePos + length;
+            evictOldestWhile(slot -> slot.offset() >= writePos && slot.offset() < end);
+            slab.put(writePos, bytes);
+            index.put(key, new Slot(writePos, length, writtenAtMillis, generation));
+            usedBytes += length;
+            writePos = end;
+            return true;
+        }
+
+        synchronized Map<Object, Stored> copy() {
+            final Map<Object, Stored> copy = new LinkedHashMap<>(index.size());
+            final Object[] keys = index.keySet().toArray();
+            for (int i = keys.length - 1; i >= 0; i--) {
+                final Slot slot = index.get(keys[i]);
+                final byte[] bytes = new byte[slot.length()];
+                slab.get(slot.offset(), bytes);
+                copy.put(keys[i], new Stored(bytes, slot.writtenAtMillis(), slot.generation()));
+            }
+            return copy;
+        }
+
+        synchronized void remove(final Object key) {
+            final Slot slot = index.remove(key);
+            if (slot != null) {
+                usedBytes -= slot.length();
+            }
+        }
+
+        synchronized void clear() {
+            index.clear();
+            usedBytes = 0;
+            writePos = 0;
+        }
+
+        synchronized int size() {
+            return index.size();
+        }
+
+        synchronized long usedBytes() {
+            return usedBytes;
+        }
+
+        int capacity() {
+            return slab.capacity();
+        }
+
+        private void evictOldestWhile(final Predicate<Slot> condition) {
+            final Iterator<Map.Entry<Object, Slot>> oldest = index.entrySet().iterator();
+            while (oldest.hasNext()) {
+                final Slot slot = oldest.next().getValue();
+                if (!condition.test(slot)) {
+                    return;
+                }
+                oldest.remove();
+                usedBytes -= slot.length();
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.otus.orlov.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Хранилище L2 в Redis, общее для всех экземпляров приложения.
+ * Ключ записи - {@code cache:<имя кэша>:<ключ>}, значение - JSON с информацией о типе.
+ * Поколение - целое число по ключу {@code generation:<ключ поколения>}, увеличивается атомарно командой INCR.
+ */
+@Component
+@ConditionalOnProperty(name = "feed.cache.l2.type", havingValue = "redis")
+public class RedisSharedCacheStore implements SharedCacheStore {
+    /** Template Redis */
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public RedisSharedCacheStore(final RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer()
+                .configure(objectMapper -> objectMapper.registerModule(new JavaTimeModule())));
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @Override
+    public Object get(final String cacheName, final Object key) {
+        return redisTemplate.opsForValue().get(redisKey(cacheName, key));
+    }
+
+    @Override
+    public void put(final String cacheName, final Object key, final Object value, final Duration ttl) {
+        redisTemplate.opsForValue().set(redisKey(cacheName, key), value, ttl);
+    }
+
+    @Override
+    public void evict(final String cacheName, final Collection<?> keys) {
+        redisTemplate.delete(keys.stream().map(key -> redisKey(cacheName, key)).toList());
+    }
+
+    @Override
+    public long incrementGeneration(final String key) {
+        final Long generation = redisTemplate.opsForValue().increment(generationKey(key));
+        return generation == null ? 0 : generation;
+    }
+
+    @Override
+    public Map<String, Long> getGenerations(final Collection<String> keys) {
+        final List<String> keyList = List.copyOf(keys);
+        // Одна команда MGET на все ключи
+        final List<Object> values = redisTemplate.opsForValue()
+                .multiGet(keyList.stream().map(RedisSharedCacheStore::generationKey).toList());
+        final Map<String, Long> generations = new HashMap<>();
+        for (int i = 0; values != null && i < keyList.size(); i++) {
+            if (values.get(i) instanceof Number generation) {
+                generations.put(keyList.get(i), generation.longValue());
+            }
+        }
+        return generations;
+    }
+
+    private static String redisKey(final String cacheName, final Object key) {
+        return "cache:" + cacheName + ":" + key;
+    }
+
+    private static String generationKey(final String key) {
+        return "generation:" + key;
+    }
+}
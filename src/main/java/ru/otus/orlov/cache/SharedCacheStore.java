@@ -0,0 +1,55 @@
+package ru.otus.orlov.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Общее для всех экземпляров приложения хранилище кэша второго уровня (L2).
+ * Значения одного кэша отделяются от других по имени кэша.
+ * Здесь же хранятся поколения ({@link CacheGenerations}) - счетчики, общие для всех экземпляров.
+ */
+public interface SharedCacheStore {
+    /**
+     * Возвращает значение из хранилища.
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ
+     * @return значение или null, если его нет или истек срок жизни
+     */
+    Object get(final String cacheName, final Object key);
+
+    /**
+     * Сохраняет значение в хранилище.
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ
+     * @param value     значение
+     * @param ttl       срок жизни значения
+     */
+    void put(final String cacheName, final Object key, final Object value, final Duration ttl);
+
+    /**
+     * Удаляет значения из хранилища.
+     *
+     * @param cacheName имя кэша
+     * @param keys      ключи
+     */
+    void evict(final String cacheName, final Collection<?> keys);
+
+    /**
+     * Увеличивает поколение на единицу.
+     *
+     * @param key ключ поколения
+     * @return новое поколение
+     */
+    long incrementGeneration(final String key);
+
+    /**
+     * Возвращает текущие поколения.
+     *
+     * @param keys ключи поколений
+     * @return поколения по ключу; поколения, которые ни разу не увеличивались, отсутствуют
+     */
+    Map<String, Long> getGenerations(final Collection<String> keys);
+}
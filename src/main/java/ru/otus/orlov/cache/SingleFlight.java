@@ -0,0 +1,126 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных загрузок одного ключа.
+ * Первый запрос по ключу выполняет загрузку, остальные, пришедшие до ее завершения, ждут тот же результат
+ * не дольше таймаута. Сэкономленные загрузки считаются в метрике {@code cache.singleflight.coalesced}.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class SingleFlight<K, V> {
+    /** Загрузки, выполняемые сейчас */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** Сколько ждать чужую загрузку */
+    private final long timeoutMs;
+
+    /** Запросы, получившие результат чужой загрузки */
+    private final Counter coalesced;
+
+    /** Длительность загрузок */
+    private final Timer loadTimer;
+
+    public SingleFlight(final String name, final Duration timeout, final MeterRegistry meterRegistry) {
+        this.timeoutMs = timeout.toMillis();
+        this.coalesced = Counter.builder("cache.singleflight.coalesced")
+                .description("Промахи кэша, дождавшиеся уже идущей загрузки того же ключа")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("cache.loads")
+                .description("Длительность загрузки значения по промаху кэша")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /** Длительность загрузок */
+    public Timer loadTimer() {
+        return loadTimer;
+    }
+
+    /**
+     * Асинхронная загрузка.
+     * Ожидающий запрос получает свою копию future: его таймаут не завершает загрузку для остальных.
+     *
+     * @param key    ключ
+     * @param loader запуск загрузки
+     * @return future со значением; у ожидающих завершается с {@link java.util.concurrent.TimeoutException}
+     */
+    public CompletableFuture<V> load(final K key, final Supplier<CompletableFuture<V>> loader) {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return running.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        final long start = System.nanoTime();
+        try {
+            loader.get().whenComplete((value, error) -> {
+                loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                complete(key, mine, value, error);
+            });
+        } catch (Throwable e) {
+            complete(key, mine, null, e);
+        }
+        return mine;
+    }
+
+    /**
+     * Синхронная загрузка в вызывающем потоке.
+     *
+     * @param key    ключ
+     * @param loader загрузка
+     * @return значение
+     * @throws Exception ошибка загрузки или {@link java.util.concurrent.TimeoutException} ожидающего
+     */
+    public V loadSync(final K key, final Callable<V> loader) throws Exception {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        final long start = System.nanoTime();
+        try {
+            final V value = loader.call();
+            complete(key, mine, value, null);
+            return value;
+        } catch (Throwable e) {
+            complete(key, mine, null, e);
+            throw e;
+        } finally {
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Идет ли сейчас загрузка ключа */
+    public boolean isLoading(final K key) {
+        return inFlight.containsKey(key);
+    }
+
+    /** Убирает загрузку из выполняемых до завершения future, чтобы следующий промах начал новую загрузку */
+    private void complete(final K key, final CompletableFuture<V> future, final V value, final Throwable error) {
+        inFlight.remove(key, future);
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(value);
+        }
+    }
+}
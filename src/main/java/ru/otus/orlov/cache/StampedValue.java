@@ -0,0 +1,19 @@
+package ru.otus.orlov.cache;
+
+/**
+ * Значение кэша с моментом записи и поколением.
+ * Момент записи хранится вместе со значением и в L1, и в L2, поэтому возраст значения одинаков
+ * на всех экземплярах, откуда бы оно ни было прочитано.
+ *
+ * @param value           значение
+ * @param writtenAtMillis момент записи, мс от эпохи
+ * @param generation      поколение значения на момент записи (см. {@link CacheGenerations}); значение
+ *                        действительно, пока поколение не изменилось
+ */
+public record StampedValue(Object value, long writtenAtMillis, long generation) {
+
+    /** Возраст значения в миллисекундах */
+    public long ageMillis(final long nowMillis) {
+        return nowMillis - writtenAtMillis;
+    }
+}
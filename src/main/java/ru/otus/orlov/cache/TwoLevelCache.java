@@ -0,0 +1,691 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Двухуровневый кэш: локальный Caffeine (L1) перед общим для всех экземпляров хранилищем (L2).
+ * Чтение идет в L1, при промахе - в L2, найденное в L2 значение кладется в L1.
+ * Кэш может держать между L1 и L2 локальное хранилище вне кучи ({@link OffHeapStore}) с сериализованными
+ * значениями: L1 остается небольшим и хранит горячие значения готовыми объектами, а основной объем лежит
+ * вне кучи и не нагружает сборщик мусора. Найденное вне кучи значение поднимается в L1.
+ * Запись идет во все уровни. Сброс удаляет ключи из L2 и локального L1 и рассылает их остальным экземплярам,
+ * которые очищают только свой L1 и хранилище вне кучи.
+ * Сброс кэша целиком и изменения постов автора не перечисляют ключи, а увеличивают поколение
+ * ({@link CacheGenerations}). Значение хранится с поколением на момент записи, и значение прежнего поколения
+ * при чтении считается промахом. Поколение кэша входит в ключ L2, так что прежние ключи L2 просто
+ * истекают по сроку жизни.
+ * Значение старше мягкого срока жизни отдается сразу, а в фоне запускается его перезагрузка (refresh-ahead);
+ * после жесткого срока значение удаляется и чтение ждет загрузку.
+ * L1 ограничен бюджетом в байтах: размер записи оценивает {@link ValueWeigher} кэша. Горячие ключи
+ * ({@link HotKeySketch}) получают нулевой вес: Caffeine не вытесняет их по размеру, только по сроку жизни.
+ * Вес считается при записи, поэтому ключ закрепляется или открепляется со следующей записью - горячий ключ
+ * перезаписывается фоновой перезагрузкой не реже мягкого срока.
+ * Ключи кэшей - идентификаторы ({@link Long}).
+ * Ошибки L2 не прерывают чтение: кэш работает как одноуровневый, пока L2 недоступен.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    /** Сколько фоновых перезагрузок может ждать в очереди на один поток */
+    private static final int REFRESH_QUEUE_PER_THREAD = 16;
+
+    /** Число сегментов хранилища вне кучи */
+    private static final int OFF_HEAP_SEGMENTS = 16;
+
+    /** Имя кэша */
+    private final String name;
+
+    /** Настройки кэша */
+    private final CacheSpec spec;
+
+    /** Локальный кэш */
+    private final Cache<Object, Object> local;
+
+    /** Локальное хранилище вне кучи или null */
+    private final OffHeapStore offHeap;
+
+    /** Общее хранилище */
+    private final SharedCacheStore sharedStore;
+
+    /** Рассылка сброса ключей */
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    /** Поколения */
+    private final CacheGenerations generations;
+
+    /** Пул фоновых перезагрузок; при переполнении перезагрузка пропускается до следующего чтения */
+    private final ThreadPoolExecutor refreshExecutor;
+
+    /** Попадания и промахи по уровням */
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter offHeapHits;
+    private final Counter offHeapMisses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+
+    /** Ошибки обращения к L2 */
+    private final Counter l2Errors;
+
+    /** Прочитанные значения прежнего поколения и загрузки, не попавшие в кэш из-за смены поколения */
+    private final Counter staleReads;
+    private final Counter staleLoads;
+
+    /** Фоновые перезагрузки: запущенные и отклоненные из-за заполненного пула */
+    private final Counter refreshes;
+    private final Counter refreshesRejected;
+
+    /** Объединение одновременных загрузок и перезагрузок одного ключа */
+    private final SingleFlight<Object, Object> loads;
+
+    public TwoLevelCache(final String name,
+                         final CacheSpec spec,
+                         final SharedCacheStore sharedStore,
+                         final CacheInvalidationBroadcaster broadcaster,
+                         final CacheGenerations generations,
+                         final Duration loadTimeout,
+                         final MeterRegistry meterRegistry) {
+        super(false);
+        this.name = name;
+        this.spec = spec;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(spec.localMaxBytes())
+                .weigher((key, value) -> weigh(key, (StampedValue) value))
+                .expireAfter(new HardTtlExpiry(spec.hardTtl()))
+                .recordStats()
+                .build();
+        this.offHeap = spec.offHeapBytes() > 0
+                ? new OffHeapStore(spec.offHeapBytes(), OFF_HEAP_SEGMENTS, spec.hardTtl())
+                : null;
+        this.sharedStore = sharedStore;
+        this.broadcaster = broadcaster;
+        this.generations = generations;
+        this.refreshExecutor = new ThreadPoolExecutor(spec.refreshThreads(), spec.refreshThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(spec.refreshThreads() * REFRESH_QUEUE_PER_THREAD),
+                new CustomizableThreadFactory("cache-refresh-" + name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.l1Hits = requests(meterRegistry, "l1", "hit");
+        this.l1Misses = requests(meterRegistry, "l1", "miss");
+        this.offHeapHits = requests(meterRegistry, "offheap", "hit");
+        this.offHeapMisses = requests(meterRegistry, "offheap", "miss");
+        this.l2Hits = requests(meterRegistry, "l2", "hit");
+        this.l2Misses = requests(meterRegistry, "l2", "miss");
+        this.l2Errors = Counter.builder("cache.l2.errors")
+                .description("Ошибки обращения к общему хранилищу кэша")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.staleReads = staleCounter(meterRegistry, "read");
+        this.staleLoads = staleCounter(meterRegistry, "load");
+        this.refreshes = refreshCounter(meterRegistry, "started");
+        this.refreshesRejected = refreshCounter(meterRegistry, "rejected");
+        this.loads = new SingleFlight<>(name, loadTimeout, meterRegistry);
+        // Попадания, промахи, вытеснения и размер L1 из статистики Caffeine
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+        Gauge.builder("cache.weighted.size", this, TwoLevelCache::weightedSize)
+                .description("Примерный размер записей L1 в куче, байт")
+                .tag("cache", name)
+                .register(meterRegistry);
+        if (spec.hotKeys() != null) {
+            Gauge.builder("cache.l1.pinned", this, TwoLevelCache::pinnedCount)
+                    .description("Горячие ключи в L1, не вытесняемые по размеру")
+                    .tag("cache", name)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("cache.l1.occupancy", this, TwoLevelCache::occupancy)
+                .description("Доля бюджета L1, занятая записями")
+                .tag("cache", name)
+                .register(meterRegistry);
+        if (offHeap != null) {
+            registerOffHeapMetrics(meterRegistry);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(final Object key) {
+        final StampedValue stamped = lookupStamped(key);
+        return stamped == null ? null : stamped.value();
+    }
+
+    /**
+     * Значение из кэша или результат загрузки ({@code @Cacheable(sync = true)}).
+     * Одновременные промахи по одному ключу выполняют одну загрузку, остальные ждут ее результат.
+     * Устаревшее по мягкому сроку значение отдается сразу, загрузка уходит в фоновый пул.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(final Object key, final Callable<T> valueLoader) {
+        final StampedValue cached = lookupStamped(key);
+        if (cached != null) {
+            refreshIfStale(key, cached, () -> CompletableFuture.supplyAsync(() -> call(key, valueLoader),
+                    refreshExecutor));
+            return (T) cached.value();
+        }
+        try {
+            return (T) loads.loadSync(key, () -> {
+                final long changes = generations.changes();
+                final T value = valueLoader.call();
+                putLoaded(key, value, changes);
+                return value;
+            });
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * Асинхронный вариант {@link #get(Object, Callable)} для загрузок, которые сами возвращают future.
+     * Фоновая перезагрузка занимает поток пула до завершения future, так что пул ограничивает
+     * число одновременных перезагрузок.
+     *
+     * @param key    ключ
+     * @param loader запуск загрузки
+     * @param <T>    тип значения
+     * @return future со значением
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(final Object key, final Supplier<CompletableFuture<T>> loader) {
+        final StampedValue cached = lookupStamped(key);
+        if (cached != null) {
+            refreshIfStale(key, cached, () -> CompletableFuture.supplyAsync(() -> loader.get().join(),
+                    refreshExecutor));
+            return CompletableFuture.completedFuture((T) cached.value());
+        }
+        return loads.load(key, () -> {
+            final long changes = generations.changes();
+            return loader.get().thenApply(value -> {
+                putLoaded(key, value, changes);
+                return value;
+            });
+        }).thenApply(value -> (T) value);
+    }
+
+    /**
+     * Значения многих ключей: найденные в кэше отдаются сразу, промахи загружаются одним вызовом loader
+     * и кладутся в кэш. Ключи, которых нет и в ответе loader, отсутствуют в результате и не кэшируются.
+     * В отличие от {@link #get(Object, Callable)}, загрузка промахов не объединяется с одновременными
+     * загрузками тех же ключей. Устаревшее по мягкому сроку значение отдается сразу, а перезагружается
+     * в фоне вызовом loader с одним ключом.
+     *
+     * @param keys   ключи
+     * @param loader загрузка значений ключей-промахов одним запросом
+     * @param <K>    тип ключа
+     * @param <V>    тип значения
+     * @return найденные значения по ключу
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(final Collection<K> keys, final Function<Collection<K>, Map<K, V>> loader) {
+        final Map<K, V> found = new LinkedHashMap<>();
+        final List<K> misses = new ArrayList<>();
+        for (final K key : new LinkedHashSet<>(keys)) {
+            final StampedValue cached = lookupStamped(key);
+            if (cached == null) {
+                misses.add(key);
+                continue;
+            }
+            refreshIfStale(key, cached, () -> CompletableFuture.supplyAsync(() -> {
+                final V value = loader.apply(List.of(key)).get(key);
+                if (value == null) {
+                    throw new IllegalStateException("Ключ " + key + " не найден при перезагрузке");
+                }
+                return value;
+            }, refreshExecutor));
+            found.put(key, (V) cached.value());
+        }
+        if (misses.isEmpty()) {
+            return found;
+        }
+        final long changes = generations.changes();
+        final Map<K, V> loaded = loader.apply(misses);
+        for (final Map.Entry<K, V> entry : loaded.entrySet()) {
+            putLoaded(entry.getKey(), entry.getValue(), changes);
+            found.put(entry.getKey(), entry.getValue());
+        }
+        return found;
+    }
+
+    @Override
+    public void put(final Object key, final Object value) {
+        final Object storeValue = toStoreValue(value);
+        final long generation;
+        try {
+            generation = generation(storeValue);
+        } catch (RuntimeException e) {
+            // Без поколения значение не отличить от устаревшего - оно не кэшируется
+            sharedError("чтения поколений", e);
+            return;
+        }
+        final StampedValue stamped = new StampedValue(storeValue, System.currentTimeMillis(), generation);
+        local.put(key, stamped);
+        offHeapPut(key, stamped);
+        try {
+            sharedStore.put(sharedName(), key, stamped, spec.hardTtl());
+        } catch (RuntimeException e) {
+            sharedError("записи", e);
+        }
+    }
+
+    @Override
+    public void evict(final Object key) {
+        evictAll(List.of((Long) key));
+    }
+
+    /**
+     * Сбрасывает ключи на всех экземплярах: удаляет их из L2 и локального L1, затем рассылает сброс L1.
+     *
+     * @param keys ключи
+     */
+    public void evictAll(final Collection<Long> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            sharedStore.evict(sharedName(), keys);
+        } catch (RuntimeException e) {
+            sharedError("сброса", e);
+        }
+        local.invalidateAll(keys);
+        if (offHeap != null) {
+            offHeap.invalidateAll(keys);
+        }
+        broadcaster.broadcast(name, keys);
+    }
+
+    /**
+     * Сбрасывает кэш на всех экземплярах увеличением поколения кэша: ключи L2 следующего поколения другие,
+     * а значения прежнего поколения в L1 и вне кучи не читаются и вытесняются по размеру.
+     */
+    @Override
+    public void clear() {
+        generations.incrementCache(name);
+    }
+
+    /**
+     * Сбрасывает ключи только в локальных L1 и хранилище вне кучи - по сообщению от другого экземпляра.
+     *
+     * @param keys ключи; null - все значения
+     */
+    public void evictLocal(final Collection<Long> keys) {
+        if (keys == null) {
+            local.invalidateAll();
+            if (offHeap != null) {
+                offHeap.invalidateAll();
+            }
+        } else {
+            local.invalidateAll(keys);
+            if (offHeap != null) {
+                offHeap.invalidateAll(keys);
+            }
+        }
+    }
+
+    /** Примерное количество записей в L1 */
+    public long localSize() {
+        return local.estimatedSize();
+    }
+
+    /** Примерный размер записей L1 в куче без закрепленных горячих ключей, байт */
+    public long weightedSize() {
+        return local.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(local.estimatedSize()))
+                .orElse(local.estimatedSize());
+    }
+
+    /** Горячие ключи, которые сейчас лежат в L1 */
+    public long pinnedCount() {
+        return spec.hotKeys() == null ? 0
+                : spec.hotKeys().hot().stream().filter(key -> local.asMap().containsKey(key)).count();
+    }
+
+    /** Бюджет L1 в байтах, -1 - без ограничения */
+    public long maximum() {
+        return local.policy().eviction().map(Policy.Eviction::getMaximum).orElse(-1L);
+    }
+
+    /** Доля бюджета L1, занятая записями */
+    public double occupancy() {
+        final long maximum = maximum();
+        return maximum <= 0 ? 0.0 : Math.min(1.0, (double) weightedSize() / maximum);
+    }
+
+    /**
+     * Самые горячие ключи L1 - те, что Caffeine удержит дольше всего по частоте и давности обращений.
+     *
+     * @param limit сколько вернуть
+     * @return ключи, самые горячие первыми
+     */
+    public List<Object> hottestKeys(final int limit) {
+        return local.policy().eviction()
+                .map(eviction -> List.copyOf(eviction.hottest(limit).keySet()))
+                .orElse(List.of());
+    }
+
+    /**
+     * Самые горячие значения L1 текущего поколения - для снимка кэша ({@link CacheSnapshot}).
+     *
+     * @param limit сколько вернуть
+     * @return значения с моментом записи и поколением по ключу, самые горячие первыми
+     */
+    public Map<Object, StampedValue> hottestEntries(final int limit) {
+        final Map<Object, StampedValue> entries = new LinkedHashMap<>();
+        local.policy().eviction().ifPresent(eviction -> eviction.hottest(limit).forEach((key, value) -> {
+            final StampedValue stamped = (StampedValue) value;
+            if (isCurrent(stamped)) {
+                entries.put(key, stamped);
+            }
+        }));
+        return entries;
+    }
+
+    /**
+     * Обходит значения хранилища вне кучи в сериализованном виде - для снимка кэша. Поколение не проверяется:
+     * его проверит восстановление.
+     *
+     * @param action обработка ключа и байт значения с моментом записи и поколением
+     */
+    public void forEachOffHeap(final BiConsumer<Object, OffHeapStore.Stored> action) {
+        if (offHeap != null) {
+            offHeap.forEach(action);
+        }
+    }
+
+    /**
+     * Кладет значение из снимка в хранилище вне кучи, а горячее значение - еще и в L1. В L2 значение не пишется:
+     * оно попало туда при загрузке и там либо еще живо, либо уже сброшено. Значение не кладется, если оно старше
+     * жесткого срока, его поколение уже не текущее или ключ успели загрузить заново.
+     *
+     * @param key    ключ
+     * @param stored байты значения с моментом записи и поколением из снимка
+     * @param hot    было ли значение горячим в L1
+     * @return положено ли значение
+     */
+    public boolean restore(final Object key, final OffHeapStore.Stored stored, final boolean hot) {
+        if (!hot && offHeap == null
+                || System.currentTimeMillis() - stored.writtenAtMillis() >= spec.hardTtl().toMillis()
+                || local.getIfPresent(key) != null) {
+            return false;
+        }
+        final StampedValue stamped = new StampedValue(spec.offHeapCodec().decode(stored.bytes()),
+                stored.writtenAtMillis(), stored.generation());
+        if (!isCurrent(stamped)
+                || hot && local.asMap().putIfAbsent(key, stamped) != null) {
+            return false;
+        }
+        if (offHeap != null) {
+            offHeap.put(key, stored.bytes(), stored.writtenAtMillis(), stored.generation());
+        }
+        return true;
+    }
+
+    /** Настройки кэша */
+    public CacheSpec spec() {
+        return spec;
+    }
+
+    /** Статистика L1 */
+    public CacheStats localStats() {
+        return local.stats();
+    }
+
+    /** Попадания в L2 */
+    public long sharedHitCount() {
+        return (long) l2Hits.count();
+    }
+
+    /** Промахи L2 */
+    public long sharedMissCount() {
+        return (long) l2Misses.count();
+    }
+
+    /** Загрузки по промаху */
+    public SingleFlight<Object, Object> loads() {
+        return loads;
+    }
+
+    /** Останавливает пул фоновых перезагрузок */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /** Значение текущего поколения с моментом записи из L1, хранилища вне кучи или L2 */
+    private StampedValue lookupStamped(final Object key) {
+        StampedValue value = current((StampedValue) local.getIfPresent(key));
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+        l1Misses.increment();
+        if (offHeap != null) {
+            value = offHeapGet(key);
+            if (value != null) {
+                offHeapHits.increment();
+                local.put(key, value);
+                return value;
+            }
+            offHeapMisses.increment();
+        }
+        value = sharedGet(key);
+        if (value != null) {
+            l2Hits.increment();
+            local.put(key, value);
+            offHeapPut(key, value);
+        } else {
+            l2Misses.increment();
+        }
+        return value;
+    }
+
+    /** Запускает фоновую перезагрузку, если значение старше мягкого срока и перезагрузка еще не идет */
+    private void refreshIfStale(final Object key,
+                                final StampedValue cached,
+                                final Supplier<CompletableFuture<Object>> refresh) {
+        if (cached.ageMillis(System.currentTimeMillis()) < spec.softTtl().toMillis() || loads.isLoading(key)) {
+            return;
+        }
+        loads.load(key, () -> {
+            final long changes = generations.changes();
+            final CompletableFuture<Object> future = refresh.get();
+            refreshes.increment();
+            return future.thenApply(value -> {
+                putLoaded(key, value, changes);
+                return value;
+            });
+        }).exceptionally(e -> {
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                refreshesRejected.increment();
+            } else {
+                log.warn("Фоновая перезагрузка ключа {} кэша {} не удалась: {}", key, name, e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private static Object call(final Object key, final Callable<?> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /** Размер записи L1: значение по оценке кэша и служебные объекты записи; горячий ключ - 0 */
+    private int weigh(final Object key, final StampedValue stamped) {
+        if (spec.hotKeys() != null && spec.hotKeys().isHot(key)) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) HeapSize.CACHE_ENTRY + spec.weigher().weigh(stamped.value()));
+    }
+
+    /**
+     * Кладет загруженное значение, если за время загрузки не менялись поколения, от которых оно зависит:
+     * поколение кэша и поколения авторов значения. Иначе значение могло собраться до сброса, а поколение
+     * получило бы уже после него, и устаревшее значение считалось бы текущим.
+     */
+    private void putLoaded(final Object key, final Object value, final long changesBeforeLoad) {
+        if (generations.changedSince(name, authors(toStoreValue(value)), changesBeforeLoad)) {
+            staleLoads.increment();
+            return;
+        }
+        put(key, value);
+    }
+
+    /** Авторы значения, чьи поколения входят в его поколение */
+    private Collection<Long> authors(final Object value) {
+        return spec.authors() == null ? List.of() : spec.authors().authors(value);
+    }
+
+    /** Текущее поколение значения: поколение кэша и сумма поколений авторов значения */
+    private long generation(final Object value) {
+        return generations.ofCache(name) + generations.ofAuthors(authors(value));
+    }
+
+    /** Текущее ли поколение значения; без поколений из L2 значение текущим не считается */
+    private boolean isCurrent(final StampedValue stamped) {
+        try {
+            return stamped.generation() == generation(stamped.value());
+        } catch (RuntimeException e) {
+            sharedError("чтения поколений", e);
+            return false;
+        }
+    }
+
+    /** Значение, если его поколение текущее, иначе null */
+    private StampedValue current(final StampedValue stamped) {
+        if (stamped == null || isCurrent(stamped)) {
+            return stamped;
+        }
+        staleReads.increment();
+        return null;
+    }
+
+    /** Имя кэша в L2 с поколением кэша */
+    private String sharedName() {
+        return name + ":" + generations.ofCache(name);
+    }
+
+    private StampedValue offHeapGet(final Object key) {
+        final OffHeapStore.Stored stored = offHeap.get(key);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return current(new StampedValue(spec.offHeapCodec().decode(stored.bytes()), stored.writtenAtMillis(),
+                    stored.generation()));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось прочитать значение ключа {} кэша {} вне кучи: {}", key, name, e.getMessage());
+            offHeap.invalidateAll(List.of(key));
+            return null;
+        }
+    }
+
+    private void offHeapPut(final Object key, final StampedValue stamped) {
+        if (offHeap == null) {
+            return;
+        }
+        try {
+            offHeap.put(key, spec.offHeapCodec().encode(stamped.value()), stamped.writtenAtMillis(),
+                    stamped.generation());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить значение ключа {} кэша {} вне кучи: {}", key, name, e.getMessage());
+        }
+    }
+
+    private void registerOffHeapMetrics(final MeterRegistry meterRegistry) {
+        Gauge.builder("cache.offheap.used", offHeap, OffHeapStore::usedBytes)
+                .description("Байты значений в хранилище вне кучи")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.capacity", offHeap, OffHeapStore::capacityBytes)
+                .description("Объем хранилища вне кучи")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.size", offHeap, OffHeapStore::size)
+                .description("Значения в хранилище вне кучи")
+                .tag("cache", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.evictions", offHeap, OffHeapStore::evictionCount)
+                .description("Значения, вытесненные из хранилища вне кучи из-за нехватки места")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    private StampedValue sharedGet(final Object key) {
+        try {
+            // Значения без момента записи (от прежних версий) считаются промахом
+            return sharedStore.get(sharedName(), key) instanceof StampedValue stamped ? current(stamped) : null;
+        } catch (RuntimeException e) {
+            sharedError("чтения", e);
+            return null;
+        }
+    }
+
+    private void sharedError(final String operation, final RuntimeException e) {
+        l2Errors.increment();
+        log.warn("Ошибка {} общего кэша {}: {}", operation, name, e.getMessage());
+    }
+
+    private Counter staleCounter(final MeterRegistry meterRegistry, final String stage) {
+        return Counter.builder("cache.generation.stale")
+                .description("Значения прежнего поколения: прочитанные как промах и загруженные, но не закэшированные")
+                .tag("cache", name)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private Counter refreshCounter(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("cache.refreshes")
+                .description("Фоновые перезагрузки значений старше мягкого срока жизни")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter requests(final MeterRegistry meterRegistry, final String level, final String result) {
+        return Counter.builder("cache.requests")
+                .description("Обращения к уровням кэша")
+                .tag("cache", name)
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.CacheManager;
+
+/** Менеджер двухуровневых кэшей с фиксированным набором имен */
+public class TwoLevelCacheManager implements CacheManager, DisposableBean {
+    /** Кэши по имени */
+    private final Map<String, TwoLevelCache> caches = new LinkedHashMap<>();
+
+    /**
+     * Создает кэши по их настройкам.
+     *
+     * @param specs         настройки по имени кэша
+     * @param sharedStore   общее хранилище L2
+     * @param broadcaster   рассылка сброса ключей
+     * @param generations   поколения
+     * @param loadTimeout   сколько ждать загрузку того же ключа другим запросом
+     * @param meterRegistry реестр метрик
+     */
+    public TwoLevelCacheManager(final Map<String, CacheSpec> specs,
+                                final SharedCacheStore sharedStore,
+                                final CacheInvalidationBroadcaster broadcaster,
+                                final CacheGenerations generations,
+                                final Duration loadTimeout,
+                                final MeterRegistry meterRegistry) {
+        specs.forEach((cacheName, spec) -> caches.put(cacheName, new TwoLevelCache(cacheName, spec, sharedStore,
+                broadcaster, generations, loadTimeout, meterRegistry)));
+    }
+
+    @Override
+    public TwoLevelCache getCache(final String name) {
+        return caches.get(name);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return caches.keySet();
+    }
+
+    @Override
+    public void destroy() {
+        caches.values().forEach(TwoLevelCache::shutdown);
+    }
+}
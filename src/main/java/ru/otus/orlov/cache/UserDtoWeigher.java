@@ -0,0 +1,33 @@
+package ru.otus.orlov.cache;
+
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.UserDto;
+
+/** Размер профиля в куче: строки, дата, интересы и идентификаторы друзей */
+@Component
+public class UserDtoWeigher implements ValueWeigher {
+    /** UserDto: десять ссылок */
+    private static final int USER = HeapSize.object(10 * HeapSize.REFERENCE);
+
+    @Override
+    public int weigh(final Object value) {
+        final UserDto user = (UserDto) value;
+        long size = USER + HeapSize.BOXED_LONG
+                + HeapSize.string(user.getFirstName())
+                + HeapSize.string(user.getLastName())
+                + HeapSize.string(user.getCity())
+                + HeapSize.string(user.getEmail())
+                + (user.getBirthDate() == null ? 0 : HeapSize.DATE);
+        if (user.getInterests() != null) {
+            size += HeapSize.hashSet(user.getInterests().size());
+            for (String interest : user.getInterests()) {
+                size += HeapSize.string(interest);
+            }
+        }
+        if (user.getFriendIds() != null) {
+            size += HeapSize.hashSet(user.getFriendIds().size())
+                    + (long) user.getFriendIds().size() * HeapSize.BOXED_LONG;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+}
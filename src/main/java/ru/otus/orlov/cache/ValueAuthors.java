@@ -0,0 +1,19 @@
+package ru.otus.orlov.cache;
+
+import java.util.Collection;
+
+/**
+ * Авторы, из постов которых собрано значение кэша.
+ * Их поколения ({@link CacheGenerations}) входят в поколение значения: изменение поста автора
+ * сбрасывает значение без перечисления ключей.
+ */
+@FunctionalInterface
+public interface ValueAuthors {
+    /**
+     * Авторы значения.
+     *
+     * @param value значение кэша
+     * @return идентификаторы авторов без повторов
+     */
+    Collection<Long> authors(final Object value);
+}
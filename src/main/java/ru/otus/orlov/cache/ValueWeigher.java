@@ -0,0 +1,17 @@
+package ru.otus.orlov.cache;
+
+/**
+ * Оценка размера значения кэша в куче.
+ * По ней L1 ограничивается бюджетом в байтах, а не числом записей: пустая лента и окно из 200 постов
+ * занимают очень разную память.
+ */
+@FunctionalInterface
+public interface ValueWeigher {
+    /**
+     * Оценивает размер значения.
+     *
+     * @param value значение кэша
+     * @return примерный размер в байтах вместе со всеми объектами, на которые ссылается значение
+     */
+    int weigh(final Object value);
+}
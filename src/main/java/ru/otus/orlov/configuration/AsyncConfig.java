@@ -0,0 +1,38 @@
+package ru.otus.orlov.configuration;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/** Конфигурация асинхронной обработки */
+@EnableAsync
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Пул раскладки постов по лентам подписчиков.
+     * Очередь ограничена; при ее переполнении задачу выполняет вызывающий поток, что притормаживает запись постов
+     * вместо потери раскладки.
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity емкость очереди задач
+     * @return пул потоков раскладки
+     */
+    @Bean
+    public Executor feedFanoutExecutor(@Value("${feed.fanout.threads:4}") final int threads,
+                                       @Value("${feed.fanout.queue-capacity:10000}") final int queueCapacity) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("feed-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
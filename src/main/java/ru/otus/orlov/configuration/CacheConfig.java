@@ -1,21 +1,86 @@
 package ru.otus.orlov.configuration;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import java.util.concurrent.TimeUnit;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.cache.CacheSpec;
+import ru.otus.orlov.cache.FeedWindowAuthors;
+import ru.otus.orlov.cache.FeedWindowWeigher;
+import ru.otus.orlov.cache.HotKeys;
+import ru.otus.orlov.cache.SharedCacheStore;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.cache.UserDtoWeigher;
+import ru.otus.orlov.feed.FeedWindowCache;
+import ru.otus.orlov.feed.FeedWindowCodec;
+import ru.otus.orlov.services.UserServiceImpl;
 
 /** Конфигурация кэша */
 @Configuration
 public class CacheConfig {
+
+    /**
+     * Двухуровневый кэш: локальный Caffeine перед общим хранилищем.
+     * Каждому кэшу задаются свои мягкий и жесткий сроки жизни, число фоновых перезагрузок и бюджет L1 в байтах,
+     * размер записи оценивается по структуре значения.
+     * Мягкий срок заодно ограничивает, сколько L1 держит старое значение, если рассылка сброса потерялась.
+     * Окно ленты зависит от поколений авторов своих постов: изменение поста сбрасывает окна всех подписчиков
+     * одним увеличением поколения автора.
+     * Окна ленты дополнительно хранятся сериализованными вне кучи: L1 держит только горячие окна,
+     * а число окон на экземпляре ограничивает объем памяти вне кучи, а не размер кучи.
+     * Самые частые по запросам к API ключи обоих кэшей закрепляются в L1 и не вытесняются редкими.
+     *
+     * @param sharedStore   общее хранилище L2
+     * @param broadcaster   рассылка сброса ключей
+     * @param generations   поколения кэшей и авторов
+     * @param feedCodec     двоичный формат окна ленты для хранения вне кучи
+     * @param feedWeigher   размер окна ленты в куче
+     * @param feedAuthors   авторы постов окна ленты
+     * @param userWeigher   размер профиля в куче
+     * @param hotKeys       частота обращений к ключам кэшей
+     * @param meterRegistry реестр метрик
+     * @param loadTimeoutMs сколько промах ждет уже идущую загрузку того же ключа
+     * @return менеджер кэша
+     */
     @Bean
-    public CacheManager cacheManager() {
-        final CaffeineCacheManager cacheManager = new CaffeineCacheManager("feed");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(1, TimeUnit.MINUTES)
-                .maximumSize(1000));
-        return cacheManager;
+    public TwoLevelCacheManager cacheManager(
+            final SharedCacheStore sharedStore,
+            final CacheInvalidationBroadcaster broadcaster,
+            final CacheGenerations generations,
+            final FeedWindowCodec feedCodec,
+            final FeedWindowWeigher feedWeigher,
+            final FeedWindowAuthors feedAuthors,
+            final UserDtoWeigher userWeigher,
+            final HotKeys hotKeys,
+            final MeterRegistry meterRegistry,
+            @Value("${feed.cache.load-timeout-ms:5000}") final long loadTimeoutMs,
+            @Value("${feed.cache.feed.soft-ttl-seconds:30}") final long feedSoftTtlSec,
+            @Value("${feed.cache.feed.hard-ttl-seconds:300}") final long feedHardTtlSec,
+            @Value("${feed.cache.feed.refresh-threads:4}") final int feedRefreshThreads,
+            @Value("${feed.cache.feed.l1-max-mb:64}") final long feedL1MaxMb,
+            @Value("${feed.cache.feed.off-heap-mb:256}") final long feedOffHeapMb,
+            @Value("${feed.cache.users.soft-ttl-seconds:60}") final long usersSoftTtlSec,
+            @Value("${feed.cache.users.hard-ttl-seconds:600}") final long usersHardTtlSec,
+            @Value("${feed.cache.users.refresh-threads:2}") final int usersRefreshThreads,
+            @Value("${feed.cache.users.l1-max-mb:8}") final long usersL1MaxMb) {
+        final Map<String, CacheSpec> specs = new LinkedHashMap<>();
+        specs.put(FeedWindowCache.CACHE_NAME, new CacheSpec(
+                Duration.ofSeconds(feedSoftTtlSec), Duration.ofSeconds(feedHardTtlSec), feedRefreshThreads,
+                megabytes(feedL1MaxMb), feedWeigher, feedAuthors, megabytes(feedOffHeapMb), feedCodec,
+                hotKeys.sketch(FeedWindowCache.CACHE_NAME)));
+        specs.put(UserServiceImpl.CACHE_NAME, new CacheSpec(
+                Duration.ofSeconds(usersSoftTtlSec), Duration.ofSeconds(usersHardTtlSec), usersRefreshThreads,
+                megabytes(usersL1MaxMb), userWeigher, null, 0, null, hotKeys.sketch(UserServiceImpl.CACHE_NAME)));
+        return new TwoLevelCacheManager(specs, sharedStore, broadcaster, generations,
+                Duration.ofMillis(loadTimeoutMs), meterRegistry);
+    }
+
+    private static long megabytes(final long mb) {
+        return mb * 1024 * 1024;
     }
 }
@@ -1,7 +1,13 @@
 package ru.otus.orlov.configuration;
 
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -9,9 +15,15 @@ import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.adapter.MessageListenerAdapter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.rpc.FeedRpcClient;
 import ru.otus.orlov.services.PostService;
+import ru.otus.orlov.ws.FeedEventPublisher;
+import ru.otus.orlov.ws.FeedPushDispatcher;
 
 /**
  * Конфигурационный класс для настройки RabbitMQ.
@@ -22,13 +34,37 @@ import ru.otus.orlov.services.PostService;
 public class RabbitMqConfig {
 
     /**
-     * Создает и возвращает очередь для обновления кэша.
+     * Создает fanout exchange сброса кэша: сообщение копируется во все привязанные очереди.
      *
-     * @return Очередь с именем "cacheUpdateQueue" и durable=true.
+     * @return Fanout exchange "cache.invalidation".
      */
     @Bean
-    public Queue cacheUpdateQueue() {
-        return new Queue("cacheUpdateQueue", true); // durable=true
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(CacheInvalidationBroadcaster.EXCHANGE);
+    }
+
+    /**
+     * Создает очередь сброса кэша этого экземпляра приложения.
+     * У каждого экземпляра своя очередь, поэтому сброс доходит до локального кэша каждого экземпляра.
+     *
+     * @return Анонимная очередь с префиксом "cache.invalidation.".
+     */
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("cache.invalidation."));
+    }
+
+    /**
+     * Привязывает очередь сброса кэша этого экземпляра к fanout exchange.
+     *
+     * @param cacheInvalidationQueue    Очередь сброса кэша этого экземпляра.
+     * @param cacheInvalidationExchange Exchange сброса кэша.
+     * @return Привязка очереди к exchange.
+     */
+    @Bean
+    public Binding cacheInvalidationBinding(@Qualifier("cacheInvalidationQueue") final Queue cacheInvalidationQueue,
+                                            final FanoutExchange cacheInvalidationExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue).to(cacheInvalidationExchange);
     }
 
     /**
@@ -42,13 +78,35 @@ public class RabbitMqConfig {
     }
 
     /**
-     * Создает и возвращает очередь для ответов на публикацию.
+     * Создает очередь ответов на запросы ленты, принадлежащую только этому экземпляру приложения.
+     * Очередь эксклюзивная и удаляется вместе с соединением, поэтому ответы разным экземплярам не смешиваются.
      *
-     * @return Очередь с именем "postResponseQueue" и durable=false.
+     * @return Анонимная очередь с префиксом "feed.reply.".
      */
     @Bean
-    public Queue postResponseQueue() {
-        return new Queue("postResponseQueue", false);
+    public Queue feedReplyQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("feed.reply."));
+    }
+
+    /**
+     * Создает exchange событий ленты: новые посты публикуются с ключом "user.<id подписчика>".
+     *
+     * @return Topic exchange "feed.events".
+     */
+    @Bean
+    public TopicExchange feedEventsExchange() {
+        return new TopicExchange(FeedEventPublisher.EXCHANGE);
+    }
+
+    /**
+     * Создает очередь событий ленты этого экземпляра приложения.
+     * Привязки к exchange добавляются для пользователей, подключенных к экземпляру по WebSocket.
+     *
+     * @return Анонимная очередь с префиксом "feed.events.".
+     */
+    @Bean
+    public Queue feedEventsQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("feed.events."));
     }
 
     /**
@@ -94,20 +152,65 @@ public class RabbitMqConfig {
      *
      * @param connectionFactory Фабрика соединений, используемая для создания контейнера.
      * @param listenerAdapter   Адаптер для обработки сообщений.
+     * @param consumers         Количество параллельных обработчиков запросов.
      * @return Контейнер для прослушивания сообщений, настроенный на очередь "postRequestQueue".
      */
     @Bean
-    public SimpleMessageListenerContainer messageListenerContainer(final ConnectionFactory connectionFactory,
-                                                                   final MessageListenerAdapter listenerAdapter) {
+    public SimpleMessageListenerContainer messageListenerContainer(
+            final ConnectionFactory connectionFactory,
+            final MessageListenerAdapter listenerAdapter,
+            @Value("${feed.rpc.server-consumers:8}") final int consumers) {
         final SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
         container.setQueueNames("postRequestQueue");
         container.setMessageListener(listenerAdapter);
+        container.setConcurrentConsumers(consumers);
+        return container;
+    }
+
+    /**
+     * Создает и возвращает контейнер, принимающий ответы на запросы ленты и передающий их RPC-клиенту.
+     *
+     * @param connectionFactory Фабрика соединений, используемая для создания контейнера.
+     * @param feedReplyQueue    Очередь ответов этого экземпляра приложения.
+     * @param feedRpcClient     Клиент, сопоставляющий ответы с ожидающими запросами.
+     * @return Контейнер для прослушивания очереди ответов.
+     */
+    @Bean
+    public SimpleMessageListenerContainer feedReplyListenerContainer(
+            final ConnectionFactory connectionFactory,
+            @Qualifier("feedReplyQueue") final Queue feedReplyQueue,
+            final FeedRpcClient feedRpcClient) {
+        final SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setQueues(feedReplyQueue);
+        container.setMessageListener(feedRpcClient);
+        return container;
+    }
+
+    /**
+     * Создает и возвращает контейнер, принимающий события ленты для пользователей онлайн.
+     *
+     * @param connectionFactory  Фабрика соединений, используемая для создания контейнера.
+     * @param feedEventsQueue    Очередь событий этого экземпляра приложения.
+     * @param feedPushDispatcher Доставка событий в WebSocket-сессии.
+     * @return Контейнер для прослушивания очереди событий.
+     */
+    @Bean
+    public SimpleMessageListenerContainer feedEventsListenerContainer(
+            final ConnectionFactory connectionFactory,
+            @Qualifier("feedEventsQueue") final Queue feedEventsQueue,
+            final FeedPushDispatcher feedPushDispatcher) {
+        final SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setQueues(feedEventsQueue);
+        container.setMessageListener(feedPushDispatcher);
         return container;
     }
 
     /**
      * Создает и возвращает адаптер для обработки сообщений, используя метод "processPostRequest" из сервиса PostService.
+     * Результат метода адаптер отправляет в очередь из replyTo запроса с тем же correlationId.
      *
      * @param postService Сервис, который будет обрабатывать сообщения.
      * @return Адаптер для обработки сообщений.
@@ -148,7 +148,8 @@ public class ReplicationDataSourceConfig {
     @Bean
     public DataSource writeDataSource() {
         final HikariDataSource dataSource = new HikariDataSource();
-        dataSource.setJdbcUrl("jdbc:postgresql://localhost:5432/postgres");
+        // reWriteBatchedInserts склеивает JDBC batch вставок в многострочные INSERT
+        dataSource.setJdbcUrl("jdbc:postgresql://localhost:5432/postgres?reWriteBatchedInserts=true");
         dataSource.setUsername("postgres");
         dataSource.setPassword("pass");
         dataSource.setMaximumPoolSize(1000);
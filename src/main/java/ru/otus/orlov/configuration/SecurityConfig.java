@@ -42,11 +42,17 @@ public class SecurityConfig {
                 .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Настраивает авторизацию запросов
                 .authorizeHttpRequests((authorize) -> authorize
+                        // Самые читаемые ключи кэша - идентификаторы пользователей, только для администраторов
+                        .requestMatchers("/actuator/hotkeys", "/actuator/hotkeys/**").hasAuthority("ADMIN")
                         // Разрешает доступ к указанным путям без аутентификации
                         .requestMatchers(
                                 "/authenticate", "/login", "/login-fail", "/logout", "/forbidden",
-                                "/api/v1/login", "/api/v1/user/register", "/api/v1/logout", "/actuator/**"
+                                "/api/v1/login", "/api/v1/user/register", "/api/v1/logout", "/actuator/**",
+                                // Рукопожатие WebSocket, JWT проверяется в кадре STOMP CONNECT
+                                "/ws"
                         ).permitAll()
+                        // Просмотр и сброс кэша - только для администраторов
+                        .requestMatchers("/api/v1/cache/**").hasAuthority("ADMIN")
                         // Требует аутентификации для всех остальных запросов
                         .anyRequest()
                         .authenticated())
@@ -0,0 +1,57 @@
+package ru.otus.orlov.configuration;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import ru.otus.orlov.security.StompAuthChannelInterceptor;
+
+/**
+ * Конфигурация WebSocket/STOMP для доставки новых постов онлайн.
+ * Клиент подключается к /ws, передает JWT в заголовке Authorization кадра CONNECT
+ * и подписывается на /user/queue/feed.
+ */
+@RequiredArgsConstructor
+@EnableWebSocketMessageBroker
+@Configuration
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    /** Аутентификация STOMP-сессий */
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    /** Максимальный объем неотправленных данных одной сессии, байт */
+    @Value("${feed.ws.send-buffer-limit:524288}")
+    private int sendBufferLimit;
+
+    /** Максимальное время отправки одного сообщения сессии, мс */
+    @Value("${feed.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Override
+    public void registerStompEndpoints(final StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureMessageBroker(final MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/queue");
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+    }
+
+    @Override
+    public void configureClientInboundChannel(final ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    /** Медленный клиент, превысивший лимиты буфера или времени отправки, отключается */
+    @Override
+    public void configureWebSocketTransport(final WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferLimit);
+        registration.setSendTimeLimit(sendTimeLimitMs);
+    }
+}
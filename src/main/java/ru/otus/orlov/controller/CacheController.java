@@ -1,12 +1,21 @@
 package ru.otus.orlov.controller;
 
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.otus.orlov.dto.CacheStatsDto;
+import ru.otus.orlov.feed.FeedWindowCache;
 import ru.otus.orlov.services.CacheService;
 
-/** Контроллер для кэша */
+/** Контроллер для кэша: просмотр, сброс и статистика. Доступен только роли ADMIN */
 @RestController
 @RequiredArgsConstructor
 public class CacheController {
@@ -15,6 +24,65 @@ public class CacheController {
 
     @GetMapping("/api/v1/cache/{userId}")
     public Object getCachedFeed(@PathVariable final Long userId) {
-        return cacheService.getCachedValue("feed", userId);
+        return cacheService.getCachedValue(FeedWindowCache.CACHE_NAME, userId);
+    }
+
+    /**
+     * Статистика всех кэшей экземпляра: размер, попадания по уровням, вытеснения, длительность загрузок.
+     *
+     * @return статистика по каждому кэшу
+     */
+    @GetMapping("/api/v1/cache/stats")
+    public List<CacheStatsDto> getStats() {
+        return cacheService.getStats();
+    }
+
+    /**
+     * Значение из кэша.
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ
+     * @return значение или пустой ответ
+     */
+    @GetMapping("/api/v1/cache/{cacheName}/{key}")
+    public Object getCachedValue(@PathVariable final String cacheName, @PathVariable final Long key) {
+        return cacheService.getCachedValue(cacheName, key);
+    }
+
+    /**
+     * Самые часто читаемые ключи кэша экземпляра.
+     *
+     * @param cacheName имя кэша
+     * @param limit     сколько вернуть
+     * @return ключи, самые горячие первыми
+     */
+    @GetMapping("/api/v1/cache/{cacheName}/hottest")
+    public List<Object> getHottestKeys(@PathVariable final String cacheName,
+                                       @RequestParam(defaultValue = "20") final int limit) {
+        return cacheService.getHottestKeys(cacheName, limit);
+    }
+
+    /**
+     * Сбрасывает ключ на всех экземплярах.
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/api/v1/cache/{cacheName}/{key}")
+    public void evict(@PathVariable final String cacheName, @PathVariable final Long key) {
+        cacheService.evict(cacheName, List.of(key));
+    }
+
+    /**
+     * Сбрасывает пачку ключей на всех экземплярах.
+     *
+     * @param cacheName имя кэша
+     * @param keys      ключи
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping("/api/v1/cache/{cacheName}/evict")
+    public void evictAll(@PathVariable final String cacheName, @RequestBody final List<Long> keys) {
+        cacheService.evict(cacheName, keys);
     }
 }
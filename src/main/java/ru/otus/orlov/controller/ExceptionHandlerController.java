@@ -1,13 +1,19 @@
 package ru.otus.orlov.controller;
 
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import ru.otus.orlov.dto.ErrorDto;
+import ru.otus.orlov.exceptions.InvalidCursorException;
+import ru.otus.orlov.exceptions.InvalidPostException;
+import ru.otus.orlov.exceptions.InvalidSearchException;
 import ru.otus.orlov.exceptions.NotFoundException;
 import ru.otus.orlov.exceptions.RoleNotFoundException;
+import ru.otus.orlov.exceptions.TooManyIdsException;
 
 
 /**
@@ -58,6 +64,93 @@ public class ExceptionHandlerController {
         return getError(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    /**
+     * Обрабатывает исключение {@link InvalidCursorException}, которое возникает при поврежденном курсоре пагинации.
+     * Возвращает объект {@link ErrorDto} с информацией об ошибке и статусом HTTP 400 (Bad Request)
+     *
+     * @param ex Исключение {@link InvalidCursorException}
+     * @return Объект {@link ErrorDto}, содержащий информацию об ошибке
+     * @see InvalidCursorException
+     * @see HttpStatus#BAD_REQUEST
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ErrorDto handleInvalidCursor(final InvalidCursorException ex) {
+        log.error(ex.getMessage(), ex);
+        return getError(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение {@link InvalidPostException}, которое возникает при пустом или слишком длинном посте.
+     * Возвращает объект {@link ErrorDto} с информацией об ошибке и статусом HTTP 400 (Bad Request)
+     *
+     * @param ex Исключение {@link InvalidPostException}
+     * @return Объект {@link ErrorDto}, содержащий информацию об ошибке
+     * @see InvalidPostException
+     * @see HttpStatus#BAD_REQUEST
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidPostException.class)
+    public ErrorDto handleInvalidPost(final InvalidPostException ex) {
+        log.error(ex.getMessage(), ex);
+        return getError(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение {@link InvalidSearchException}, которое возникает, если параметры поиска
+     * не подходят выбранному режиму.
+     * Возвращает объект {@link ErrorDto} с информацией об ошибке и статусом HTTP 400 (Bad Request)
+     *
+     * @param ex Исключение {@link InvalidSearchException}
+     * @return Объект {@link ErrorDto}, содержащий информацию об ошибке
+     * @see InvalidSearchException
+     * @see HttpStatus#BAD_REQUEST
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidSearchException.class)
+    public ErrorDto handleInvalidSearch(final InvalidSearchException ex) {
+        log.error(ex.getMessage(), ex);
+        return getError(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение {@link TooManyIdsException}, которое возникает, если в пакетном запросе
+     * слишком много идентификаторов.
+     * Возвращает объект {@link ErrorDto} с информацией об ошибке и статусом HTTP 400 (Bad Request)
+     *
+     * @param ex Исключение {@link TooManyIdsException}
+     * @return Объект {@link ErrorDto}, содержащий информацию об ошибке
+     * @see TooManyIdsException
+     * @see HttpStatus#BAD_REQUEST
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(TooManyIdsException.class)
+    public ErrorDto handleTooManyIds(final TooManyIdsException ex) {
+        log.error(ex.getMessage(), ex);
+        return getError(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение {@link HandlerMethodValidationException}, которое возникает, если параметры
+     * запроса не прошли проверку ({@code @Min}, {@code @Max}).
+     * Возвращает объект {@link ErrorDto} с информацией об ошибке и статусом HTTP 400 (Bad Request)
+     *
+     * @param ex Исключение {@link HandlerMethodValidationException}
+     * @return Объект {@link ErrorDto}, содержащий информацию об ошибке
+     * @see HttpStatus#BAD_REQUEST
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ErrorDto handleInvalidParameters(final HandlerMethodValidationException ex) {
+        final String message = ex.getParameterValidationResults().stream()
+                .flatMap(result -> result.getResolvableErrors().stream()
+                        .map(error -> result.getMethodParameter().getParameterName() + ": "
+                                + error.getDefaultMessage()))
+                .collect(Collectors.joining("; "));
+        log.error(message, ex);
+        return getError(HttpStatus.BAD_REQUEST, message);
+    }
+
     /**
      * Обрабатывает все неперехваченные исключения.
      * Возвращает HTTP-ответ со статусом 500 (Internal Server Error) и сообщением об ошибке
@@ -1,14 +1,29 @@
 package ru.otus.orlov.controller;
 
-import java.util.HashSet;
-import java.util.Set;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.otus.orlov.cache.AccessHistory;
+import ru.otus.orlov.cache.HotKeys;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostCreateDto;
 import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.feed.FeedWindowCache;
 import ru.otus.orlov.services.PostService;
 
 @RestController
@@ -17,14 +32,92 @@ public class PostController {
     /** Сервис работы с постами */
     private final PostService postService;
 
+    /** История обращений к лентам для прогрева кэша */
+    private final AccessHistory accessHistory;
 
+    /** Горячие ключи кэша лент */
+    private final HotKeys hotKeys;
+
+    /**
+     * Лента пользователя от новых постов к старым.
+     * Список пишется в ответ потоково конвертером Jackson (JsonGenerator поверх потока ответа), порядок сохраняется.
+     *
+     * @param id   идентификатор пользователя
+     * @param page смещение от начала ленты, не меньше 0
+     * @param size размер страницы, от 1 до {@link PostService#MAX_PAGE_SIZE}
+     * @return посты страницы
+     */
     @GetMapping("/api/v1/post/feed/{id}")
-    public Set<Post> getFeed(
+    public CompletableFuture<List<Post>> getFeed(
+            @PathVariable("id") final Long id,
+            @RequestParam(defaultValue = "0") @Min(0) final int page,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(PostService.MAX_PAGE_SIZE) final int size
+    ) {
+        accessHistory.record(id);
+        hotKeys.record(FeedWindowCache.CACHE_NAME, id);
+        // Поток Tomcat освобождается, ответ допишется, когда придет страница ленты
+        return postService.getFeed(id, page, size)
+                .thenApply(PageImplDto::getContent);
+    }
+
+    /**
+     * Лента с курсорной пагинацией: выбирается, когда в запросе есть параметр cursor.
+     * Первая страница запрашивается с пустым курсором, следующие - с nextCursor из предыдущего ответа.
+     *
+     * @param id     идентификатор пользователя
+     * @param cursor курсор следующей страницы
+     * @param size   размер страницы
+     * @return посты и курсор следующей страницы
+     */
+    @GetMapping(value = "/api/v1/post/feed/{id}", params = "cursor")
+    public CursorPageDto<Post> getFeedByCursor(
             @PathVariable("id") final Long id,
-            @RequestParam(defaultValue = "0") final int page,
+            @RequestParam("cursor") final String cursor,
             @RequestParam(defaultValue = "50") final int size
     ) {
-        final PageImplDto<Post> feed = postService.getFeed(id, page, size);
-        return new HashSet<>(feed.getContent());
+        accessHistory.record(id);
+        hotKeys.record(FeedWindowCache.CACHE_NAME, id);
+        return postService.getFeedByCursor(id, cursor, size);
+    }
+
+    /**
+     * Создает пост от имени текущего пользователя.
+     * Ответ возвращается сразу после сохранения, лента подписчиков обновляется асинхронно.
+     *
+     * @param user текущий пользователь
+     * @param dto  контент поста
+     * @return созданный пост
+     */
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/api/v1/post")
+    public Post createPost(@AuthenticationPrincipal final UserDetails user, @RequestBody final PostCreateDto dto) {
+        return postService.createPost(user.getUsername(), dto);
+    }
+
+    /**
+     * Изменяет контент поста текущего пользователя.
+     *
+     * @param user текущий пользователь
+     * @param id   идентификатор поста
+     * @param dto  новый контент
+     * @return измененный пост
+     */
+    @PutMapping("/api/v1/post/{id}")
+    public Post updatePost(@AuthenticationPrincipal final UserDetails user,
+                           @PathVariable("id") final Long id,
+                           @RequestBody final PostCreateDto dto) {
+        return postService.updatePost(user.getUsername(), id, dto);
+    }
+
+    /**
+     * Удаляет пост текущего пользователя.
+     *
+     * @param user текущий пользователь
+     * @param id   идентификатор поста
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/api/v1/post/{id}")
+    public void deletePost(@AuthenticationPrincipal final UserDetails user, @PathVariable("id") final Long id) {
+        postService.deletePost(user.getUsername(), id);
     }
 }
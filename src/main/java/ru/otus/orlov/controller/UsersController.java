@@ -11,10 +11,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.otus.orlov.cache.HotKeys;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.UserCreateDto;
 import ru.otus.orlov.dto.UserDto;
-import ru.otus.orlov.entity.User;
+import ru.otus.orlov.dto.UserLookupDto;
+import ru.otus.orlov.dto.UserSearchDto;
+import ru.otus.orlov.search.SearchMode;
 import ru.otus.orlov.services.UserService;
+import ru.otus.orlov.services.UserServiceImpl;
 
 
 /**
@@ -38,6 +43,9 @@ public class UsersController {
      */
     private final UserService userService;
 
+    /** Горячие ключи кэша профилей */
+    private final HotKeys hotKeys;
+
 
     /**
      * Возвращает информацию о пользователе по его ID
@@ -51,9 +59,28 @@ public class UsersController {
      */
     @GetMapping("/api/v1/user/{id}")
     public UserDto getUserById(@PathVariable("id") final Long id) {
+        hotKeys.record(UserServiceImpl.CACHE_NAME, id);
         return userService.findById(id);
     }
 
+    /**
+     * Возвращает профили многих пользователей одним запросом - для ленты или списка друзей вместо запроса
+     * на каждого пользователя. Профили берутся из кэша, недостающие читаются из БД одним запросом по {@code IN}.
+     *
+     * @param ids идентификаторы пользователей через запятую, не больше {@code users.batch.max-ids}
+     * @return по элементу на каждый id в порядке запроса; у ненайденных found = false и user = null
+     * @see UserService#findAllByIds(List)
+     */
+    @GetMapping(value = "/api/v1/users", params = "ids")
+    public List<UserLookupDto> getUsersByIds(@RequestParam("ids") final List<Long> ids) {
+        for (final Long id : ids) {
+            if (id != null) {
+                hotKeys.record(UserServiceImpl.CACHE_NAME, id);
+            }
+        }
+        return userService.findAllByIds(ids);
+    }
+
     /**
      * Регистрирует нового пользователя
      *
@@ -77,17 +104,48 @@ public class UsersController {
      * Принимает параметры запроса "first_name" и "last_name" и возвращает список пользователей,
      * чьи имена и фамилии начинаются с указанных префиксов.
      * Результаты сортируются по идентификатору пользователя (id).
+     * Поиск идет по индексу в памяти приложения, без запросов к БД.
+     * С mode=TRIGRAM ищутся пользователи, чьи имена и фамилии содержат указанные строки без учета регистра
+     * или похожи на них (опечатки), - запросом к БД по GIN-индексам pg_trgm.
+     * Возвращается не больше limit первых пользователей; следующие страницы - через параметр cursor.
      *
      * @param firstName префикс имени для поиска (например, "Конст" для "Константин").
      * @param lastName  префикс фамилии для поиска (например, "Оси" для "Осипов").
-     * @return ResponseEntity со списком пользователей и статусом HTTP 200 (OK).
+     * @param mode      режим поиска: PREFIX (по умолчанию) или TRIGRAM.
+     * @param limit     сколько пользователей вернуть, не больше {@code search.max-limit}.
+     * @return ResponseEntity со списком id, имен и фамилий пользователей и статусом HTTP 200 (OK).
      */
     @GetMapping(value = "/api/v1/user/search", params = {"first_name", "last_name"})
-    public ResponseEntity<List<User>> searchUsers(
+    public ResponseEntity<List<UserSearchDto>> searchUsers(
             @RequestParam("first_name") final String firstName,
-            @RequestParam("last_name") final String lastName) {
+            @RequestParam("last_name") final String lastName,
+            @RequestParam(defaultValue = "PREFIX") final SearchMode mode,
+            @RequestParam(defaultValue = "50") final int limit) {
 
-        final List<User> users = userService.searchUsersByFirstNameAndLastName(firstName, lastName);
+        final List<UserSearchDto> users = userService.searchUsersByFirstNameAndLastName(firstName, lastName, mode,
+                null, limit).getContent();
         return ResponseEntity.ok(users);
     }
+
+    /**
+     * Поиск пользователей по префиксу имени и фамилии с курсорной пагинацией по id: выбирается, когда в запросе
+     * есть параметр cursor. Первая страница запрашивается с пустым курсором, следующие - с nextCursor
+     * из предыдущего ответа.
+     *
+     * @param firstName префикс имени для поиска.
+     * @param lastName  префикс фамилии для поиска.
+     * @param mode      режим поиска: PREFIX (по умолчанию) или TRIGRAM.
+     * @param cursor    курсор следующей страницы.
+     * @param limit     размер страницы, не больше {@code search.max-limit}.
+     * @return id, имена и фамилии пользователей страницы и курсор следующей страницы.
+     */
+    @GetMapping(value = "/api/v1/user/search", params = {"first_name", "last_name", "cursor"})
+    public CursorPageDto<UserSearchDto> searchUsersByCursor(
+            @RequestParam("first_name") final String firstName,
+            @RequestParam("last_name") final String lastName,
+            @RequestParam("cursor") final String cursor,
+            @RequestParam(defaultValue = "PREFIX") final SearchMode mode,
+            @RequestParam(defaultValue = "50") final int limit) {
+        return userService.searchUsersByFirstNameAndLastName(firstName, lastName, mode, cursor, limit);
+    }
 }
@@ -0,0 +1,15 @@
+package ru.otus.orlov.dto;
+
+import java.time.LocalDateTime;
+
+/** Проекция ссылки на пост вместе с автором, без содержимого поста */
+public interface AuthorPostRef {
+    /** Идентификатор автора */
+    Long getAuthorId();
+
+    /** Идентификатор поста */
+    Long getId();
+
+    /** Время создания поста */
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,24 @@
+package ru.otus.orlov.dto;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Сообщение о сбросе ключей кэша или о новых поколениях, рассылаемое всем экземплярам приложения */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheInvalidationDto {
+    /** Имя кэша */
+    private String cacheName;
+
+    /** Сбрасываемые ключи; null - сбросить кэш целиком */
+    private List<Long> keys;
+
+    /** Новые поколения по ключу поколения; если заданы, ключи кэша не сбрасываются */
+    private Map<String, Long> generations;
+}
@@ -0,0 +1,52 @@
+package ru.otus.orlov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Статистика кэша для подбора размера и времени жизни */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDto {
+    /** Имя кэша */
+    private String cacheName;
+
+    /** Примерное количество записей L1 */
+    private long estimatedSize;
+
+    /** Примерный размер записей L1 в куче, байт */
+    private long weightedSize;
+
+    /** Бюджет L1, байт */
+    private long maximum;
+
+    /** Попадания в L1 */
+    private long hitCount;
+
+    /** Промахи L1 */
+    private long missCount;
+
+    /** Доля попаданий в L1 */
+    private double hitRate;
+
+    /** Вытеснения из L1 по размеру или сроку жизни */
+    private long evictionCount;
+
+    /** Суммарный размер вытесненных записей, байт */
+    private long evictionWeight;
+
+    /** Попадания в L2 после промаха L1 */
+    private long sharedHitCount;
+
+    /** Промахи L2 */
+    private long sharedMissCount;
+
+    /** Загрузки по промаху */
+    private long loadCount;
+
+    /** Средняя длительность загрузки в миллисекундах */
+    private double averageLoadMillis;
+}
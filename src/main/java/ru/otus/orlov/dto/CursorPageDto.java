@@ -0,0 +1,25 @@
+package ru.otus.orlov.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Страница данных с курсорной (keyset) пагинацией.
+ * В отличие от {@link PageImplDto} не содержит общего количества элементов - его подсчет не выполняется.
+ *
+ * @param <T> Тип элементов, содержащихся на странице.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDto<T> {
+    /** Список элементов на текущей странице. */
+    private List<T> content;
+
+    /** Непрозрачный курсор следующей страницы, null - если страница последняя. */
+    private String nextCursor;
+}
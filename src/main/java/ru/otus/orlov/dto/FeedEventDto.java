@@ -0,0 +1,29 @@
+package ru.otus.orlov.dto;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Событие о новом посте для доставки подписчику онлайн */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedEventDto {
+    /** Идентификатор подписчика, которому адресовано событие */
+    private Long userId;
+
+    /** Идентификатор поста */
+    private Long postId;
+
+    /** Идентификатор автора */
+    private Long authorId;
+
+    /** Контент */
+    private String content;
+
+    /** Время создания поста */
+    private LocalDateTime createdAt;
+}
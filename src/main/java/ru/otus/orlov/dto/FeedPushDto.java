@@ -0,0 +1,20 @@
+package ru.otus.orlov.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Сообщение клиенту WebSocket: новые посты ленты */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedPushDto {
+    /** Новые посты от новых к старым */
+    private List<FeedEventDto> posts;
+
+    /** Сколько постов не доставлено из-за переполнения буфера; больше 0 - ленту стоит перечитать */
+    private int skipped;
+}
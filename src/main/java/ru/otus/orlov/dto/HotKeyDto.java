@@ -0,0 +1,22 @@
+package ru.otus.orlov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Частый ключ кэша */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class HotKeyDto {
+    /** Ключ */
+    private Long key;
+
+    /** Оценка числа обращений за текущий период сверху */
+    private long estimate;
+
+    /** Закреплен ли ключ в L1 */
+    private boolean pinned;
+}
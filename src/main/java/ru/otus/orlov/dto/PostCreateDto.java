@@ -0,0 +1,12 @@
+package ru.otus.orlov.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/** DTO для создания и изменения поста */
+@Setter
+@Getter
+public class PostCreateDto {
+    /** Контент поста */
+    private String content;
+}
@@ -0,0 +1,16 @@
+package ru.otus.orlov.dto;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Ссылка на пост: идентификатор и время создания, без содержимого */
+@Getter
+@AllArgsConstructor
+public class PostRefDto {
+    /** Идентификатор поста */
+    private Long id;
+
+    /** Время создания поста */
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,10 @@
+package ru.otus.orlov.dto;
+
+/** Проекция связи пользователя с другом из user_friends */
+public interface UserFriendRef {
+    /** Идентификатор пользователя */
+    Long getUserId();
+
+    /** Идентификатор друга */
+    Long getFriendId();
+}
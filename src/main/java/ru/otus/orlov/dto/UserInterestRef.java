@@ -0,0 +1,10 @@
+package ru.otus.orlov.dto;
+
+/** Проекция интереса пользователя: id пользователя и название интереса */
+public interface UserInterestRef {
+    /** Идентификатор пользователя */
+    Long getUserId();
+
+    /** Название интереса */
+    String getDescription();
+}
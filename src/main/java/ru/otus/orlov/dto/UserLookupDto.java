@@ -0,0 +1,22 @@
+package ru.otus.orlov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Результат поиска одного пользователя из пакетного запроса профилей */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserLookupDto {
+    /** Запрошенный идентификатор */
+    private Long id;
+
+    /** Найден ли пользователь */
+    private boolean found;
+
+    /** Профиль пользователя, null если не найден */
+    private UserDto user;
+}
@@ -0,0 +1,31 @@
+package ru.otus.orlov.dto;
+
+import java.util.Date;
+import ru.otus.orlov.customers.Gender;
+
+/** Проекция профиля пользователя: колонки users и название города, без коллекций и токена */
+public interface UserProfile {
+    /** Идентификатор пользователя */
+    Long getId();
+
+    /** Имя */
+    String getFirstName();
+
+    /** Фамилия */
+    String getLastName();
+
+    /** Дата рождения */
+    Date getBirthDate();
+
+    /** Пол */
+    Gender getGender();
+
+    /** Название города */
+    String getCity();
+
+    /** Email */
+    String getEmail();
+
+    /** Активный ли пользователь */
+    Boolean getIsActive();
+}
@@ -0,0 +1,22 @@
+package ru.otus.orlov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Пользователь в результатах поиска по префиксу имени и фамилии */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSearchDto {
+    /** Идентификатор пользователя */
+    private Long id;
+
+    /** Имя */
+    private String firstName;
+
+    /** Фамилия */
+    private String lastName;
+}
@@ -0,0 +1,13 @@
+package ru.otus.orlov.dto;
+
+/** Проекция строки поиска пользователей из нативного запроса: id, имя и фамилия */
+public interface UserSearchRow {
+    /** Идентификатор пользователя */
+    Long getId();
+
+    /** Имя */
+    String getFirstName();
+
+    /** Фамилия */
+    String getLastName();
+}
@@ -31,4 +31,8 @@ public class Post {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    /** Идентификатор автора */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
 }
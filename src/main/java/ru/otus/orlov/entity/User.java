@@ -119,7 +119,8 @@ public class User implements UserDetails {
 
     @Fetch(FetchMode.SUBSELECT)
     @OneToMany(targetEntity = Post.class, fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "user_id")
+    // Колонкой user_id владеет Post.userId, коллекция ее не пишет
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
     private Set<Post> posts = new HashSet<>();
 
     @Fetch(FetchMode.SUBSELECT)
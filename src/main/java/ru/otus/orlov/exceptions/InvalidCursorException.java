@@ -0,0 +1,17 @@
+package ru.otus.orlov.exceptions;
+
+/**
+ * Исключение, которое выбрасывается, если клиент передал поврежденный или чужой курсор пагинации.
+ *
+ * @see RuntimeException
+ */
+public class InvalidCursorException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param message Сообщение, описывающее причину возникновения исключения
+     */
+    public InvalidCursorException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.otus.orlov.exceptions;
+
+/**
+ * Исключение, которое выбрасывается, если контент поста пустой или длиннее допустимого.
+ *
+ * @see RuntimeException
+ */
+public class InvalidPostException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param message Сообщение, описывающее причину возникновения исключения
+     */
+    public InvalidPostException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.otus.orlov.exceptions;
+
+/**
+ * Исключение, которое выбрасывается, если параметры поиска пользователей не подходят выбранному режиму.
+ *
+ * @see RuntimeException
+ */
+public class InvalidSearchException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param message Сообщение, описывающее причину возникновения исключения
+     */
+    public InvalidSearchException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.otus.orlov.exceptions;
+
+/**
+ * Исключение, которое выбрасывается, если в пакетном запросе больше идентификаторов, чем разрешено.
+ *
+ * @see RuntimeException
+ */
+public class TooManyIdsException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param message Сообщение, описывающее причину возникновения исключения
+     */
+    public TooManyIdsException(final String message) {
+        super(message);
+    }
+}
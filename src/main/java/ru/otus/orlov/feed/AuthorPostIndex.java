@@ -0,0 +1,125 @@
+package ru.otus.orlov.feed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.AuthorPostRef;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.util.DateUtil;
+
+/**
+ * Индекс последних постов каждого автора в памяти приложения.
+ * Для автора хранится не больше {@code feed.index.author-capacity} постов за последние
+ * {@code feed.index.hot-window-days} дней, от новых к старым. Авторы загружаются из БД при первом обращении.
+ */
+@Slf4j
+@Component
+public class AuthorPostIndex {
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /** Максимальное количество постов одного автора в индексе */
+    private final int authorCapacity;
+
+    /** Глубина индекса по времени */
+    private final Duration hotWindow;
+
+    /** Посты авторов */
+    private final Cache<Long, FeedTimeline> authors;
+
+    public AuthorPostIndex(final PostRepository postRepository,
+                           @Value("${feed.index.author-capacity:200}") final int authorCapacity,
+                           @Value("${feed.index.hot-window-days:30}") final int hotWindowDays,
+                           @Value("${feed.index.max-authors:100000}") final long maxAuthors) {
+        this.postRepository = postRepository;
+        this.authorCapacity = authorCapacity;
+        this.hotWindow = Duration.ofDays(hotWindowDays);
+        this.authors = Caffeine.newBuilder()
+                .maximumSize(maxAuthors)
+                .build();
+    }
+
+    /**
+     * Возвращает индексы авторов, недостающие загружаются одним запросом.
+     *
+     * @param authorIds идентификаторы авторов
+     * @return индекс каждого автора, для авторов без постов - пустой
+     */
+    public Map<Long, FeedTimeline> get(final Collection<Long> authorIds) {
+        return authors.getAll(authorIds, this::load);
+    }
+
+    /**
+     * Добавляет новый пост в индекс автора, если автор уже загружен.
+     *
+     * @param authorId        идентификатор автора
+     * @param postId          идентификатор поста
+     * @param createdAtMillis время создания поста в миллисекундах
+     */
+    public void add(final Long authorId, final long postId, final long createdAtMillis) {
+        final FeedTimeline timeline = authors.getIfPresent(authorId);
+        if (timeline != null) {
+            timeline.push(postId, createdAtMillis);
+        }
+    }
+
+    /**
+     * Удаляет пост из индекса автора, если автор загружен.
+     *
+     * @param authorId идентификатор автора
+     * @param postId   идентификатор поста
+     */
+    public void remove(final Long authorId, final long postId) {
+        final FeedTimeline timeline = authors.getIfPresent(authorId);
+        if (timeline != null) {
+            timeline.remove(postId);
+        }
+    }
+
+    /** Сколько последних постов одного автора хранится в индексе */
+    public int authorCapacity() {
+        return authorCapacity;
+    }
+
+    /** Начало горячего окна в миллисекундах: посты старше читаются из БД */
+    public long cutoffMillis() {
+        return System.currentTimeMillis() - hotWindow.toMillis();
+    }
+
+    /** Удаляет из индекса посты, вышедшие за горячее окно */
+    @Scheduled(fixedDelayString = "${feed.index.trim-ms:600000}")
+    public void trim() {
+        final long cutoff = cutoffMillis();
+        long removed = 0;
+        for (final FeedTimeline timeline : authors.asMap().values()) {
+            removed += timeline.trimOlderThan(cutoff);
+        }
+        if (removed > 0) {
+            log.info("Из индекса постов удалено {} записей старше горячего окна", removed);
+        }
+    }
+
+    /** Загружает посты авторов за горячее окно */
+    private Map<Long, FeedTimeline> load(final Set<? extends Long> authorIds) {
+        final Map<Long, FeedTimeline> loaded = new HashMap<>(authorIds.size() * 2);
+        for (final Long authorId : authorIds) {
+            loaded.put(authorId, new FeedTimeline(authorCapacity));
+        }
+        final List<AuthorPostRef> refs = postRepository.findRecentPostRefsByAuthorIds(
+                List.copyOf(authorIds), LocalDateTime.now().minus(hotWindow), authorCapacity);
+        for (final AuthorPostRef ref : refs) {
+            loaded.get(ref.getAuthorId()).append(ref.getId(), DateUtil.asEpochMilli(ref.getCreatedAt()));
+        }
+        return loaded;
+    }
+}
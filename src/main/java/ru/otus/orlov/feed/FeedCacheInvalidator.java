@@ -0,0 +1,65 @@
+package ru.otus.orlov.feed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+
+/**
+ * Сброс закэшированных лент пользователей на всех экземплярах приложения.
+ * Идентификаторы сбрасываются пачками: одна команда к L2 и одно сообщение рассылки на пачку,
+ * а не по одному на подписчика. Ленты, содержащие посты автора, сбрасываются одним увеличением поколения
+ * автора, без перечисления подписчиков.
+ */
+@Component
+public class FeedCacheInvalidator {
+    /** Кэш лент */
+    private final TwoLevelCache cache;
+
+    /** Поколения авторов */
+    private final CacheGenerations cacheGenerations;
+
+    /** Сколько пользователей в одном сообщении */
+    private final int batchSize;
+
+    public FeedCacheInvalidator(final TwoLevelCacheManager cacheManager,
+                                final CacheGenerations cacheGenerations,
+                                @Value("${feed.fanout.invalidation-batch-size:500}") final int batchSize) {
+        this.cache = cacheManager.getCache(FeedWindowCache.CACHE_NAME);
+        this.cacheGenerations = cacheGenerations;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Сбрасывает закэшированные ленты, в которых есть посты автора: после изменения или удаления поста.
+     * Новый пост в такие ленты еще не входит, поэтому при публикации ленты сбрасываются по подписчикам.
+     *
+     * @param authorId идентификатор автора
+     */
+    public void invalidateAuthor(final Long authorId) {
+        cacheGenerations.incrementAuthor(authorId);
+    }
+
+    /**
+     * Сбрасывает закэшированные ленты пользователей.
+     *
+     * @param userIds идентификаторы пользователей
+     */
+    public void invalidate(final Collection<Long> userIds) {
+        List<Long> batch = new ArrayList<>(Math.min(batchSize, userIds.size()));
+        for (final Long userId : userIds) {
+            batch.add(userId);
+            if (batch.size() == batchSize) {
+                cache.evictAll(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            cache.evictAll(batch);
+        }
+    }
+}
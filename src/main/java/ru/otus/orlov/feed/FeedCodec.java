@@ -0,0 +1,78 @@
+package ru.otus.orlov.feed;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Сериализация запросов и ответов ленты, передаваемых через RabbitMQ.
+ * Reader и writer создаются один раз из общего {@link ObjectMapper} приложения: они неизменяемые
+ * и потокобезопасные, поэтому сериализаторы и модуль дат не строятся заново на каждое сообщение.
+ */
+@Component
+public class FeedCodec {
+    /** Чтение запроса ленты: [userId, offset, limit] */
+    private final ObjectReader requestReader;
+
+    /** Чтение страницы ленты */
+    private final ObjectReader pageReader;
+
+    /** Запись страницы ленты */
+    private final ObjectWriter pageWriter;
+
+    public FeedCodec(final ObjectMapper objectMapper) {
+        this.requestReader = objectMapper.readerFor(long[].class);
+        final TypeReference<PageImplDto<Post>> pageType = new TypeReference<>() {
+        };
+        this.pageReader = objectMapper.readerFor(pageType);
+        this.pageWriter = objectMapper.writerFor(pageType);
+    }
+
+    /**
+     * Читает запрос ленты.
+     *
+     * @param bytes тело сообщения
+     * @return [userId, offset, limit]
+     */
+    public long[] readRequest(final byte[] bytes) {
+        try {
+            return requestReader.readValue(bytes);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать запрос ленты", e);
+        }
+    }
+
+    /**
+     * Читает страницу ленты.
+     *
+     * @param bytes тело сообщения
+     * @return страница ленты
+     */
+    public PageImplDto<Post> readPage(final byte[] bytes) {
+        try {
+            return pageReader.readValue(bytes);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать страницу ленты", e);
+        }
+    }
+
+    /**
+     * Записывает страницу ленты.
+     *
+     * @param page страница ленты
+     * @return тело сообщения
+     */
+    public byte[] writePage(final PageImplDto<Post> page) {
+        try {
+            return pageWriter.writeValueAsBytes(page);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось записать страницу ленты", e);
+        }
+    }
+}
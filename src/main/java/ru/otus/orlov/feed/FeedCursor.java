@@ -0,0 +1,70 @@
+package ru.otus.orlov.feed;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import ru.otus.orlov.dto.CursorPageDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.exceptions.InvalidCursorException;
+
+/**
+ * Позиция в ленте для keyset-пагинации: (created_at, id) последнего отданного поста.
+ * Клиенту передается в виде непрозрачной base64url-строки.
+ *
+ * @param createdAt время создания последнего поста страницы
+ * @param id        идентификатор последнего поста страницы
+ */
+public record FeedCursor(LocalDateTime createdAt, long id) {
+    /** Разделитель полей в закодированном курсоре */
+    private static final char SEPARATOR = '|';
+
+    /** Курсор, указывающий на пост */
+    public static FeedCursor of(final Post post) {
+        return new FeedCursor(post.getCreatedAt(), post.getId());
+    }
+
+    /**
+     * Собирает страницу из строк, прочитанных с запасом в одну: если строк больше limit, лишняя отбрасывается,
+     * а курсор следующей страницы указывает на последний пост страницы.
+     *
+     * @param rows  посты от новых к старым, не больше limit + 1
+     * @param limit размер страницы, больше 0
+     * @return страница и курсор следующей страницы, null если страница последняя
+     */
+    public static CursorPageDto<Post> page(final List<Post> rows, final int limit) {
+        if (rows.size() <= limit) {
+            return new CursorPageDto<>(rows, null);
+        }
+        final List<Post> page = rows.subList(0, limit);
+        return new CursorPageDto<>(page, of(page.get(limit - 1)).encode());
+    }
+
+    /** Кодирует курсор в непрозрачную строку */
+    public String encode() {
+        final String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента.
+     *
+     * @param value закодированный курсор
+     * @return позиция в ленте
+     * @throws InvalidCursorException если курсор поврежден
+     */
+    public static FeedCursor decode(final String value) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            final int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Некорректный курсор ленты: " + value);
+            }
+            return new FeedCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (final IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Некорректный курсор ленты: " + value);
+        }
+    }
+}
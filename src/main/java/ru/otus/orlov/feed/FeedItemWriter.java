@@ -0,0 +1,311 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PostRefDto;
+
+/**
+ * Фоновая запись строк ленты в таблицу feed_items.
+ * Строки копятся в ограниченной очереди и пишутся одним JDBC batch до {@code feed.table.batch-size} строк.
+ * Строка поста или пользователя, удаленного, пока она ждала в очереди, пропускается. Если пачка все же
+ * не записалась, она повторяется по одной строке, чтобы ошибка одной строки не теряла строки других пользователей.
+ * После записи пачки закэшированные ленты затронутых пользователей сбрасываются.
+ * За строками первичного заполнения ленты в очереди идет отметка о заполнении (feed_items_backfilled),
+ * она пишется после строк и тем самым означает, что они уже в таблице.
+ * Создается только в режиме TABLE: в остальных режимах feed_items не пишется.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "feed.mode", havingValue = "table")
+public class FeedItemWriter {
+    /**
+     * Вставка строки ленты, повторная раскладка того же поста игнорируется. Строка вставляется, только если
+     * пост и пользователь еще существуют: иначе внешний ключ сорвал бы всю пачку.
+     */
+    private static final String INSERT_SQL = "INSERT INTO feed_items (user_id, created_at, post_id) " +
+            "SELECT u.id, ?, p.id FROM users u JOIN posts p ON p.id = ? WHERE u.id = ? ON CONFLICT DO NOTHING";
+
+    /** Отметка о заполнении ленты пользователя, если он еще существует */
+    private static final String BACKFILLED_SQL = "INSERT INTO feed_items_backfilled (user_id) " +
+            "SELECT id FROM users WHERE id = ? ON CONFLICT DO NOTHING";
+
+    /** JDBC Template для пакетной вставки */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Сброс закэшированных лент */
+    private final FeedCacheInvalidator feedCacheInvalidator;
+
+    /** Строки, ожидающие записи */
+    private final BlockingQueue<FeedItem> queue;
+
+    /** Пользователи, чье первичное заполнение ленты стоит в очереди */
+    private final Set<Long> backfilling = ConcurrentHashMap.newKeySet();
+
+    /** Максимальный размер пачки */
+    private final int batchSize;
+
+    /** Записанные строки */
+    private final Counter writtenItems;
+
+    /** Ошибки записи пачек */
+    private final Counter failedBatches;
+
+    /** Строки, которые не удалось записать и по одной */
+    private final Counter failedItems;
+
+    /** Размер записанных пачек */
+    private final DistributionSummary batchSizes;
+
+    /** Отставание записи строки ленты от создания поста, только для раскладки новых постов */
+    private final Timer lag;
+
+    /** Поток записи */
+    private final Thread worker;
+
+    /** Пока true, поток записи ждет новые строки */
+    private volatile boolean running = true;
+
+    public FeedItemWriter(final JdbcTemplate jdbcTemplate,
+                          final FeedCacheInvalidator feedCacheInvalidator,
+                          @Value("${feed.table.queue-capacity:100000}") final int queueCapacity,
+                          @Value("${feed.table.batch-size:1000}") final int batchSize,
+                          final MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.feedCacheInvalidator = feedCacheInvalidator;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.writtenItems = Counter.builder("feed.table.items.written")
+                .description("Строки, записанные в feed_items")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("feed.table.batches.failed")
+                .description("Пачки feed_items, не записанные одним batch и повторенные по одной строке")
+                .register(meterRegistry);
+        this.failedItems = Counter.builder("feed.table.items.failed")
+                .description("Строки feed_items, которые не удалось записать")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("feed.table.batch.size")
+                .description("Количество строк в одной пачке feed_items")
+                .register(meterRegistry);
+        this.lag = Timer.builder("feed.table.lag")
+                .description("Отставание записи строки feed_items от создания поста")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("feed.table.queue.size", queue, BlockingQueue::size)
+                .description("Строки feed_items, ожидающие записи")
+                .register(meterRegistry);
+        this.worker = new Thread(this::run, "feed-items-writer");
+        this.worker.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    /** Дописывает оставшиеся строки и останавливает поток записи */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Ставит в очередь строки ленты для всех подписчиков автора.
+     * Если очередь заполнена, вызывающий поток ждет освобождения места.
+     *
+     * @param userIds   идентификаторы подписчиков
+     * @param postId    идентификатор поста
+     * @param createdAt время создания поста
+     */
+    public void enqueue(final Collection<Long> userIds, final long postId, final LocalDateTime createdAt) {
+        for (final Long userId : userIds) {
+            put(new FeedItem(userId, createdAt, postId, FeedItemKind.FAN_OUT));
+        }
+    }
+
+    /**
+     * Ставит в очередь строки ленты одного пользователя (первичное заполнение) и отметку о заполнении.
+     * Повторное заполнение, пока прежнее еще в очереди, пропускается.
+     *
+     * @param userId идентификатор пользователя
+     * @param refs   посты ленты
+     */
+    public void enqueue(final Long userId, final Collection<PostRefDto> refs) {
+        if (!backfilling.add(userId)) {
+            return;
+        }
+        for (final PostRefDto ref : refs) {
+            put(new FeedItem(userId, ref.getCreatedAt(), ref.getId(), FeedItemKind.BACKFILL));
+        }
+        put(new FeedItem(userId, null, 0, FeedItemKind.BACKFILLED));
+    }
+
+    /** Стоит ли в очереди первичное заполнение ленты пользователя */
+    public boolean isBackfilling(final Long userId) {
+        return backfilling.contains(userId);
+    }
+
+    private void put(final FeedItem item) {
+        try {
+            queue.put(item);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Строка ленты пользователя {} для поста {} не поставлена в очередь", item.userId(), item.postId());
+        }
+    }
+
+    private void run() {
+        final List<FeedItem> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final FeedItem first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RuntimeException e) {
+                log.error("Не удалось обработать пачку из {} строк feed_items", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Пишет строки пачки, затем отметки о заполнении лент, идущие в очереди за своими строками */
+    private void write(final List<FeedItem> batch) {
+        final List<FeedItem> rows = new ArrayList<>(batch.size());
+        final List<Long> backfilled = new ArrayList<>();
+        for (final FeedItem item : batch) {
+            if (item.kind() == FeedItemKind.BACKFILLED) {
+                backfilled.add(item.userId());
+            } else {
+                rows.add(item);
+            }
+        }
+        if (!rows.isEmpty()) {
+            writeRows(rows);
+        }
+        markBackfilled(backfilled);
+    }
+
+    /**
+     * Пишет пачку одним JDBC batch, при ошибке - по одной строке, и сбрасывает кэш лент пользователей
+     * записанных строк.
+     */
+    private void writeRows(final List<FeedItem> batch) {
+        List<FeedItem> written = batch;
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                    final FeedItem item = batch.get(i);
+                    ps.setTimestamp(1, Timestamp.valueOf(item.createdAt()));
+                    ps.setLong(2, item.postId());
+                    ps.setLong(3, item.userId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+        } catch (final DataAccessException e) {
+            failedBatches.increment();
+            log.warn("Пачка из {} строк feed_items не записалась, пишем по одной: {}", batch.size(), e.getMessage());
+            written = writeOneByOne(batch);
+        }
+        writtenItems.increment(written.size());
+        batchSizes.record(batch.size());
+
+        final LocalDateTime now = LocalDateTime.now();
+        final Set<Long> userIds = new LinkedHashSet<>();
+        for (final FeedItem item : written) {
+            // Строки первичного заполнения несут время старых постов, их отставание ничего не говорит о записи
+            if (item.kind() == FeedItemKind.FAN_OUT) {
+                lag.record(Duration.between(item.createdAt(), now));
+            }
+            userIds.add(item.userId());
+        }
+        if (!userIds.isEmpty()) {
+            feedCacheInvalidator.invalidate(userIds);
+        }
+    }
+
+    /** Пишет строки по одной и возвращает записанные */
+    private List<FeedItem> writeOneByOne(final List<FeedItem> batch) {
+        final List<FeedItem> written = new ArrayList<>(batch.size());
+        for (final FeedItem item : batch) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, Timestamp.valueOf(item.createdAt()), item.postId(), item.userId());
+                written.add(item);
+            } catch (final DataAccessException e) {
+                failedItems.increment();
+                log.error("Не удалось записать строку feed_items пользователя {} для поста {}: {}",
+                        item.userId(), item.postId(), e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    /** Отмечает ленты пользователей заполненными; неудачная отметка повторится при следующем чтении ленты */
+    private void markBackfilled(final List<Long> userIds) {
+        for (final Long userId : userIds) {
+            try {
+                jdbcTemplate.update(BACKFILLED_SQL, userId);
+            } catch (final DataAccessException e) {
+                log.error("Не удалось отметить заполнение ленты пользователя {}: {}", userId, e.getMessage());
+            } finally {
+                backfilling.remove(userId);
+            }
+        }
+    }
+
+    /** Вид элемента очереди */
+    private enum FeedItemKind {
+        /** Строка раскладки нового поста */
+        FAN_OUT,
+        /** Строка первичного заполнения ленты */
+        BACKFILL,
+        /** Отметка о заполнении ленты, без поста */
+        BACKFILLED
+    }
+
+    /**
+     * Строка ленты или отметка о заполнении.
+     *
+     * @param kind вид элемента
+     */
+    private record FeedItem(long userId, LocalDateTime createdAt, long postId, FeedItemKind kind) {
+    }
+}
@@ -0,0 +1,37 @@
+package ru.otus.orlov.feed;
+
+/** Режим построения ленты постов */
+public enum FeedMode {
+    /** Лента собирается запросом к БД на каждый промах кэша (pull) */
+    PULL(false),
+
+    /** Лента материализуется в памяти при публикации поста (fan-out on write, push) */
+    PUSH(true),
+
+    /**
+     * Push для обычных авторов, pull для авторов с большим числом подписчиков:
+     * их посты не раскладываются по лентам, а подмешиваются при чтении
+     */
+    HYBRID(true),
+
+    /**
+     * Лента собирается слиянием индексов последних постов друзей в памяти приложения,
+     * старые посты читаются из БД
+     */
+    INDEX(false),
+
+    /** Лента хранится в таблице feed_items, строки пишутся в фоне при публикации поста */
+    TABLE(true);
+
+    /** Нужно ли раскладывать новый пост по лентам подписчиков */
+    private final boolean fanout;
+
+    FeedMode(final boolean fanout) {
+        this.fanout = fanout;
+    }
+
+    /** Нужно ли раскладывать новый пост по лентам подписчиков */
+    public boolean usesFanout() {
+        return fanout;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.otus.orlov.feed;
+
+import java.util.concurrent.CompletableFuture;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/** Загрузка страницы ленты из источника, минуя кэш */
+@FunctionalInterface
+public interface FeedPageLoader {
+    /**
+     * Загружает страницу ленты.
+     *
+     * @param userId идентификатор пользователя
+     * @param offset смещение от самого нового поста
+     * @param limit  размер страницы
+     * @return future со страницей ленты
+     */
+    CompletableFuture<PageImplDto<Post>> load(final Long userId, final int offset, final int limit);
+}
@@ -0,0 +1,33 @@
+package ru.otus.orlov.feed;
+
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/** Источник страницы ленты для выбранного {@link FeedMode} */
+public interface FeedSource {
+    /** Режим, который обслуживает источник */
+    FeedMode mode();
+
+    /**
+     * Загружает страницу ленты пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @param offset смещение
+     * @param limit  размер страницы
+     * @return страница постов друзей, от новых к старым
+     */
+    PageImplDto<Post> load(final Long userId, final int offset, final int limit);
+
+    /**
+     * Проверяет параметры страницы: запрос ленты может прийти не только из контроллера, но и через RabbitMQ.
+     *
+     * @param offset смещение, не меньше 0
+     * @param limit  размер страницы, больше 0
+     * @throws IllegalArgumentException если параметры вне допустимых значений
+     */
+    static void checkPage(final int offset, final int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Некорректная страница ленты: offset=" + offset + ", limit=" + limit);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.otus.orlov.feed;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/** Хранилище материализованных лент пользователей (fan-out on write) */
+public interface FeedStore {
+    /**
+     * Возвращает ленту пользователя, при отсутствии строит ее через loader.
+     *
+     * @param userId идентификатор пользователя
+     * @param loader построение ленты по данным БД
+     * @return материализованная лента
+     */
+    FeedTimeline get(final Long userId, final Function<Long, FeedTimeline> loader);
+
+    /**
+     * Добавляет пост в уже материализованные ленты подписчиков.
+     * Ленты, которых нет в хранилище, не создаются - они будут построены при первом чтении.
+     *
+     * @param followerIds     идентификаторы подписчиков автора
+     * @param postId          идентификатор поста
+     * @param createdAtMillis время создания поста в миллисекундах
+     * @return количество лент, в которые попал пост
+     */
+    int push(final Collection<Long> followerIds, final long postId, final long createdAtMillis);
+
+    /**
+     * Удаляет пост из материализованных лент подписчиков.
+     *
+     * @param followerIds идентификаторы подписчиков автора
+     * @param postId      идентификатор поста
+     * @return количество лент, из которых удален пост
+     */
+    int remove(final Collection<Long> followerIds, final long postId);
+
+    /** Создает пустую ленту с емкостью хранилища */
+    FeedTimeline newTimeline();
+}
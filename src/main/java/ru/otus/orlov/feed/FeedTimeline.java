@@ -0,0 +1,161 @@
+package ru.otus.orlov.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ограниченная материализованная лента одного пользователя.
+ * Хранит идентификаторы постов и время их создания в примитивных массивах,
+ * упорядоченных от новых к старым (по created_at, затем по id).
+ * Когда лента заполнена, самые старые записи вытесняются.
+ */
+public class FeedTimeline {
+    /** Идентификаторы постов, индекс 0 - самый новый */
+    private final long[] postIds;
+
+    /** Время создания постов в миллисекундах, параллельно {@link #postIds} */
+    private final long[] createdAt;
+
+    /** Текущее количество записей */
+    private int size;
+
+    public FeedTimeline(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость ленты должна быть положительной: " + capacity);
+        }
+        this.postIds = new long[capacity];
+        this.createdAt = new long[capacity];
+    }
+
+    /**
+     * Добавляет пост в ленту с сохранением порядка от новых к старым.
+     * Повторное добавление того же поста игнорируется.
+     *
+     * @param postId          идентификатор поста
+     * @param createdAtMillis время создания поста в миллисекундах
+     */
+    public synchronized void push(final long postId, final long createdAtMillis) {
+        int position = 0;
+        while (position < size && isNewer(createdAt[position], postIds[position], createdAtMillis, postId)) {
+            position++;
+        }
+        if (position < size && postIds[position] == postId) {
+            return;
+        }
+        if (position >= postIds.length) {
+            // Пост старше всего окна заполненной ленты
+            return;
+        }
+        final int tail = Math.min(size, postIds.length - 1);
+        System.arraycopy(postIds, position, postIds, position + 1, tail - position);
+        System.arraycopy(createdAt, position, createdAt, position + 1, tail - position);
+        postIds[position] = postId;
+        createdAt[position] = createdAtMillis;
+        size = Math.min(size + 1, postIds.length);
+    }
+
+    /**
+     * Дописывает пост в конец ленты. Используется при начальной загрузке,
+     * когда посты уже приходят отсортированными от новых к старым.
+     *
+     * @return false, если лента уже заполнена
+     */
+    public synchronized boolean append(final long postId, final long createdAtMillis) {
+        if (size == postIds.length) {
+            return false;
+        }
+        postIds[size] = postId;
+        createdAt[size] = createdAtMillis;
+        size++;
+        return true;
+    }
+
+    /**
+     * Удаляет пост из ленты.
+     *
+     * @return true, если пост был в ленте
+     */
+    public synchronized boolean remove(final long postId) {
+        for (int i = 0; i < size; i++) {
+            if (postIds[i] == postId) {
+                System.arraycopy(postIds, i + 1, postIds, i, size - i - 1);
+                System.arraycopy(createdAt, i + 1, createdAt, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает срез идентификаторов постов.
+     *
+     * @param offset смещение от самого нового поста
+     * @param limit  максимальное количество постов
+     * @return идентификаторы постов от новых к старым
+     */
+    public synchronized List<Long> slice(final int offset, final int limit) {
+        final int from = Math.max(offset, 0);
+        final int to = (int) Math.min((long) from + Math.max(limit, 0), size);
+        final List<Long> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(postIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Копирует самые новые записи ленты в переданные массивы.
+     *
+     * @param count          сколько записей скопировать
+     * @param postIdsOut     массив для идентификаторов постов
+     * @param createdAtOut   массив для времени создания постов
+     * @return сколько записей скопировано
+     */
+    public synchronized int copyHead(final int count, final long[] postIdsOut, final long[] createdAtOut) {
+        final int copied = Math.min(Math.min(count, size), Math.min(postIdsOut.length, createdAtOut.length));
+        System.arraycopy(postIds, 0, postIdsOut, 0, copied);
+        System.arraycopy(createdAt, 0, createdAtOut, 0, copied);
+        return copied;
+    }
+
+    /**
+     * Удаляет записи старше заданного момента.
+     *
+     * @param cutoffMillis граница в миллисекундах, записи с меньшим временем удаляются
+     * @return количество удаленных записей
+     */
+    public synchronized int trimOlderThan(final long cutoffMillis) {
+        int newSize = size;
+        while (newSize > 0 && createdAt[newSize - 1] < cutoffMillis) {
+            newSize--;
+        }
+        final int removed = size - newSize;
+        size = newSize;
+        return removed;
+    }
+
+    /**
+     * Время самой старой записи заполненной ленты. Посты старше нее могли быть вытеснены.
+     *
+     * @return время в миллисекундах или {@link Long#MIN_VALUE}, если лента не заполнена
+     */
+    public synchronized long evictionBoundary() {
+        return size == postIds.length ? createdAt[size - 1] : Long.MIN_VALUE;
+    }
+
+    /** Текущее количество записей в ленте */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Максимальное количество записей в ленте */
+    public int capacity() {
+        return postIds.length;
+    }
+
+    /** Запись (createdAt1, id1) новее записи (createdAt2, id2) */
+    private static boolean isNewer(final long createdAt1, final long id1, final long createdAt2, final long id2) {
+        return createdAt1 > createdAt2 || (createdAt1 == createdAt2 && id1 > id2);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.otus.orlov.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Кэш ленты, хранящий для каждого пользователя одно окно из N самых новых постов.
+ * Любая страница внутри окна вырезается из него, поэтому одна загрузка из БД обслуживает все страницы
+ * и размер страницы не влияет на содержимое кэша. Страницы за пределами окна читаются из источника
+ * напрямую и окно не вытесняют.
+ */
+@Slf4j
+@Component
+public class FeedWindowCache {
+    /** Имя кэша ленты */
+    public static final String CACHE_NAME = "feed";
+
+    /** Менеджер кэша */
+    private final TwoLevelCacheManager cacheManager;
+
+    /** Размер окна - сколько самых новых постов кэшируется на пользователя */
+    private final int windowSize;
+
+    public FeedWindowCache(final TwoLevelCacheManager cacheManager,
+                           @Value("${feed.cache.window-size:200}") final int windowSize) {
+        this.cacheManager = cacheManager;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Возвращает страницу ленты из окна пользователя, при промахе загружает окно целиком.
+     *
+     * @param userId идентификатор пользователя
+     * @param offset смещение от самого нового поста
+     * @param limit  размер страницы
+     * @param loader загрузка из источника
+     * @return future со страницей ленты
+     */
+    public CompletableFuture<PageImplDto<Post>> getPage(final Long userId,
+                                                        final int offset,
+                                                        final int limit,
+                                                        final FeedPageLoader loader) {
+        FeedSource.checkPage(offset, limit);
+        if ((long) offset + limit > windowSize) {
+            final PageImplDto<Post> cached = getWindow(userId);
+            if (cached != null && covers(cached, offset, limit)) {
+                return CompletableFuture.completedFuture(slice(cached, offset, limit));
+            }
+            // За пределами окна - идем в источник, горячее окно не трогаем
+            return loader.load(userId, offset, limit);
+        }
+        // Одновременные промахи по одному пользователю ждут одну загрузку окна,
+        // устаревшее по мягкому сроку окно отдается сразу и перезагружается в фоне
+        return cache().<PageImplDto<Post>>getAsync(userId, () -> loadWindow(userId, loader))
+                .thenApply(window -> slice(window, offset, limit));
+    }
+
+    /** Загружает окно из источника; в кэш его кладет {@link TwoLevelCache#getAsync} */
+    private CompletableFuture<PageImplDto<Post>> loadWindow(final Long userId, final FeedPageLoader loader) {
+        log.info("Окно ленты пользователя {} не найдено в кэше, загружаем {} постов", userId, windowSize);
+        return loader.load(userId, 0, windowSize)
+                .thenApply(window -> {
+                    // Окно уходит в общий кэш как JSON с типами, поэтому подсписки и обертки заменяются на ArrayList
+                    window.setContent(new ArrayList<>(window.getContent()));
+                    return window;
+                });
+    }
+
+    /** Закэшированное окно пользователя или null */
+    @SuppressWarnings("unchecked")
+    public PageImplDto<Post> getWindow(final Long userId) {
+        final Cache.ValueWrapper wrapper = cache().get(userId);
+        return wrapper == null ? null : (PageImplDto<Post>) wrapper.get();
+    }
+
+    /** Размер окна */
+    public int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Окно отвечает на страницу, если страница целиком внутри окна
+     * или окно уже содержит всю ленту пользователя.
+     */
+    private boolean covers(final PageImplDto<Post> window, final int offset, final int limit) {
+        return (long) offset + limit <= window.getContent().size()
+                || window.getTotalElements() <= window.getContent().size();
+    }
+
+    /** Вырезает страницу из окна */
+    private PageImplDto<Post> slice(final PageImplDto<Post> window, final int offset, final int limit) {
+        final List<Post> content = window.getContent();
+        final int from = Math.min(offset, content.size());
+        final int to = (int) Math.min((long) offset + limit, content.size());
+        final PageImplDto<Post> page = new PageImplDto<>();
+        page.setContent(content.subList(from, to));
+        page.setPageNumber(offset / limit);
+        page.setPageSize(limit);
+        page.setTotalElements(window.getTotalElements());
+        return page;
+    }
+
+    private TwoLevelCache cache() {
+        final TwoLevelCache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            throw new IllegalStateException("Кэш " + CACHE_NAME + " не настроен");
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.otus.orlov.feed;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.cache.OffHeapCodec;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Двоичный формат окна ленты для хранения вне кучи.
+ * Заголовок - общее число постов, номер и размер страницы, число постов в окне; затем для каждого поста
+ * идентификатор, автор, момент создания (секунды и наносекунды) и контент в UTF-8 с длиной.
+ * Пост занимает 32 байта плюс контент - в несколько раз меньше, чем JSON с типами в L2.
+ */
+@Component
+public class FeedWindowCodec implements OffHeapCodec {
+    /** Заголовок: totalElements, pageNumber, pageSize, количество постов */
+    private static final int HEADER_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    /** Поля поста без контента: id, userId, секунды и наносекунды created_at, длина контента */
+    private static final int POST_FIXED_BYTES = 3 * Long.BYTES + 2 * Integer.BYTES;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(final Object value) {
+        final PageImplDto<Post> window = (PageImplDto<Post>) value;
+        final List<Post> posts = window.getContent();
+        final byte[][] contents = new byte[posts.size()][];
+        int size = HEADER_BYTES;
+        for (int i = 0; i < posts.size(); i++) {
+            contents[i] = posts.get(i).getContent().getBytes(StandardCharsets.UTF_8);
+            size += POST_FIXED_BYTES + contents[i].length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size)
+                .putLong(window.getTotalElements())
+                .putInt(window.getPageNumber())
+                .putInt(window.getPageSize())
+                .putInt(posts.size());
+        for (int i = 0; i < posts.size(); i++) {
+            final Post post = posts.get(i);
+            final LocalDateTime createdAt = post.getCreatedAt();
+            buffer.putLong(post.getId())
+                    .putLong(post.getUserId())
+                    .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(createdAt.getNano())
+                    .putInt(contents[i].length)
+                    .put(contents[i]);
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public PageImplDto<Post> decode(final byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final PageImplDto<Post> window = new PageImplDto<>();
+        window.setTotalElements(buffer.getLong());
+        window.setPageNumber(buffer.getInt());
+        window.setPageSize(buffer.getInt());
+        final int count = buffer.getInt();
+        final List<Post> posts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final long id = buffer.getLong();
+            final long userId = buffer.getLong();
+            final LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(),
+                    ZoneOffset.UTC);
+            final byte[] content = new byte[buffer.getInt()];
+            buffer.get(content);
+            posts.add(new Post(id, new String(content, StandardCharsets.UTF_8), createdAt, userId));
+        }
+        window.setContent(posts);
+        return window;
+    }
+}
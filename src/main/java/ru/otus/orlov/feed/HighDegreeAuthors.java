@@ -0,0 +1,85 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.repositories.UserRepository;
+
+/**
+ * Авторы, у которых подписчиков больше порога {@code feed.hybrid.follower-threshold}.
+ * В режиме {@link FeedMode#HYBRID} их посты не раскладываются по лентам, а подмешиваются при чтении.
+ * Множество периодически пересчитывается по таблице user_friends.
+ */
+@Slf4j
+@Component
+public class HighDegreeAuthors {
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Режим построения ленты */
+    private final FeedMode feedMode;
+
+    /** Порог числа подписчиков */
+    private final long threshold;
+
+    /** Текущее множество авторов, заменяется целиком при пересчете */
+    private volatile Set<Long> authorIds = Set.of();
+
+    public HighDegreeAuthors(final UserRepository userRepository,
+                             @Value("${feed.mode:PULL}") final FeedMode feedMode,
+                             @Value("${feed.hybrid.follower-threshold:1000}") final long threshold,
+                             final MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.feedMode = feedMode;
+        this.threshold = threshold;
+        Gauge.builder("feed.hybrid.follower.threshold", () -> this.threshold)
+                .description("Порог подписчиков, выше которого автор читается через pull")
+                .register(meterRegistry);
+        Gauge.builder("feed.hybrid.high.degree.authors", this, authors -> authors.authorIds.size())
+                .description("Авторы, чьи посты подмешиваются в ленту при чтении")
+                .register(meterRegistry);
+    }
+
+    /** Пересчитывает множество авторов с большим числом подписчиков */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${feed.hybrid.refresh-ms:300000}")
+    public void refresh() {
+        if (feedMode != FeedMode.HYBRID) {
+            return;
+        }
+        final List<Long> ids = userRepository.findHighDegreeUserIds(threshold);
+        authorIds = Set.copyOf(ids);
+        log.info("Авторов с числом подписчиков больше {}: {}", threshold, ids.size());
+    }
+
+    /** Есть ли у автора подписчиков больше порога */
+    public boolean contains(final Long authorId) {
+        return authorIds.contains(authorId);
+    }
+
+    /**
+     * Разделяет авторов на читаемых через pull (высокая степень) и остальных.
+     *
+     * @param friendIds все авторы, на которых подписан пользователь
+     * @param regular   сюда попадают обычные авторы
+     * @return авторы с большим числом подписчиков
+     */
+    public Set<Long> split(final Collection<Long> friendIds, final Collection<Long> regular) {
+        final Set<Long> current = authorIds;
+        final Set<Long> highDegree = new HashSet<>();
+        for (final Long friendId : friendIds) {
+            if (current.contains(friendId)) {
+                highDegree.add(friendId);
+            } else {
+                regular.add(friendId);
+            }
+        }
+        return highDegree;
+    }
+}
@@ -0,0 +1,238 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostRefDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.DateUtil;
+import ru.otus.orlov.util.OffsetPageRequest;
+
+/**
+ * Гибридная лента: посты обычных авторов читаются из материализованной ленты,
+ * посты авторов с большим числом подписчиков ({@link HighDegreeAuthors}) запрашиваются при чтении
+ * и сливаются с ней по времени создания.
+ */
+@Slf4j
+@Component
+public class HybridFeedSource implements FeedSource {
+    /** Хранилище материализованных лент */
+    private final FeedStore feedStore;
+
+    /** Загрузка постов по идентификаторам */
+    private final PostHydrator postHydrator;
+
+    /** Построение ленты по данным БД */
+    private final TimelineMaterializer timelineMaterializer;
+
+    /** Авторы, читаемые через pull */
+    private final HighDegreeAuthors highDegreeAuthors;
+
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Чтения только из материализованной ленты */
+    private final Counter pushReads;
+
+    /** Чтения со слиянием с постами авторов с большим числом подписчиков */
+    private final Counter mergeReads;
+
+    /** Чтения страниц глубже материализованной ленты и окна подмешивания или границы их полноты - запросом к БД */
+    private final Counter deepReads;
+
+    /** Сколько самых новых постов авторов с большим числом подписчиков подмешивается в ленту */
+    private final int pullWindow;
+
+    /** Сколько авторов подмешивается в одно чтение */
+    private final DistributionSummary pulledAuthors;
+
+    public HybridFeedSource(final FeedStore feedStore,
+                            final PostHydrator postHydrator,
+                            final TimelineMaterializer timelineMaterializer,
+                            final HighDegreeAuthors highDegreeAuthors,
+                            final PostRepository postRepository,
+                            final UserRepository userRepository,
+                            final MeterRegistry meterRegistry,
+                            @Value("${feed.hybrid.pull-window:200}") final int pullWindow) {
+        this.feedStore = feedStore;
+        this.postHydrator = postHydrator;
+        this.timelineMaterializer = timelineMaterializer;
+        this.highDegreeAuthors = highDegreeAuthors;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.pullWindow = pullWindow;
+        this.pushReads = Counter.builder("feed.hybrid.reads")
+                .description("Чтения гибридной ленты по пути")
+                .tag("path", "push")
+                .register(meterRegistry);
+        this.mergeReads = Counter.builder("feed.hybrid.reads")
+                .description("Чтения гибридной ленты по пути")
+                .tag("path", "merge")
+                .register(meterRegistry);
+        this.deepReads = Counter.builder("feed.hybrid.reads")
+                .description("Чтения гибридной ленты по пути")
+                .tag("path", "db")
+                .register(meterRegistry);
+        this.pulledAuthors = DistributionSummary.builder("feed.hybrid.pulled.authors")
+                .description("Авторы с большим числом подписчиков, подмешанные в одно чтение")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public FeedMode mode() {
+        return FeedMode.HYBRID;
+    }
+
+    @Override
+    public PageImplDto<Post> load(final Long userId, final int offset, final int limit) {
+        FeedSource.checkPage(offset, limit);
+        final List<Long> regular = new ArrayList<>();
+        final Set<Long> friendIds = userRepository.findFriendIdsByUserId(userId);
+        final Set<Long> highDegree = highDegreeAuthors.split(friendIds, regular);
+        final FeedTimeline timeline = feedStore.get(userId, id -> materialize(id, regular));
+
+        final PageImplDto<Post> dto = new PageImplDto<>();
+        dto.setPageNumber(offset / limit);
+        dto.setPageSize(limit);
+        final long needed = (long) offset + limit;
+        if (needed > (long) timeline.capacity() + (highDegree.isEmpty() ? 0 : pullWindow)) {
+            // Материализованная лента хранит только capacity последних постов: глубже страница читается из БД
+            return loadFromDatabase(dto, friendIds, offset, limit);
+        }
+
+        if (highDegree.isEmpty()) {
+            pushReads.increment();
+            dto.setContent(postHydrator.hydrate(timeline.slice(offset, limit)));
+            // Заполненная лента хранит только capacity последних постов: размер ленты - нижняя граница
+            dto.setTotalElements(timeline.size());
+            return dto;
+        }
+
+        mergeReads.increment();
+        pulledAuthors.record(highDegree.size());
+        // На один пост больше страницы, чтобы понять, есть ли следующая
+        final int pushedSize = (int) Math.min(needed + 1, timeline.size());
+        final long[] pushedIds = new long[pushedSize];
+        final long[] pushedCreatedAt = new long[pushedSize];
+        final int pushedCount = timeline.copyHead(pushedSize, pushedIds, pushedCreatedAt);
+        final int pullLimit = (int) Math.min(needed + 1, pullWindow);
+        final List<PostRefDto> pulled = postRepository
+                .findPostRefsByAuthorIds(highDegree, PageRequest.of(0, pullLimit));
+
+        // Граница полноты: старше самой старой записи заполненной или скопированной не целиком ленты
+        // и старше самого старого подмешанного поста, если подмешивание обрезано окном, посты могут отсутствовать
+        long boundary = timeline.evictionBoundary();
+        if (pushedCount > 0 && pushedCount < timeline.size()) {
+            boundary = Math.max(boundary, pushedCreatedAt[pushedCount - 1]);
+        }
+        if (!pulled.isEmpty() && pulled.size() >= pullLimit) {
+            boundary = Math.max(boundary, DateUtil.asEpochMilli(pulled.get(pulled.size() - 1).getCreatedAt()));
+        }
+        final Optional<List<Long>> postIds = merge(pushedIds, pushedCreatedAt, pushedCount, pulled, offset, limit,
+                boundary);
+        if (postIds.isEmpty()) {
+            // Страница пересекает границу полноты: она читается из БД
+            return loadFromDatabase(dto, friendIds, offset, limit);
+        }
+        final List<Long> ids = postIds.get();
+        final boolean hasNext = ids.size() > limit || boundary != Long.MIN_VALUE;
+        final List<Long> page = ids.size() > limit ? ids.subList(0, limit) : ids;
+        dto.setContent(postHydrator.hydrate(page));
+        // Без COUNT: нижняя граница - offset, посты страницы и один пост, если есть следующая
+        dto.setTotalElements((long) offset + page.size() + (hasNext ? 1 : 0));
+        return dto;
+    }
+
+    /** Страница ленты запросом к БД по постам всех друзей */
+    private PageImplDto<Post> loadFromDatabase(final PageImplDto<Post> dto, final Set<Long> friendIds,
+                                               final int offset, final int limit) {
+        deepReads.increment();
+        final PageImpl<Post> posts = postRepository
+                .findPostsByFriendIds(friendIds, new OffsetPageRequest(offset, limit));
+        dto.setContent(posts.getContent());
+        dto.setTotalElements(posts.getTotalElements());
+        return dto;
+    }
+
+    /** Строит ленту пользователя только по обычным авторам */
+    private FeedTimeline materialize(final Long userId, final List<Long> regular) {
+        log.info("Материализуем гибридную ленту пользователя с id {}", userId);
+        return timelineMaterializer.materialize(regular);
+    }
+
+    /**
+     * Сливает две упорядоченные от новых к старым последовательности и возвращает страницу и, если он есть,
+     * первый пост следующей страницы. Пост, попавший в обе последовательности (автор пересек порог),
+     * учитывается один раз. Посты старше границы полноты могут отсутствовать в обеих последовательностях,
+     * поэтому страница, которая заходит за границу или не набирается до конца при заданной границе,
+     * слиянием не обслуживается.
+     *
+     * @param pushedIds       идентификаторы постов материализованной ленты
+     * @param pushedCreatedAt время создания постов материализованной ленты, мс
+     * @param pushedCount     количество записей материализованной ленты
+     * @param pulled          посты авторов с большим числом подписчиков
+     * @param offset          смещение страницы
+     * @param limit           размер страницы
+     * @param boundary        граница полноты, мс; {@link Long#MIN_VALUE} - обе последовательности полные
+     * @return до limit + 1 идентификаторов постов или пустой Optional, если страницу нужно читать из БД
+     */
+    static Optional<List<Long>> merge(final long[] pushedIds, final long[] pushedCreatedAt, final int pushedCount,
+                                      final List<PostRefDto> pulled, final int offset, final int limit,
+                                      final long boundary) {
+        final long needed = (long) offset + limit;
+        final List<Long> page = new ArrayList<>(limit + 1);
+        final Set<Long> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        long position = 0;
+        while (position <= needed && (i < pushedCount || j < pulled.size())) {
+            final long id;
+            final long createdAt;
+            if (j >= pulled.size()) {
+                createdAt = pushedCreatedAt[i];
+                id = pushedIds[i++];
+            } else {
+                final PostRefDto ref = pulled.get(j);
+                final long pulledCreatedAt = DateUtil.asEpochMilli(ref.getCreatedAt());
+                if (i < pushedCount && (pushedCreatedAt[i] > pulledCreatedAt
+                        || pushedCreatedAt[i] == pulledCreatedAt && pushedIds[i] > ref.getId())) {
+                    createdAt = pushedCreatedAt[i];
+                    id = pushedIds[i++];
+                } else {
+                    createdAt = pulledCreatedAt;
+                    id = ref.getId();
+                    j++;
+                }
+            }
+            if (createdAt < boundary) {
+                // За границей полноты: страница неполна, а для поста следующей страницы достаточно знать,
+                // что более старые посты есть
+                return position < needed ? Optional.empty() : Optional.of(page);
+            }
+            if (!seen.add(id)) {
+                continue;
+            }
+            if (position++ >= offset) {
+                page.add(id);
+            }
+        }
+        // Последовательности кончились до конца страницы, а более старые посты обрезаны границей
+        return position < needed && boundary != Long.MIN_VALUE ? Optional.empty() : Optional.of(page);
+    }
+}
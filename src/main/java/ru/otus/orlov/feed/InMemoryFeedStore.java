@@ -0,0 +1,105 @@
+package ru.otus.orlov.feed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Хранилище лент в памяти приложения.
+ * Количество лент ограничено, редко читаемые ленты вытесняются и строятся заново при следующем чтении.
+ * Пост, закоммиченный после запроса построения ленты, но до ее установки в хранилище, не попал бы ни в снимок,
+ * ни в ленту при раскладке. Поэтому раскладка в строящуюся ленту копится и повторяется после установки.
+ */
+@Component
+public class InMemoryFeedStore implements FeedStore {
+    /** Максимальное количество постов в одной ленте */
+    private final int capacity;
+
+    /** Ленты пользователей */
+    private final Cache<Long, FeedTimeline> timelines;
+
+    /** Посты, разложенные в ленты, которые сейчас строятся, по идентификатору пользователя */
+    private final Map<Long, Queue<PendingPush>> pending = new ConcurrentHashMap<>();
+
+    public InMemoryFeedStore(@Value("${feed.push.capacity:200}") final int capacity,
+                             @Value("${feed.push.max-users:50000}") final long maxUsers) {
+        this.capacity = capacity;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    @Override
+    public FeedTimeline get(final Long userId, final Function<Long, FeedTimeline> loader) {
+        final FeedTimeline existing = timelines.getIfPresent(userId);
+        if (existing != null) {
+            return existing;
+        }
+        // Очередь заводится до запроса построения: раскладка, не нашедшая ленту, попадет либо в снимок, либо сюда
+        final Queue<PendingPush> pushes = pending.computeIfAbsent(userId, id -> new ConcurrentLinkedQueue<>());
+        try {
+            final FeedTimeline timeline = timelines.get(userId, loader);
+            for (final PendingPush push : pushes) {
+                timeline.push(push.postId(), push.createdAtMillis());
+            }
+            return timeline;
+        } finally {
+            pending.remove(userId, pushes);
+        }
+    }
+
+    /**
+     * Лента, которая строится, получает пост в очередь. После постановки в очередь лента проверяется еще раз:
+     * если ее уже установили, пост добавляется сразу, повторное добавление при разборе очереди игнорируется.
+     */
+    @Override
+    public int push(final Collection<Long> followerIds, final long postId, final long createdAtMillis) {
+        int delivered = 0;
+        for (final Long followerId : followerIds) {
+            FeedTimeline timeline = timelines.getIfPresent(followerId);
+            if (timeline == null) {
+                final Queue<PendingPush> pushes = pending.get(followerId);
+                if (pushes != null) {
+                    pushes.add(new PendingPush(postId, createdAtMillis));
+                }
+                // Очередь снимается только после установки ленты, поэтому без очереди лента уже видна
+                // или еще не начала строиться и получит пост из БД
+                timeline = timelines.getIfPresent(followerId);
+                if (timeline == null) {
+                    continue;
+                }
+            }
+            timeline.push(postId, createdAtMillis);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    @Override
+    public int remove(final Collection<Long> followerIds, final long postId) {
+        int removed = 0;
+        for (final Long followerId : followerIds) {
+            final FeedTimeline timeline = timelines.getIfPresent(followerId);
+            if (timeline != null && timeline.remove(postId)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public FeedTimeline newTimeline() {
+        return new FeedTimeline(capacity);
+    }
+
+    /** Пост, разложенный в ленту, пока она строилась */
+    private record PendingPush(long postId, long createdAtMillis) {
+    }
+}
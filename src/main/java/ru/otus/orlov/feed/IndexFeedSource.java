@@ -0,0 +1,191 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.OffsetPageRequest;
+
+/**
+ * Лента собирается k-way слиянием индексов последних постов друзей ({@link AuthorPostIndex}).
+ * Если страница выходит за горячее окно индекса, она читается запросом к БД, как в {@link PullFeedSource}.
+ */
+@Component
+public class IndexFeedSource implements FeedSource {
+    /** Индекс последних постов авторов */
+    private final AuthorPostIndex authorPostIndex;
+
+    /** Загрузка постов по идентификаторам */
+    private final PostHydrator postHydrator;
+
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Страницы, собранные из индекса */
+    private final Counter indexReads;
+
+    /** Страницы, прочитанные из БД */
+    private final Counter fallbackReads;
+
+    public IndexFeedSource(final AuthorPostIndex authorPostIndex,
+                           final PostHydrator postHydrator,
+                           final PostRepository postRepository,
+                           final UserRepository userRepository,
+                           final MeterRegistry meterRegistry) {
+        this.authorPostIndex = authorPostIndex;
+        this.postHydrator = postHydrator;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.indexReads = Counter.builder("feed.index.reads")
+                .description("Чтения ленты в режиме INDEX по источнику")
+                .tag("source", "index")
+                .register(meterRegistry);
+        this.fallbackReads = Counter.builder("feed.index.reads")
+                .description("Чтения ленты в режиме INDEX по источнику")
+                .tag("source", "db")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public FeedMode mode() {
+        return FeedMode.INDEX;
+    }
+
+    @Override
+    public PageImplDto<Post> load(final Long userId, final int offset, final int limit) {
+        FeedSource.checkPage(offset, limit);
+        final Set<Long> friendIds = userRepository.findFriendIdsByUserId(userId);
+        final PageImplDto<Post> dto = new PageImplDto<>();
+        dto.setPageNumber(offset / limit);
+        dto.setPageSize(limit);
+        if (friendIds.isEmpty()) {
+            dto.setContent(List.of());
+            return dto;
+        }
+        // Страница глубже, чем индекс может хранить для всех друзей вместе, - сразу в БД, не загружая индекс
+        final boolean beyondIndex = (long) offset + limit > (long) friendIds.size() * authorPostIndex.authorCapacity();
+        final Map<Long, FeedTimeline> timelines = beyondIndex ? Map.of() : authorPostIndex.get(friendIds);
+        final Optional<List<Long>> postIds = beyondIndex
+                ? Optional.empty()
+                : merge(timelines.values(), offset, limit, authorPostIndex.cutoffMillis());
+        if (postIds.isPresent()) {
+            indexReads.increment();
+            dto.setContent(postHydrator.hydrate(postIds.get()));
+            dto.setTotalElements(timelines.values().stream().mapToLong(FeedTimeline::size).sum());
+            return dto;
+        }
+        fallbackReads.increment();
+        final PageImpl<Post> posts = postRepository
+                .findPostsByFriendIds(friendIds, new OffsetPageRequest(offset, limit));
+        dto.setContent(posts.getContent());
+        dto.setTotalElements(posts.getTotalElements());
+        return dto;
+    }
+
+    /**
+     * Сливает индексы авторов от новых постов к старым с помощью кучи по головам индексов.
+     * Слияние останавливается, как только набрано offset + limit постов. От каждого автора копируется не больше
+     * min(offset + limit, размер его индекса) записей, пустые индексы пропускаются.
+     * Посты старше границы индекса (начала горячего окна или самой старой записи заполненного индекса автора)
+     * могут быть неполными, поэтому такая страница индексом не обслуживается.
+     * Если ни один индекс автора не заполнен, индексы содержат всю ленту за горячее окно: страница, на которой
+     * они кончились, отдается из индекса короче limit или пустой, без запроса к БД.
+     *
+     * @param timelines    индексы авторов
+     * @param offset       смещение страницы
+     * @param limit        размер страницы
+     * @param cutoffMillis начало горячего окна, мс
+     * @return идентификаторы постов страницы или пустой Optional, если страницу нужно читать из БД
+     */
+    static Optional<List<Long>> merge(final Collection<FeedTimeline> timelines, final int offset, final int limit,
+                                      final long cutoffMillis) {
+        final long needed = (long) offset + limit;
+        long available = 0;
+        long boundary = cutoffMillis;
+        boolean evicted = false;
+        for (final FeedTimeline timeline : timelines) {
+            available += timeline.size();
+            final long evictionBoundary = timeline.evictionBoundary();
+            evicted |= evictionBoundary != Long.MIN_VALUE;
+            boundary = Math.max(boundary, evictionBoundary);
+        }
+        if (available < needed && evicted) {
+            // Страница глубже индексов, а вытесненные посты заполненного индекса есть только в БД
+            return Optional.empty();
+        }
+        if (available <= offset) {
+            // Лента за горячее окно кончилась раньше страницы
+            return Optional.of(List.of());
+        }
+        final PriorityQueue<Head> heap = new PriorityQueue<>(Math.max(timelines.size(), 1));
+        for (final FeedTimeline timeline : timelines) {
+            final int size = (int) Math.min(needed, timeline.size());
+            if (size == 0) {
+                continue;
+            }
+            final Head head = new Head(size);
+            head.count = timeline.copyHead(size, head.postIds, head.createdAt);
+            if (head.count > 0) {
+                heap.add(head);
+            }
+        }
+
+        final List<Long> page = new ArrayList<>(limit);
+        long position = 0;
+        while (position < needed && !heap.isEmpty()) {
+            final Head head = heap.poll();
+            if (head.createdAt[head.index] < boundary) {
+                return Optional.empty();
+            }
+            if (position++ >= offset) {
+                page.add(head.postIds[head.index]);
+            }
+            if (++head.index < head.count) {
+                heap.add(head);
+            }
+        }
+        // Индексы кончились раньше, чем набралась страница: без вытеснения это конец ленты, иначе продолжение в БД
+        return position == needed || !evicted ? Optional.of(page) : Optional.empty();
+    }
+
+    /** Курсор по скопированному началу индекса одного автора */
+    private static final class Head implements Comparable<Head> {
+        /** Идентификаторы постов от новых к старым */
+        private final long[] postIds;
+
+        /** Время создания постов, мс */
+        private final long[] createdAt;
+
+        /** Количество скопированных записей */
+        private int count;
+
+        /** Текущая позиция */
+        private int index;
+
+        private Head(final int capacity) {
+            this.postIds = new long[capacity];
+            this.createdAt = new long[capacity];
+        }
+
+        /** Более новый пост - меньший элемент кучи */
+        @Override
+        public int compareTo(final Head other) {
+            final int byTime = Long.compare(other.createdAt[other.index], createdAt[index]);
+            return byTime != 0 ? byTime : Long.compare(other.postIds[other.index], postIds[index]);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.otus.orlov.feed;
+
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Событие об изменении поста. Публикуется в транзакции записи,
+ * обрабатывается после ее фиксации асинхронно ({@link ru.otus.orlov.listeners.PostChangedListener}).
+ *
+ * @param type что произошло с постом
+ * @param post пост в состоянии на момент фиксации
+ */
+public record PostChangedEvent(Type type, Post post) {
+
+    /** Вид изменения */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,44 @@
+package ru.otus.orlov.feed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+
+/** Загрузка постов по идентификаторам одним запросом с сохранением порядка */
+@RequiredArgsConstructor
+@Component
+public class PostHydrator {
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /**
+     * Загружает посты по идентификаторам.
+     * Посты, удаленные к моменту загрузки, пропускаются.
+     *
+     * @param postIds идентификаторы постов в нужном порядке
+     * @return посты в порядке postIds
+     */
+    public List<Post> hydrate(final Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Map<Long, Post> byId = new HashMap<>();
+        for (final Post post : postRepository.findAllById(postIds)) {
+            byId.put(post.getId(), post);
+        }
+        final List<Post> posts = new ArrayList<>(postIds.size());
+        for (final Long postId : postIds) {
+            final Post post = byId.get(postId);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+        return posts;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.otus.orlov.feed;
+
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.OffsetPageRequest;
+
+/** Лента собирается запросом к БД по всем друзьям пользователя */
+@RequiredArgsConstructor
+@Component
+public class PullFeedSource implements FeedSource {
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    @Override
+    public FeedMode mode() {
+        return FeedMode.PULL;
+    }
+
+    @Override
+    public PageImplDto<Post> load(final Long userId, final int offset, final int limit) {
+        FeedSource.checkPage(offset, limit);
+        final Set<Long> friendIds = userRepository.findFriendIdsByUserId(userId);
+        final PageImpl<Post> posts = postRepository
+                .findPostsByFriendIds(friendIds, new OffsetPageRequest(offset, limit));
+        final PageImplDto<Post> dto = new PageImplDto<>();
+        dto.setContent(posts.getContent());
+        dto.setPageNumber(posts.getPageable().getPageNumber());
+        dto.setPageSize(posts.getPageable().getPageSize());
+        dto.setTotalElements(posts.getTotalElements());
+        return dto;
+    }
+}
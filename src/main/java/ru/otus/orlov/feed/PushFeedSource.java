@@ -0,0 +1,54 @@
+package ru.otus.orlov.feed;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.UserRepository;
+
+/**
+ * Лента читается из материализованного списка идентификаторов постов ({@link FeedStore}).
+ * Посты среза догружаются одним запросом по первичному ключу.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class PushFeedSource implements FeedSource {
+    /** Хранилище материализованных лент */
+    private final FeedStore feedStore;
+
+    /** Загрузка постов по идентификаторам */
+    private final PostHydrator postHydrator;
+
+    /** Построение ленты по данным БД */
+    private final TimelineMaterializer timelineMaterializer;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    @Override
+    public FeedMode mode() {
+        return FeedMode.PUSH;
+    }
+
+    @Override
+    public PageImplDto<Post> load(final Long userId, final int offset, final int limit) {
+        FeedSource.checkPage(offset, limit);
+        final FeedTimeline timeline = feedStore.get(userId, this::materialize);
+        final List<Post> posts = postHydrator.hydrate(timeline.slice(offset, limit));
+        final PageImplDto<Post> dto = new PageImplDto<>();
+        dto.setContent(posts);
+        dto.setPageNumber(offset / limit);
+        dto.setPageSize(limit);
+        dto.setTotalElements(timeline.size());
+        return dto;
+    }
+
+    /** Строит ленту пользователя по данным БД, если ее еще нет в хранилище */
+    private FeedTimeline materialize(final Long userId) {
+        log.info("Материализуем ленту пользователя с id {}", userId);
+        return timelineMaterializer.materialize(userRepository.findFriendIdsByUserId(userId));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.otus.orlov.feed;
+
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostRefDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.OffsetPageRequest;
+
+/**
+ * Лента читается из денормализованной таблицы feed_items одним сканом по первичному ключу пользователя.
+ * Таблица хранит последние посты друзей на момент первичного заполнения и все посты, разложенные после него,
+ * поэтому страница, на которой строки кончились, читается из постов друзей в БД. Если лента пользователя
+ * еще не отмечена заполненной (в ней могут быть только строки раскладки), на такой странице последние
+ * посты друзей ставятся на запись в фоне.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "feed.mode", havingValue = "table")
+public class TableFeedSource implements FeedSource {
+    /** Фоновая запись строк ленты */
+    private final FeedItemWriter feedItemWriter;
+
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Сколько последних постов друзей записывается при первичном заполнении ленты */
+    private final int backfillSize;
+
+    public TableFeedSource(final FeedItemWriter feedItemWriter,
+                           final PostRepository postRepository,
+                           final UserRepository userRepository,
+                           @Value("${feed.table.backfill-size:200}") final int backfillSize) {
+        this.feedItemWriter = feedItemWriter;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.backfillSize = backfillSize;
+    }
+
+    @Override
+    public FeedMode mode() {
+        return FeedMode.TABLE;
+    }
+
+    /**
+     * Читается на одну строку больше страницы, чтобы без COUNT понять, есть ли следующая.
+     * Пока страница целиком в feed_items, totalElements - нижняя граница: offset плюс прочитанные строки.
+     * Страница, на которой строки кончились, читается из БД вместе с точным totalElements.
+     */
+    @Override
+    public PageImplDto<Post> load(final Long userId, final int offset, final int limit) {
+        FeedSource.checkPage(offset, limit);
+        final PageImplDto<Post> dto = new PageImplDto<>();
+        dto.setPageNumber(offset / limit);
+        dto.setPageSize(limit);
+        final List<Post> posts = postRepository.findFeedItemsPage(userId, offset, limit + 1);
+        if (posts.size() > limit) {
+            dto.setContent(posts.subList(0, limit));
+            dto.setTotalElements((long) offset + posts.size());
+            return dto;
+        }
+
+        final Set<Long> friendIds = userRepository.findFriendIdsByUserId(userId);
+        if (!feedItemWriter.isBackfilling(userId) && !postRepository.isFeedItemsBackfilled(userId)) {
+            backfill(userId, friendIds);
+        }
+        final PageImpl<Post> page = postRepository
+                .findPostsByFriendIds(friendIds, new OffsetPageRequest(offset, limit));
+        dto.setContent(page.getContent());
+        dto.setTotalElements(page.getTotalElements());
+        return dto;
+    }
+
+    /** Ставит на запись последние посты друзей и отметку о заполнении ленты */
+    private void backfill(final Long userId, final Set<Long> friendIds) {
+        final List<PostRefDto> refs = postRepository
+                .findPostRefsByAuthorIds(friendIds, PageRequest.of(0, backfillSize));
+        log.info("Заполняем feed_items пользователя с id {}: {} постов", userId, refs.size());
+        feedItemWriter.enqueue(userId, refs);
+    }
+}
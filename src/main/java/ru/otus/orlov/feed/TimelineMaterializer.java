@@ -0,0 +1,40 @@
+package ru.otus.orlov.feed;
+
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.PostRefDto;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.util.DateUtil;
+
+/** Построение материализованной ленты по последним постам заданных авторов */
+@RequiredArgsConstructor
+@Component
+public class TimelineMaterializer {
+    /** Хранилище материализованных лент */
+    private final FeedStore feedStore;
+
+    /** Репозиторий для работы с постами */
+    private final PostRepository postRepository;
+
+    /**
+     * Строит ленту из последних постов авторов, не больше емкости ленты.
+     *
+     * @param authorIds идентификаторы авторов
+     * @return новая лента
+     */
+    public FeedTimeline materialize(final Collection<Long> authorIds) {
+        final FeedTimeline timeline = feedStore.newTimeline();
+        if (authorIds.isEmpty()) {
+            return timeline;
+        }
+        final List<PostRefDto> refs = postRepository
+                .findPostRefsByAuthorIds(authorIds, PageRequest.of(0, timeline.capacity()));
+        for (final PostRefDto ref : refs) {
+            timeline.append(ref.getId(), DateUtil.asEpochMilli(ref.getCreatedAt()));
+        }
+        return timeline;
+    }
+}
@@ -1,28 +1,44 @@
 package ru.otus.orlov.listeners;
 
-import java.util.Objects;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.dto.CacheInvalidationDto;
 
 /** Слушатель для Очереди */
+@Slf4j
 @Component
+@RequiredArgsConstructor
 public class CacheUpdateListener {
 
     /** Менеджер кэша */
-    private final CacheManager cacheManager;
+    private final TwoLevelCacheManager cacheManager;
 
-    @Autowired
-    public CacheUpdateListener(final CacheManager cacheManager) {
-        this.cacheManager = cacheManager;
-    }
+    /** Поколения кэшей и авторов */
+    private final CacheGenerations cacheGenerations;
 
-    /** Обработка сообщений из очереди */
-    @RabbitListener(queues = "cacheUpdateQueue")
-    public void receiveMessage(final Long userId) {
-        // Очищаем кэш для конкретного userId
-        Objects.requireNonNull(cacheManager.getCache("feed")).evict(userId);
-        System.out.println("Кэш 'feed' для userId=" + userId + " очищен!");
+    /**
+     * Обработка сообщений из очереди сброса кэша этого экземпляра: очищается только локальный L1,
+     * общий L2 очистил экземпляр, отправивший сообщение. Новые поколения применяются к локальным копиям.
+     */
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void receiveMessage(final CacheInvalidationDto invalidation) {
+        if (invalidation.getGenerations() != null) {
+            cacheGenerations.apply(invalidation.getGenerations());
+            log.debug("Получены поколения кэша {}", invalidation.getGenerations());
+            return;
+        }
+        final TwoLevelCache cache = cacheManager.getCache(invalidation.getCacheName());
+        if (cache == null) {
+            log.warn("Сброс неизвестного кэша {}", invalidation.getCacheName());
+            return;
+        }
+        cache.evictLocal(invalidation.getKeys());
+        log.debug("Кэш '{}' очищен для {} ключей", invalidation.getCacheName(),
+                invalidation.getKeys() == null ? "всех" : invalidation.getKeys().size());
     }
 }
@@ -0,0 +1,39 @@
+package ru.otus.orlov.listeners;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.feed.PostChangedEvent;
+import ru.otus.orlov.services.FeedFanoutService;
+
+/**
+ * Асинхронная раскладка изменений постов по лентам подписчиков.
+ * Запускается только после фиксации транзакции записи, HTTP-запрос ее не ждет.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class PostChangedListener {
+    /** Сервис раскладки постов по лентам */
+    private final FeedFanoutService feedFanoutService;
+
+    /** Обработка изменения поста в пуле раскладки */
+    @Async("feedFanoutExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostChanged(final PostChangedEvent event) {
+        final Post post = event.post();
+        try {
+            switch (event.type()) {
+                case CREATED -> feedFanoutService.fanOut(post.getUserId(), post);
+                case UPDATED -> feedFanoutService.onPostUpdated(post.getUserId(), post);
+                case DELETED -> feedFanoutService.onPostDeleted(post.getUserId(), post.getId());
+            }
+        } catch (final RuntimeException e) {
+            log.error("Не удалось разложить изменение {} поста {}", event.type(), post.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.otus.orlov.listeners;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.otus.orlov.search.UserNameIndex;
+import ru.otus.orlov.search.UserRegisteredEvent;
+
+/**
+ * Добавление зарегистрированных пользователей в индекс поиска по имени и фамилии.
+ * Запускается только после фиксации транзакции регистрации: откаченная регистрация в индекс не попадает.
+ */
+@RequiredArgsConstructor
+@Component
+public class UserRegisteredListener {
+    /** Индекс поиска по имени и фамилии */
+    private final UserNameIndex userNameIndex;
+
+    /** Добавление пользователя в индекс */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserRegistered(final UserRegisteredEvent event) {
+        userNameIndex.add(event.id(), event.firstName(), event.lastName());
+    }
+}
@@ -9,6 +9,7 @@ import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.Named;
 import ru.otus.orlov.dto.UserDto;
+import ru.otus.orlov.dto.UserProfile;
 import ru.otus.orlov.entity.Interest;
 import ru.otus.orlov.entity.User;
 
@@ -26,6 +27,18 @@ public interface UserMapper {
     @Mapping(target = "friendIds", source = "friends", qualifiedByName = "mapFriends")
     UserDto toDto(final User user);
 
+    /**
+     * Собирает UserDto из проекции профиля и отдельно прочитанных интересов и друзей.
+     *
+     * @param profile   колонки профиля
+     * @param interests названия интересов
+     * @param friendIds идентификаторы друзей
+     * @return объект UserDto
+     */
+    @Mapping(target = "interests", source = "interests")
+    @Mapping(target = "friendIds", source = "friendIds")
+    UserDto toDto(final UserProfile profile, final Set<String> interests, final Set<Long> friendIds);
+
     /**
      * Преобразует набор интересов (Set<Interest>) в набор строк (Set<String>).
      *
@@ -1,5 +1,9 @@
 package ru.otus.orlov.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -7,6 +11,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.otus.orlov.dto.AuthorPostRef;
+import ru.otus.orlov.dto.PostRefDto;
 import ru.otus.orlov.entity.Post;
 
 /** Репозиторий для работы с постами */
@@ -17,4 +23,64 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             "(SELECT posts.id FROM User user JOIN user.posts posts WHERE user.id IN :friendIds) " +
             "ORDER BY post.createdAt DESC")
     PageImpl<Post> findPostsByFriendIds(@Param("friendIds") final Set<Long> friendIds, final Pageable pageable);
+
+    /** Найти пост автора */
+    Optional<Post> findByIdAndUserId(final Long id, final Long userId);
+
+    /** Получить ссылки на последние посты авторов (без COUNT и без содержимого постов) */
+    @Query("SELECT new ru.otus.orlov.dto.PostRefDto(posts.id, posts.createdAt) " +
+            "FROM User user JOIN user.posts posts WHERE user.id IN :authorIds " +
+            "ORDER BY posts.createdAt DESC, posts.id DESC")
+    List<PostRefDto> findPostRefsByAuthorIds(@Param("authorIds") final Collection<Long> authorIds,
+                                             final Pageable pageable);
+
+    /**
+     * Последние посты каждого из авторов не старше since, не больше limit на автора.
+     * Посты каждого автора читаются из индекса (user_id, created_at DESC, id DESC).
+     */
+    @Query(value = "SELECT p.user_id AS \"authorId\", p.id AS \"id\", p.created_at AS \"createdAt\" " +
+            "FROM users u CROSS JOIN LATERAL (" +
+            "SELECT posts.id, posts.user_id, posts.created_at FROM posts " +
+            "WHERE posts.user_id = u.id AND posts.created_at >= :since " +
+            "ORDER BY posts.created_at DESC, posts.id DESC LIMIT :limit) p " +
+            "WHERE u.id IN (:authorIds) ORDER BY p.created_at DESC, p.id DESC", nativeQuery = true)
+    List<AuthorPostRef> findRecentPostRefsByAuthorIds(@Param("authorIds") final Collection<Long> authorIds,
+                                                      @Param("since") final LocalDateTime since,
+                                                      @Param("limit") final int limit);
+
+    /** Страница ленты из feed_items: обратный скан первичного ключа (user_id, created_at, post_id) */
+    @Query(value = "SELECT p.* FROM feed_items fi JOIN posts p ON p.id = fi.post_id WHERE fi.user_id = :userId " +
+            "ORDER BY fi.created_at DESC, fi.post_id DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Post> findFeedItemsPage(@Param("userId") final Long userId,
+                                 @Param("offset") final int offset,
+                                 @Param("limit") final int limit);
+
+    /** Заполнена ли лента пользователя в feed_items последними постами друзей */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM feed_items_backfilled WHERE user_id = :userId)", nativeQuery = true)
+    boolean isFeedItemsBackfilled(@Param("userId") final Long userId);
+
+    /**
+     * Первая страница ленты для keyset-пагинации.
+     * Для каждого друга читается не больше limit постов из индекса (user_id, created_at DESC, id DESC),
+     * затем они сливаются в общую ленту. COUNT не выполняется.
+     */
+    @Query(value = "SELECT p.* FROM user_friends uf CROSS JOIN LATERAL (" +
+            "SELECT * FROM posts WHERE posts.user_id = uf.friend_id " +
+            "ORDER BY posts.created_at DESC, posts.id DESC LIMIT :limit) p " +
+            "WHERE uf.user_id = :userId ORDER BY p.created_at DESC, p.id DESC LIMIT :limit", nativeQuery = true)
+    List<Post> findFeedFirstPage(@Param("userId") final Long userId, @Param("limit") final int limit);
+
+    /**
+     * Следующая страница ленты для keyset-пагинации: посты строго старше (createdAt, id) курсора.
+     * Глубина страницы не влияет на стоимость запроса, COUNT не выполняется.
+     */
+    @Query(value = "SELECT p.* FROM user_friends uf CROSS JOIN LATERAL (" +
+            "SELECT * FROM posts WHERE posts.user_id = uf.friend_id " +
+            "AND (posts.created_at, posts.id) < (:createdAt, :id) " +
+            "ORDER BY posts.created_at DESC, posts.id DESC LIMIT :limit) p " +
+            "WHERE uf.user_id = :userId ORDER BY p.created_at DESC, p.id DESC LIMIT :limit", nativeQuery = true)
+    List<Post> findFeedPageAfter(@Param("userId") final Long userId,
+                                 @Param("createdAt") final LocalDateTime createdAt,
+                                 @Param("id") final Long id,
+                                 @Param("limit") final int limit);
 }
@@ -1,13 +1,24 @@
 package ru.otus.orlov.repositories;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
+import ru.otus.orlov.dto.UserFriendRef;
+import ru.otus.orlov.dto.UserInterestRef;
+import ru.otus.orlov.dto.UserProfile;
+import ru.otus.orlov.dto.UserSearchDto;
+import ru.otus.orlov.dto.UserSearchRow;
 import ru.otus.orlov.entity.Token;
 import ru.otus.orlov.entity.User;
 
@@ -26,7 +37,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.email = :email")
     Optional<User> findByEmail(@Param("email") final String email);
 
-    /** Поиск пользователя по id */
+    /** Получить ID пользователя по email */
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") final String email);
+
+    /**
+     * Профиль пользователя одной строкой: колонки users и город через LEFT JOIN.
+     * Друзья, посты, роли и токен не читаются - для них есть отдельные запросы по id.
+     */
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.birthDate AS birthDate, " +
+            "u.gender AS gender, c.name AS city, u.email AS email, u.isActive AS isActive " +
+            "FROM User u LEFT JOIN u.city c WHERE u.id = :id")
+    Optional<UserProfile> findProfileById(@Param("id") final Long id);
+
+    /** Профили многих пользователей одним запросом, как {@link #findProfileById}; порядок не задан */
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.birthDate AS birthDate, " +
+            "u.gender AS gender, c.name AS city, u.email AS email, u.isActive AS isActive " +
+            "FROM User u LEFT JOIN u.city c WHERE u.id IN :ids")
+    List<UserProfile> findProfilesByIds(@Param("ids") final Collection<Long> ids);
+
+    /** Получить названия интересов пользователя */
+    @Query(value = "SELECT i.description FROM user_interests ui JOIN interests i ON i.id = ui.interest_id " +
+            "WHERE ui.user_id = :userId", nativeQuery = true)
+    Set<String> findInterestDescriptionsByUserId(@Param("userId") final Long userId);
+
+    /** Получить названия интересов многих пользователей одним запросом */
+    @Query(value = "SELECT ui.user_id AS \"userId\", i.description AS \"description\" FROM user_interests ui " +
+            "JOIN interests i ON i.id = ui.interest_id WHERE ui.user_id IN (:userIds)", nativeQuery = true)
+    List<UserInterestRef> findInterestDescriptionsByUserIds(@Param("userIds") final Collection<Long> userIds);
+
+    /** Поиск пользователя по id со всеми связями */
     @EntityGraph(type = EntityGraph.EntityGraphType.FETCH,
             value = "city-roles-interests-token-friends-posts-friends-entity-graph")
     @NonNull
@@ -36,21 +76,71 @@ public interface UserRepository extends JpaRepository<User, Long> {
     /**
      * Ищет пользователей по префиксу имени и фамилии.
      * Имя и фамилия должны начинаться с указанных префиксов.
-     * Результаты сортируются по идентификатору пользователя (id).
+     * Результаты сортируются по идентификатору пользователя (id) и начинаются после afterId (keyset-пагинация).
+     * Строки читаются курсором JDBC по 100 за раз; поток нужно закрыть внутри транзакции.
      *
      * @param firstName префикс имени для поиска (например, "Конст" для "Константин").
      * @param lastName  префикс фамилии для поиска (например, "Оси" для "Осипов").
-     * @return список пользователей, удовлетворяющих условиям поиска.
+     * @param afterId   id последнего пользователя предыдущей страницы, 0 - первая страница.
+     * @param limit     сколько пользователей прочитать самое большее.
+     * @return id, имя и фамилия найденных пользователей.
      */
-    @EntityGraph(type = EntityGraph.EntityGraphType.FETCH,
-            value = "city-roles-interests-token-friends-posts-friends-entity-graph")
-    @Query("SELECT u FROM User u WHERE u.firstName LIKE :firstName% AND u.lastName LIKE :lastName% ORDER BY u.id")
-    List<User> findByFirstNameAndLastName(@Param("firstName") final String firstName,
-                                          @Param("lastName") final String lastName);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT new ru.otus.orlov.dto.UserSearchDto(u.id, u.firstName, u.lastName) FROM User u " +
+            "WHERE u.firstName LIKE :firstName% AND u.lastName LIKE :lastName% AND u.id > :afterId ORDER BY u.id")
+    Stream<UserSearchDto> streamByFirstNameAndLastName(@Param("firstName") final String firstName,
+                                                       @Param("lastName") final String lastName,
+                                                       @Param("afterId") final long afterId,
+                                                       final Limit limit);
 
-    /** Получить ID друзей пользователя */
-    @EntityGraph(type = EntityGraph.EntityGraphType.FETCH,
-            value = "city-roles-interests-token-friends-posts-friends-entity-graph")
-    @Query("SELECT user_friend.id FROM User user JOIN user.friends user_friend WHERE user.id = :userId")
+    /**
+     * Ищет пользователей, чьи имя и фамилия содержат заданные строки без учета регистра или похожи на них
+     * по триграммам (оператор {@code %} pg_trgm, порог - {@code pg_trgm.similarity_threshold}, по умолчанию 0.3).
+     * Оба условия обслуживают GIN-индексы триграмм idx_users_first_name_trgm и idx_users_last_name_trgm.
+     * Результаты сортируются по id и начинаются после afterId (keyset-пагинация), строки читаются курсором JDBC.
+     *
+     * @param firstName        строка имени (например, "стант" или "Констатин" для "Константин").
+     * @param lastName         строка фамилии.
+     * @param firstNamePattern строка имени с экранированными {@code %}, {@code _} и {@code \} для ILIKE.
+     * @param lastNamePattern  строка фамилии с экранированными {@code %}, {@code _} и {@code \} для ILIKE.
+     * @param afterId   id последнего пользователя предыдущей страницы, 0 - первая страница.
+     * @param limit     сколько пользователей прочитать самое большее.
+     * @return id, имя и фамилия найденных пользователей.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query(value = "SELECT u.id AS \"id\", u.first_name AS \"firstName\", u.last_name AS \"lastName\" " +
+            "FROM users u " +
+            "WHERE (u.first_name ILIKE '%' || :firstNamePattern || '%' OR u.first_name % :firstName) " +
+            "AND (u.last_name ILIKE '%' || :lastNamePattern || '%' OR u.last_name % :lastName) " +
+            "AND u.id > :afterId ORDER BY u.id LIMIT :limit", nativeQuery = true)
+    Stream<UserSearchRow> streamByFirstNameAndLastNameTrigram(@Param("firstName") final String firstName,
+                                                              @Param("lastName") final String lastName,
+                                                              @Param("firstNamePattern") final String firstNamePattern,
+                                                              @Param("lastNamePattern") final String lastNamePattern,
+                                                              @Param("afterId") final long afterId,
+                                                              @Param("limit") final int limit);
+
+    /** Получить ID друзей пользователя - только по user_friends, без чтения самих друзей */
+    @Query(value = "SELECT uf.friend_id FROM user_friends uf WHERE uf.user_id = :userId", nativeQuery = true)
     Set<Long> findFriendIdsByUserId(@Param("userId") final Long userId);
+
+    /** Получить ID друзей многих пользователей одним запросом - только по user_friends */
+    @Query(value = "SELECT uf.user_id AS \"userId\", uf.friend_id AS \"friendId\" FROM user_friends uf " +
+            "WHERE uf.user_id IN (:userIds)", nativeQuery = true)
+    List<UserFriendRef> findFriendIdsByUserIds(@Param("userIds") final Collection<Long> userIds);
+
+    /** Получить ID подписчиков пользователя (тех, у кого он в друзьях) */
+    @Query(value = "SELECT uf.user_id FROM user_friends uf WHERE uf.friend_id = :userId", nativeQuery = true)
+    List<Long> findFollowerIdsByUserId(@Param("userId") final Long userId);
+
+    /** Получить ID пользователей, у которых подписчиков больше порога */
+    @Query(value = "SELECT uf.friend_id FROM user_friends uf GROUP BY uf.friend_id HAVING COUNT(*) > :threshold",
+            nativeQuery = true)
+    List<Long> findHighDegreeUserIds(@Param("threshold") final long threshold);
+
+    /** Получить ID пользователей с действующим refresh-токеном, недавно входившие - первыми */
+    @Query(value = "SELECT u.id FROM users u JOIN tokens t ON t.id = u.token_id " +
+            "WHERE t.refresh_token_expiration > now() ORDER BY t.access_token_expiration DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findRecentlyActiveUserIds(@Param("limit") final int limit);
 }
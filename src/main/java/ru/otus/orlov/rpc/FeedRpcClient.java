@@ -0,0 +1,91 @@
+package ru.otus.orlov.rpc;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Асинхронный RPC-клиент поверх RabbitMQ.
+ * Каждый запрос получает correlationId и адрес ответа - очередь, принадлежащую этому экземпляру приложения.
+ * Ожидающие запросы хранятся в {@link #pending}, ответ сопоставляется с запросом по correlationId,
+ * поэтому поток, отправивший запрос, не блокируется и чужой ответ получить нельзя.
+ */
+@Slf4j
+@Component
+public class FeedRpcClient implements MessageListener {
+    /** Запросы, ожидающие ответа, по correlationId */
+    private final Map<String, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+    /** Template Очереди Rabbit */
+    private final RabbitTemplate rabbitTemplate;
+
+    /** Очередь ответов этого экземпляра приложения */
+    private final Queue replyQueue;
+
+    /** Сколько ждать ответа, мс */
+    private final long timeoutMs;
+
+    public FeedRpcClient(final RabbitTemplate rabbitTemplate,
+                         @Qualifier("feedReplyQueue") final Queue replyQueue,
+                         @Value("${feed.rpc.timeout-ms:5000}") final long timeoutMs,
+                         final MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.replyQueue = replyQueue;
+        this.timeoutMs = timeoutMs;
+        Gauge.builder("feed.rpc.in.flight", pending, Map::size)
+                .description("Запросы ленты, ожидающие ответа")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отправляет запрос в очередь и возвращает future с телом ответа.
+     * Future завершается с {@link java.util.concurrent.TimeoutException}, если ответ не пришел вовремя.
+     *
+     * @param queue   очередь, которую слушает сервер
+     * @param request тело запроса, сериализуется конвертером {@link RabbitTemplate}
+     * @return future с телом ответа
+     */
+    public CompletableFuture<byte[]> call(final String queue, final Object request) {
+        final String correlationId = UUID.randomUUID().toString();
+        final MessageProperties properties = new MessageProperties();
+        properties.setCorrelationId(correlationId);
+        properties.setReplyTo(replyQueue.getActualName());
+        final Message message = rabbitTemplate.getMessageConverter().toMessage(request, properties);
+
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        pending.put(correlationId, future);
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> pending.remove(correlationId));
+        try {
+            rabbitTemplate.send("", queue, message);
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /** Обработка ответа из очереди ответов */
+    @Override
+    public void onMessage(final Message message) {
+        final String correlationId = message.getMessageProperties().getCorrelationId();
+        final CompletableFuture<byte[]> future = correlationId == null ? null : pending.remove(correlationId);
+        if (future == null) {
+            log.warn("Ответ с correlationId {} пришел после таймаута или не ожидается", correlationId);
+            return;
+        }
+        future.complete(message.getBody());
+    }
+}
@@ -0,0 +1,413 @@
+package ru.otus.orlov.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import ru.otus.orlov.dto.UserSearchDto;
+
+/**
+ * Неизменяемый индекс имен и фамилий пользователей для поиска по префиксу.
+ * Пользователи пронумерованы по возрастанию id (порядковый номер - позиция в {@link #ids}). Для имени и фамилии
+ * своя отсортированная таблица различных значений ({@link TermDictionary}); пользователь хранит номера своих
+ * значений в этих таблицах, а у значения есть список порядковых номеров его пользователей - разности соседних
+ * номеров в переменной длине (varint), около байта на пользователя.
+ * Значения с одним префиксом идут в таблице подряд, поэтому префикс - это отрезок номеров значений. Поиск
+ * разворачивает списки той стороны, где пользователей меньше, и оставляет тех, чье значение другой стороны попадает
+ * в ее отрезок; порядок порядковых номеров - это порядок id.
+ */
+final class NameSegment {
+    /** Пустой индекс */
+    static final NameSegment EMPTY = new Builder().build();
+
+    /** Идентификаторы пользователей по возрастанию */
+    private final long[] ids;
+
+    /** Номер имени каждого пользователя в {@link #firstNames} */
+    private final int[] firstTerms;
+
+    /** Номер фамилии каждого пользователя в {@link #lastNames} */
+    private final int[] lastTerms;
+
+    /** Имена */
+    private final TermDictionary firstNames;
+
+    /** Фамилии */
+    private final TermDictionary lastNames;
+
+    private NameSegment(final long[] ids, final int[] firstTerms, final int[] lastTerms,
+                        final TermDictionary firstNames, final TermDictionary lastNames) {
+        this.ids = ids;
+        this.firstTerms = firstTerms;
+        this.lastTerms = lastTerms;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+    }
+
+    /** Количество пользователей */
+    int size() {
+        return ids.length;
+    }
+
+    /** Наибольший id в индексе, -1 - если индекс пуст */
+    long maxId() {
+        return ids.length == 0 ? -1 : ids[ids.length - 1];
+    }
+
+    /**
+     * Есть ли пользователь в индексе.
+     *
+     * @param id идентификатор пользователя
+     * @return есть ли
+     */
+    boolean contains(final long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * Ищет пользователей, чьи имя и фамилия начинаются с префиксов, с учетом регистра, как {@code LIKE 'префикс%'}.
+     *
+     * @param firstPrefix префикс имени
+     * @param lastPrefix  префикс фамилии
+     * @param afterId     искать пользователей с id больше этого
+     * @param limit       сколько пользователей вернуть самое большее
+     * @return найденные пользователи по возрастанию id
+     */
+    List<UserSearchDto> search(final String firstPrefix, final String lastPrefix, final long afterId,
+                               final int limit) {
+        final int firstFrom = firstNames.lowerBound(firstPrefix);
+        final int firstTo = firstNames.upperBound(firstPrefix, firstFrom);
+        final int lastFrom = lastNames.lowerBound(lastPrefix);
+        final int lastTo = lastNames.upperBound(lastPrefix, lastFrom);
+        if (firstFrom == firstTo || lastFrom == lastTo) {
+            return List.of();
+        }
+        final int found = Arrays.binarySearch(ids, afterId);
+        final int start = found >= 0 ? found + 1 : -found - 1;
+        final int firstCount = firstNames.count(firstFrom, firstTo);
+        final int lastCount = lastNames.count(lastFrom, lastTo);
+        // Ожидаемое число найденных при независимых имени и фамилии
+        final long expected = (long) firstCount * lastCount / ids.length;
+        final int[] ordinals;
+        if (firstCount <= lastCount) {
+            ordinals = matches(firstNames, firstFrom, firstTo, lastTerms, lastFrom, lastTo, start, limit, expected);
+        } else {
+            ordinals = matches(lastNames, lastFrom, lastTo, firstTerms, firstFrom, firstTo, start, limit, expected);
+        }
+        final List<UserSearchDto> users = new ArrayList<>(ordinals.length);
+        for (final int ordinal : ordinals) {
+            users.add(user(ordinal));
+        }
+        return users;
+    }
+
+    /**
+     * Строит новый индекс из пользователей этого и добавленных. Если id уже есть в этом индексе,
+     * остается пользователь этого индекса.
+     *
+     * @param added добавленные пользователи по возрастанию id
+     * @return новый индекс
+     */
+    NameSegment merge(final Collection<UserSearchDto> added) {
+        final Builder builder = new Builder();
+        int ordinal = 0;
+        for (final UserSearchDto user : added) {
+            while (ordinal < ids.length && ids[ordinal] < user.getId()) {
+                builder.add(ids[ordinal], firstNames.term(firstTerms[ordinal]), lastNames.term(lastTerms[ordinal]));
+                ordinal++;
+            }
+            if (ordinal == ids.length || ids[ordinal] != user.getId()) {
+                builder.add(user.getId(), user.getFirstName(), user.getLastName());
+            }
+        }
+        for (; ordinal < ids.length; ordinal++) {
+            builder.add(ids[ordinal], firstNames.term(firstTerms[ordinal]), lastNames.term(lastTerms[ordinal]));
+        }
+        return builder.build();
+    }
+
+    private UserSearchDto user(final int ordinal) {
+        return new UserSearchDto(ids[ordinal], firstNames.term(firstTerms[ordinal]),
+                lastNames.term(lastTerms[ordinal]));
+    }
+
+    /**
+     * Первые limit порядковых номеров не меньше start у пользователей со значением из отрезка [from, to)
+     * одной стороны и значением из отрезка [otherFrom, otherTo) другой.
+     * Если найденных ожидается больше limit, списки значений сливаются по возрастанию номеров (k-way merge)
+     * и разбор останавливается на limit-м найденном. Иначе разбираются все списки и найденные сортируются:
+     * это дешевле слияния, когда остановиться раньше все равно не выйдет.
+     */
+    private static int[] matches(final TermDictionary dictionary, final int from, final int to,
+                                 final int[] otherTerms, final int otherFrom, final int otherTo,
+                                 final int start, final int limit, final long expected) {
+        int size = 0;
+        if (to - from == 1 || expected > limit) {
+            final int[] ordinals = new int[Math.min(limit, dictionary.count(from, to))];
+            final PriorityQueue<PostingCursor> cursors = new PriorityQueue<>(to - from,
+                    Comparator.comparingInt(PostingCursor::ordinal));
+            for (int term = from; term < to; term++) {
+                final PostingCursor cursor = dictionary.cursor(term);
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+            while (size < limit && !cursors.isEmpty()) {
+                final PostingCursor cursor = cursors.poll();
+                final int ordinal = cursor.ordinal();
+                final int other = otherTerms[ordinal];
+                if (ordinal >= start && other >= otherFrom && other < otherTo) {
+                    ordinals[size++] = ordinal;
+                }
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+            return Arrays.copyOf(ordinals, size);
+        }
+        final int[] matched = new int[dictionary.count(from, to)];
+        for (int term = from; term < to; term++) {
+            final PostingCursor cursor = dictionary.cursor(term);
+            while (cursor.next()) {
+                final int ordinal = cursor.ordinal();
+                final int other = otherTerms[ordinal];
+                if (ordinal >= start && other >= otherFrom && other < otherTo) {
+                    matched[size++] = ordinal;
+                }
+            }
+        }
+        // Списки отдельных значений отсортированы, но перемежаются друг с другом
+        Arrays.sort(matched, 0, size);
+        return Arrays.copyOf(matched, Math.min(size, limit));
+    }
+
+    /** Разбор списка одного значения: порядковые номера по возрастанию */
+    private static final class PostingCursor {
+        /** Списки всех значений */
+        private final byte[] postings;
+
+        /** Конец списка */
+        private final int end;
+
+        /** Позиция следующей разности */
+        private int position;
+
+        /** Текущий порядковый номер */
+        private int ordinal = -1;
+
+        private PostingCursor(final byte[] postings, final int position, final int end) {
+            this.postings = postings;
+            this.position = position;
+            this.end = end;
+        }
+
+        /** Переходит к следующему номеру; false - список закончился */
+        boolean next() {
+            if (position == end) {
+                return false;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            ordinal += delta;
+            return true;
+        }
+
+        int ordinal() {
+            return ordinal;
+        }
+    }
+
+    /** Отсортированная таблица различных значений поля со списками их пользователей */
+    private static final class TermDictionary {
+        /** Значения по возрастанию */
+        private final String[] terms;
+
+        /** Пользователей у значений с номером меньше i; последний элемент - всего пользователей */
+        private final int[] cumulativeCounts;
+
+        /** Начало списка значения i в {@link #postings}; последний элемент - длина {@link #postings} */
+        private final int[] offsets;
+
+        /** Списки всех значений подряд: разности порядковых номеров в varint */
+        private final byte[] postings;
+
+        private TermDictionary(final String[] terms, final int[] cumulativeCounts, final int[] offsets,
+                               final byte[] postings) {
+            this.terms = terms;
+            this.cumulativeCounts = cumulativeCounts;
+            this.offsets = offsets;
+            this.postings = postings;
+        }
+
+        /**
+         * Строит таблицу по значениям пользователей.
+         *
+         * @param provisionalTerms значения в порядке первого появления
+         * @param userTerms        номер значения каждого пользователя в provisionalTerms, заменяется номером
+         *                         в отсортированной таблице
+         * @param size             количество пользователей
+         */
+        static TermDictionary build(final List<String> provisionalTerms, final int[] userTerms, final int size) {
+            final Integer[] order = new Integer[provisionalTerms.size()];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (a, b) -> provisionalTerms.get(a).compareTo(provisionalTerms.get(b)));
+            final String[] terms = new String[order.length];
+            final int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                terms[i] = provisionalTerms.get(order[i]);
+                rank[order[i]] = i;
+            }
+            final int[] counts = new int[terms.length + 1];
+            final int[] bytes = new int[terms.length + 1];
+            final int[] previous = new int[terms.length];
+            Arrays.fill(previous, -1);
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                final int term = rank[userTerms[ordinal]];
+                userTerms[ordinal] = term;
+                counts[term + 1]++;
+                bytes[term + 1] += varIntSize(ordinal - previous[term]);
+                previous[term] = ordinal;
+            }
+            for (int term = 0; term < terms.length; term++) {
+                counts[term + 1] += counts[term];
+                bytes[term + 1] += bytes[term];
+            }
+            final byte[] postings = new byte[bytes[terms.length]];
+            final int[] position = Arrays.copyOf(bytes, terms.length);
+            Arrays.fill(previous, -1);
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                final int term = userTerms[ordinal];
+                position[term] = writeVarInt(postings, position[term], ordinal - previous[term]);
+                previous[term] = ordinal;
+            }
+            return new TermDictionary(terms, counts, bytes, postings);
+        }
+
+        String term(final int term) {
+            return terms[term];
+        }
+
+        /** Пользователей у значений с номерами из [from, to) */
+        int count(final int from, final int to) {
+            return cumulativeCounts[to] - cumulativeCounts[from];
+        }
+
+        /** Номер первого значения не меньше префикса */
+        int lowerBound(final String prefix) {
+            int low = 0;
+            int high = terms.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (terms[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /** Номер первого значения после from, которое не начинается с префикса */
+        int upperBound(final String prefix, final int from) {
+            int low = from;
+            int high = terms.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (terms[middle].startsWith(prefix)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /** Курсор по списку значения */
+        PostingCursor cursor(final int term) {
+            return new PostingCursor(postings, offsets[term], offsets[term + 1]);
+        }
+
+        private static int varIntSize(final int value) {
+            return (38 - Integer.numberOfLeadingZeros(value)) / 7;
+        }
+
+        private static int writeVarInt(final byte[] out, final int position, final int value) {
+            int next = position;
+            int rest = value;
+            while ((rest & ~0x7f) != 0) {
+                out[next++] = (byte) ((rest & 0x7f) | 0x80);
+                rest >>>= 7;
+            }
+            out[next++] = (byte) rest;
+            return next;
+        }
+    }
+
+    /** Накопление пользователей по возрастанию id для построения индекса */
+    static final class Builder {
+        private long[] ids = new long[1024];
+        private int[] firstTerms = new int[1024];
+        private int[] lastTerms = new int[1024];
+        private int size;
+        private final Map<String, Integer> firstIndex = new HashMap<>();
+        private final List<String> firstValues = new ArrayList<>();
+        private final Map<String, Integer> lastIndex = new HashMap<>();
+        private final List<String> lastValues = new ArrayList<>();
+
+        /**
+         * Добавляет пользователя.
+         *
+         * @param id        идентификатор, больше всех добавленных ранее
+         * @param firstName имя
+         * @param lastName  фамилия
+         * @return этот же построитель
+         * @throws IllegalArgumentException если id не больше предыдущего
+         */
+        Builder add(final long id, final String firstName, final String lastName) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Пользователи добавляются по возрастанию id: " + id
+                        + " после " + ids[size - 1]);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                firstTerms = Arrays.copyOf(firstTerms, size * 2);
+                lastTerms = Arrays.copyOf(lastTerms, size * 2);
+            }
+            ids[size] = id;
+            firstTerms[size] = intern(firstName, firstIndex, firstValues);
+            lastTerms[size] = intern(lastName, lastIndex, lastValues);
+            size++;
+            return this;
+        }
+
+        /** Количество добавленных пользователей */
+        int size() {
+            return size;
+        }
+
+        /** Строит индекс; построитель после этого не используется */
+        NameSegment build() {
+            final int[] first = Arrays.copyOf(firstTerms, size);
+            final int[] last = Arrays.copyOf(lastTerms, size);
+            return new NameSegment(Arrays.copyOf(ids, size), first, last,
+                    TermDictionary.build(firstValues, first, size), TermDictionary.build(lastValues, last, size));
+        }
+
+        private static int intern(final String value, final Map<String, Integer> index, final List<String> values) {
+            return index.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+    }
+}
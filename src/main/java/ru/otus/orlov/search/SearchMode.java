@@ -0,0 +1,13 @@
+package ru.otus.orlov.search;
+
+/** Режим поиска пользователей по имени и фамилии */
+public enum SearchMode {
+    /** Имя и фамилия начинаются с заданных строк, с учетом регистра; ищется в индексе в памяти */
+    PREFIX,
+
+    /**
+     * Имя и фамилия содержат заданные строки без учета регистра или похожи на них по триграммам
+     * (опечатки, пропущенные буквы); ищется в БД по GIN-индексам pg_trgm
+     */
+    TRIGRAM
+}
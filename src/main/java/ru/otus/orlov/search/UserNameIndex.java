@@ -0,0 +1,236 @@
+package ru.otus.orlov.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.orlov.dto.UserSearchDto;
+
+/**
+ * Индекс поиска пользователей по префиксу имени и фамилии в памяти приложения.
+ * Строится при запуске, до того как readiness станет {@code UP}, одним проходом по users с курсором
+ * ({@code search.index.fetch-size} строк за раз), и дальше отвечает на поиск без запросов к БД.
+ * Основная часть - неизменяемый {@link NameSegment}. Пользователи, зарегистрированные после его построения,
+ * копятся в небольшой отсортированной по id карте: свои регистрации добавляются после фиксации транзакции,
+ * чужие (других экземпляров) - периодическим дочитыванием users с id больше уже известных. Когда карта
+ * вырастает до {@code search.index.compact-threshold}, она сливается с основной частью в новый {@link NameSegment}.
+ * Пока индекс не построен (или выключен), поиск идет в БД.
+ */
+@Slf4j
+@Component
+public class UserNameIndex implements ApplicationRunner {
+    /** Пользователи с id больше заданного по возрастанию id */
+    private static final String SCAN_SQL = "SELECT id, first_name, last_name FROM users WHERE id > ? ORDER BY id";
+
+    /** Чтение users с курсором */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Транзакция только на чтение: без нее драйвер PostgreSQL читает результат целиком, а не курсором */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /** Включен ли индекс */
+    private final boolean enabled;
+
+    /** Со скольких добавленных пользователей они сливаются с основной частью */
+    private final int compactThreshold;
+
+    /** Насколько ниже наибольшего известного id начинать дочитывание: id выдаются до фиксации транзакций */
+    private final long catchUpOverlap;
+
+    /** Основная часть индекса */
+    private volatile NameSegment segment = NameSegment.EMPTY;
+
+    /** Пользователи, добавленные после построения основной части */
+    private final ConcurrentSkipListMap<Long, UserSearchDto> recent = new ConcurrentSkipListMap<>();
+
+    /** Построен ли индекс */
+    private volatile boolean ready;
+
+    /** Длительность последнего полного построения */
+    private volatile long buildMs;
+
+    public UserNameIndex(final DataSource dataSource,
+                         final PlatformTransactionManager transactionManager,
+                         final MeterRegistry meterRegistry,
+                         @Value("${search.index.enabled:true}") final boolean enabled,
+                         @Value("${search.index.fetch-size:10000}") final int fetchSize,
+                         @Value("${search.index.compact-threshold:10000}") final int compactThreshold,
+                         @Value("${search.index.catch-up-overlap:1000}") final long catchUpOverlap) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.compactThreshold = compactThreshold;
+        this.catchUpOverlap = catchUpOverlap;
+        Gauge.builder("search.index.users", this, index -> index.segment.size() + index.recent.size())
+                .description("Пользователи в индексе поиска по имени и фамилии")
+                .register(meterRegistry);
+        TimeGauge.builder("search.index.build.duration", this, TimeUnit.MILLISECONDS, index -> index.buildMs)
+                .description("Длительность построения индекса поиска по имени и фамилии")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (enabled) {
+            build();
+        }
+    }
+
+    /** Построен ли индекс: если нет, искать нужно в БД */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ищет пользователей, чьи имя и фамилия начинаются с префиксов, с учетом регистра, как {@code LIKE 'префикс%'}.
+     * Символы {@code %} и {@code _} в префиксе ищутся как есть.
+     *
+     * @param firstPrefix префикс имени
+     * @param lastPrefix  префикс фамилии
+     * @param afterId     искать пользователей с id больше этого
+     * @param limit       сколько пользователей вернуть самое большее
+     * @return найденные пользователи по возрастанию id
+     */
+    public List<UserSearchDto> search(final String firstPrefix, final String lastPrefix, final long afterId,
+                                      final int limit) {
+        // Сначала добавленные, потом основная часть: слияние подменяет основную часть раньше, чем чистит карту,
+        // так что пользователь виден хотя бы в одной из них
+        final List<UserSearchDto> added = new ArrayList<>();
+        for (final UserSearchDto user : recent.tailMap(afterId, false).values()) {
+            if (added.size() == limit) {
+                break;
+            }
+            if (user.getFirstName().startsWith(firstPrefix) && user.getLastName().startsWith(lastPrefix)) {
+                added.add(user);
+            }
+        }
+        final List<UserSearchDto> indexed = segment.search(firstPrefix, lastPrefix, afterId, limit);
+        return added.isEmpty() ? indexed : merge(indexed, added, limit);
+    }
+
+    /**
+     * Добавляет пользователя в индекс; повторное добавление ничего не меняет.
+     * Пользователи без имени или фамилии не добавляются: {@code LIKE} их не находит.
+     *
+     * @param id        идентификатор пользователя
+     * @param firstName имя
+     * @param lastName  фамилия
+     */
+    public void add(final Long id, final String firstName, final String lastName) {
+        if (!enabled || id == null || firstName == null || lastName == null || segment.contains(id)) {
+            return;
+        }
+        recent.putIfAbsent(id, new UserSearchDto(id, firstName, lastName));
+    }
+
+    /**
+     * Дочитывает пользователей, зарегистрированных через другие экземпляры, и сливает добавленных
+     * с основной частью, когда их набралось много. Если индекс еще не построен (БД была недоступна при запуске),
+     * строит его.
+     */
+    @Scheduled(initialDelayString = "${search.index.catch-up-ms:60000}",
+            fixedDelayString = "${search.index.catch-up-ms:60000}")
+    public synchronized void catchUp() {
+        if (!enabled) {
+            return;
+        }
+        if (!ready) {
+            build();
+            return;
+        }
+        final long maxId = recent.isEmpty() ? segment.maxId() : Math.max(segment.maxId(), recent.lastKey());
+        try {
+            scan(Math.max(0, maxId - catchUpOverlap), user -> add(user.getId(), user.getFirstName(),
+                    user.getLastName()));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось дочитать новых пользователей в индекс поиска: {}", e.getMessage());
+        }
+        if (recent.size() >= compactThreshold) {
+            compact();
+        }
+    }
+
+    /** Сливает добавленных пользователей с основной частью */
+    synchronized void compact() {
+        final NavigableMap<Long, UserSearchDto> pending = new ConcurrentSkipListMap<>(recent);
+        segment = segment.merge(pending.values());
+        for (final Map.Entry<Long, UserSearchDto> entry : pending.entrySet()) {
+            recent.remove(entry.getKey(), entry.getValue());
+        }
+        log.info("В индекс поиска влито {} добавленных пользователей, всего {}", pending.size(), segment.size());
+    }
+
+    /** Строит индекс целиком одним проходом по users */
+    private synchronized void build() {
+        final long start = System.nanoTime();
+        final NameSegment.Builder builder = new NameSegment.Builder();
+        try {
+            scan(0, user -> builder.add(user.getId(), user.getFirstName(), user.getLastName()));
+        } catch (DataAccessException e) {
+            log.warn("Индекс поиска не построен, поиск идет в БД: {}", e.getMessage());
+            return;
+        }
+        segment = builder.build();
+        // Регистрации за время прохода могли попасть и в проход, и в добавленные
+        recent.keySet().removeIf(segment::contains);
+        ready = true;
+        buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Индекс поиска построен за {} мс: {} пользователей", buildMs, segment.size());
+    }
+
+    /**
+     * Читает пользователей с id больше заданного по возрастанию id, без пустых имен и фамилий.
+     *
+     * @param afterId  с какого id (не включая)
+     * @param consumer получатель
+     */
+    private void scan(final long afterId, final Consumer<UserSearchDto> consumer) {
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(SCAN_SQL, resultSet -> {
+            final String firstName = resultSet.getString(2);
+            final String lastName = resultSet.getString(3);
+            if (firstName != null && lastName != null) {
+                consumer.accept(new UserSearchDto(resultSet.getLong(1), firstName, lastName));
+            }
+        }, afterId));
+    }
+
+    /** Первые limit пользователей из двух отсортированных по id списков */
+    private static List<UserSearchDto> merge(final List<UserSearchDto> indexed, final List<UserSearchDto> added,
+                                             final int limit) {
+        final List<UserSearchDto> merged = new ArrayList<>(Math.min(limit, indexed.size() + added.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < indexed.size() || j < added.size())) {
+            if (j == added.size()
+                    || i < indexed.size() && indexed.get(i).getId() < added.get(j).getId()) {
+                merged.add(indexed.get(i++));
+            } else if (i < indexed.size() && indexed.get(i).getId().equals(added.get(j).getId())) {
+                // Пользователь уже влит в основную часть, но еще не убран из добавленных
+                merged.add(indexed.get(i++));
+                j++;
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.otus.orlov.search;
+
+/**
+ * Событие о регистрации пользователя. Публикуется в транзакции регистрации,
+ * обрабатывается после ее фиксации ({@link ru.otus.orlov.listeners.UserRegisteredListener}).
+ *
+ * @param id        идентификатор пользователя
+ * @param firstName имя
+ * @param lastName  фамилия
+ */
+public record UserRegisteredEvent(Long id, String firstName, String lastName) {
+}
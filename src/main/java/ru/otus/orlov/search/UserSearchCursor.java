@@ -0,0 +1,36 @@
+package ru.otus.orlov.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import ru.otus.orlov.exceptions.InvalidCursorException;
+
+/**
+ * Позиция в результатах поиска пользователей для keyset-пагинации: id последнего отданного пользователя.
+ * Клиенту передается в виде непрозрачной base64url-строки.
+ *
+ * @param id идентификатор последнего пользователя страницы
+ */
+public record UserSearchCursor(long id) {
+
+    /** Кодирует курсор в непрозрачную строку */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента.
+     *
+     * @param value закодированный курсор
+     * @return позиция в результатах поиска
+     * @throws InvalidCursorException если курсор поврежден
+     */
+    public static UserSearchCursor decode(final String value) {
+        try {
+            return new UserSearchCursor(Long.parseLong(
+                    new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)));
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidCursorException("Некорректный курсор поиска: " + value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.otus.orlov.security;
+
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.entity.Token;
+import ru.otus.orlov.repositories.UserRepository;
+
+/** Проверка access-токена: подпись, срок действия и срок, сохраненный в БД */
+@Component
+@RequiredArgsConstructor
+public class AccessTokenVerifier {
+    /** Утилиты для работы с JWT */
+    private final JwtUtils jwtUtils;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /**
+     * Валиден ли токен
+     *
+     * @param jwt         access-токен
+     * @param userDetails пользователь из токена
+     * @return true, если токен подписан, не истек и не отозван
+     */
+    public boolean isValid(final String jwt, final UserDetails userDetails) {
+        final Token token = userRepository.findTokenByUserEmail(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "Пользователь с email %s не найден".formatted(userDetails.getUsername())));
+
+        return token.getAccessTokenExpiration() != null
+                && !token.getAccessTokenExpiration().isBefore(LocalDateTime.now())
+                && jwtUtils.validateToken(jwt, userDetails);
+    }
+}
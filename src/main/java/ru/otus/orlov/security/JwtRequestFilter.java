@@ -36,6 +36,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     /** Утилиты для работы с JWT */
     private final JwtUtils jwtUtils;
 
+    /** Проверка access-токена */
+    private final AccessTokenVerifier accessTokenVerifier;
+
     /** Репозиторий для работы с данными пользователя */
     private final UserRepository userRepository;
 
@@ -62,7 +65,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             return;
         }
         final UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-        if (!isTokenValid(jwt, userDetails)) {
+        if (!accessTokenVerifier.isValid(jwt, userDetails)) {
             if (isRefreshTokenValid(email)) {
                 final String newAccessToken = jwtUtils.generateToken(userDetails);
                 response.setHeader("New-Access-Token", newAccessToken);
@@ -83,17 +86,6 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         return null;
     }
 
-    /** Валиден ли токен */
-    private boolean isTokenValid(final String jwt, final UserDetails userDetails) {
-        final Token token = userRepository.findTokenByUserEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "Пользователь с email %s не найден".formatted(userDetails.getUsername())));
-
-        return token.getAccessTokenExpiration() != null
-                && !token.getAccessTokenExpiration().isBefore(LocalDateTime.now())
-                && jwtUtils.validateToken(jwt, userDetails);
-    }
-
     /** Валиден ли Рефреш Токен */
     private boolean isRefreshTokenValid(final String email) {
         final Token token = userRepository.findTokenByUserEmail(email)
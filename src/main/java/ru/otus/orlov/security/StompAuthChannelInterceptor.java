@@ -0,0 +1,79 @@
+package ru.otus.orlov.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.repositories.UserRepository;
+
+/**
+ * Аутентификация STOMP-сессии по тому же JWT, что и HTTP-запросы ({@link JwtRequestFilter}).
+ * Токен передается в заголовке Authorization кадра CONNECT, без валидного токена сессия не открывается.
+ * Подписки разрешены только на пользовательские назначения /user/..., чужие сессии недоступны.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    /** Заголовок авторизации */
+    private static final String AUTHORIZATION = "Authorization";
+
+    /** Префикс токена */
+    private static final String BEARER = "Bearer ";
+
+    /** Префикс пользовательских назначений */
+    private static final String USER_DESTINATION_PREFIX = "/user/";
+
+    /** Сервис для работы с пользователями */
+    private final UserDetailsServiceImpl userDetailsService;
+
+    /** Утилиты для работы с JWT */
+    private final JwtUtils jwtUtils;
+
+    /** Проверка access-токена */
+    private final AccessTokenVerifier accessTokenVerifier;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    @Override
+    public Message<?> preSend(@NonNull final Message<?> message, @NonNull final MessageChannel channel) {
+        final StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            final String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith(USER_DESTINATION_PREFIX)) {
+                throw new AccessDeniedException("Подписка разрешена только на назначения " + USER_DESTINATION_PREFIX);
+            }
+            return message;
+        }
+        if (accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        final String header = accessor.getFirstNativeHeader(AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER)) {
+            throw new BadCredentialsException("В кадре CONNECT нет заголовка Authorization с Bearer-токеном");
+        }
+        final String jwt = header.substring(BEARER.length());
+        final String email = jwtUtils.extractUsername(jwt);
+        final UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        if (!accessTokenVerifier.isValid(jwt, userDetails)) {
+            throw new BadCredentialsException("Access Token истек или недействителен");
+        }
+        final Long userId = userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь с email %s не найден".formatted(email)));
+        accessor.setUser(new UserIdPrincipal(userId, email));
+        return message;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.otus.orlov.security;
+
+import java.security.Principal;
+
+/**
+ * Пользователь WebSocket-сессии. Имя принципала - идентификатор пользователя,
+ * поэтому сообщения адресуются через {@code convertAndSendToUser(String.valueOf(userId), ...)}.
+ *
+ * @param userId идентификатор пользователя
+ * @param email  email пользователя
+ */
+public record UserIdPrincipal(long userId, String email) implements Principal {
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+}
@@ -1,8 +1,36 @@
 package ru.otus.orlov.services;
 
+import java.util.Collection;
+import java.util.List;
+import ru.otus.orlov.dto.CacheStatsDto;
+
 /** Сервис кэша */
 public interface CacheService {
     /** Проверить содержимое кэша */
     Object getCachedValue(final String cacheName,
                           final Object key);
+
+    /**
+     * Сбрасывает ключи кэша на всех экземплярах приложения.
+     *
+     * @param cacheName имя кэша
+     * @param keys      ключи
+     */
+    void evict(final String cacheName, final Collection<Long> keys);
+
+    /**
+     * Самые часто читаемые ключи кэша этого экземпляра.
+     *
+     * @param cacheName имя кэша
+     * @param limit     сколько вернуть
+     * @return ключи, самые горячие первыми
+     */
+    List<Object> getHottestKeys(final String cacheName, final int limit);
+
+    /**
+     * Статистика всех кэшей этого экземпляра.
+     *
+     * @return статистика по каждому кэшу
+     */
+    List<CacheStatsDto> getStats();
 }
@@ -1,9 +1,17 @@
 package ru.otus.orlov.services;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.dto.CacheStatsDto;
+import ru.otus.orlov.exceptions.NotFoundException;
 
 
 /** Сервис кэша */
@@ -12,7 +20,7 @@ import org.springframework.stereotype.Service;
 public class CacheServiceImpl implements CacheService {
 
     /** Менеджер кэша */
-    private final CacheManager cacheManager;
+    private final TwoLevelCacheManager cacheManager;
 
     /** Проверить содержимое кэша */
     public Object getCachedValue(final String cacheName,
@@ -26,4 +34,46 @@ public class CacheServiceImpl implements CacheService {
         }
         return null;
     }
+
+    public void evict(final String cacheName, final Collection<Long> keys) {
+        findCache(cacheName).evictAll(keys);
+    }
+
+    public List<Object> getHottestKeys(final String cacheName, final int limit) {
+        return findCache(cacheName).hottestKeys(limit);
+    }
+
+    public List<CacheStatsDto> getStats() {
+        return cacheManager.getCacheNames().stream()
+                .map(cacheName -> toDto(findCache(cacheName)))
+                .toList();
+    }
+
+    /** Кэш по имени */
+    private TwoLevelCache findCache(final String cacheName) {
+        final TwoLevelCache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            throw new NotFoundException("Кэш %s не найден".formatted(cacheName));
+        }
+        return cache;
+    }
+
+    private static CacheStatsDto toDto(final TwoLevelCache cache) {
+        final CacheStats stats = cache.localStats();
+        final Timer loads = cache.loads().loadTimer();
+        return new CacheStatsDto(
+                cache.getName(),
+                cache.localSize(),
+                cache.weightedSize(),
+                cache.maximum(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                stats.evictionWeight(),
+                cache.sharedHitCount(),
+                cache.sharedMissCount(),
+                loads.count(),
+                loads.mean(TimeUnit.MILLISECONDS));
+    }
 }
@@ -0,0 +1,32 @@
+package ru.otus.orlov.services;
+
+import ru.otus.orlov.entity.Post;
+
+/** Сервис раскладки изменений постов по лентам подписчиков (fan-out on write) */
+public interface FeedFanoutService {
+    /**
+     * Раскладывает пост по лентам подписчиков автора в зависимости от режима
+     * (материализованные ленты, индекс постов автора или feed_items), отправляет его подписчикам онлайн
+     * и сбрасывает их закэшированные ленты.
+     *
+     * @param authorId идентификатор автора поста
+     * @param post     опубликованный пост
+     */
+    void fanOut(final Long authorId, final Post post);
+
+    /**
+     * Сбрасывает закэшированные ленты подписчиков после изменения поста.
+     *
+     * @param authorId идентификатор автора поста
+     * @param post     измененный пост
+     */
+    void onPostUpdated(final Long authorId, final Post post);
+
+    /**
+     * Удаляет пост из материализованных лент подписчиков и сбрасывает их закэшированные ленты.
+     *
+     * @param authorId идентификатор автора поста
+     * @param postId   идентификатор удаленного поста
+     */
+    void onPostDeleted(final Long authorId, final Long postId);
+}
@@ -0,0 +1,136 @@
+package ru.otus.orlov.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.feed.AuthorPostIndex;
+import ru.otus.orlov.feed.FeedCacheInvalidator;
+import ru.otus.orlov.feed.FeedItemWriter;
+import ru.otus.orlov.feed.FeedMode;
+import ru.otus.orlov.feed.FeedStore;
+import ru.otus.orlov.feed.HighDegreeAuthors;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.DateUtil;
+import ru.otus.orlov.ws.FeedEventPublisher;
+
+/** Сервис раскладки изменений постов по лентам подписчиков (fan-out on write) */
+@Slf4j
+@Service
+public class FeedFanoutServiceImpl implements FeedFanoutService {
+    /** Хранилище материализованных лент */
+    private final FeedStore feedStore;
+
+    /** Репозиторий для работы с данными пользователя */
+    private final UserRepository userRepository;
+
+    /** Сброс закэшированных лент */
+    private final FeedCacheInvalidator feedCacheInvalidator;
+
+    /** Индекс последних постов авторов */
+    private final AuthorPostIndex authorPostIndex;
+
+    /** Фоновая запись строк ленты в feed_items, есть только в режиме TABLE */
+    private final ObjectProvider<FeedItemWriter> feedItemWriter;
+
+    /** Публикация новых постов подписчикам онлайн */
+    private final FeedEventPublisher feedEventPublisher;
+
+    /** Авторы с большим числом подписчиков */
+    private final HighDegreeAuthors highDegreeAuthors;
+
+    /** Режим построения ленты */
+    private final FeedMode feedMode;
+
+    /** Посты, не разложенные по лентам, потому что автор читается через pull */
+    private final Counter skippedFanouts;
+
+    /** Число подписчиков автора при раскладке - по нему подбирается порог гибридного режима */
+    private final DistributionSummary fanoutFollowers;
+
+    public FeedFanoutServiceImpl(final FeedStore feedStore,
+                                 final UserRepository userRepository,
+                                 final FeedCacheInvalidator feedCacheInvalidator,
+                                 final AuthorPostIndex authorPostIndex,
+                                 final ObjectProvider<FeedItemWriter> feedItemWriter,
+                                 final FeedEventPublisher feedEventPublisher,
+                                 final HighDegreeAuthors highDegreeAuthors,
+                                 @Value("${feed.mode:PULL}") final FeedMode feedMode,
+                                 final MeterRegistry meterRegistry) {
+        this.feedStore = feedStore;
+        this.userRepository = userRepository;
+        this.feedCacheInvalidator = feedCacheInvalidator;
+        this.authorPostIndex = authorPostIndex;
+        this.feedItemWriter = feedItemWriter;
+        this.feedEventPublisher = feedEventPublisher;
+        this.highDegreeAuthors = highDegreeAuthors;
+        this.feedMode = feedMode;
+        this.skippedFanouts = Counter.builder("feed.fanout.skipped")
+                .description("Посты авторов с большим числом подписчиков, не разложенные по лентам")
+                .register(meterRegistry);
+        this.fanoutFollowers = DistributionSummary.builder("feed.fanout.followers")
+                .description("Число подписчиков автора при раскладке поста")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void fanOut(final Long authorId, final Post post) {
+        if (feedMode == FeedMode.INDEX) {
+            // Достаточно обновить индекс автора, ленты подписчиков собираются при чтении
+            authorPostIndex.add(authorId, post.getId(), DateUtil.asEpochMilli(post.getCreatedAt()));
+        }
+        if (isPulledAtRead(authorId)) {
+            skippedFanouts.increment();
+            return;
+        }
+        final List<Long> followerIds = userRepository.findFollowerIdsByUserId(authorId);
+        fanoutFollowers.record(followerIds.size());
+        feedEventPublisher.publish(followerIds, authorId, post);
+        if (feedMode == FeedMode.TABLE) {
+            // Кэш лент сбрасывается писателем после записи пачки
+            feedItemWriter.getObject().enqueue(followerIds, post.getId(), post.getCreatedAt());
+            return;
+        }
+        if (feedMode.usesFanout()) {
+            final int delivered = feedStore.push(followerIds, post.getId(), DateUtil.asEpochMilli(post.getCreatedAt()));
+            log.info("Пост {} разложен в {} лент из {} подписчиков", post.getId(), delivered, followerIds.size());
+        }
+        // Закэшированные страницы ленты подписчиков устарели
+        feedCacheInvalidator.invalidate(followerIds);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void onPostUpdated(final Long authorId, final Post post) {
+        // Ленты хранят только идентификаторы, достаточно сбросить закэшированные окна с постами автора
+        feedCacheInvalidator.invalidateAuthor(authorId);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void onPostDeleted(final Long authorId, final Long postId) {
+        if (feedMode == FeedMode.INDEX) {
+            authorPostIndex.remove(authorId, postId);
+        }
+        if ((feedMode == FeedMode.PUSH || feedMode == FeedMode.HYBRID) && !isPulledAtRead(authorId)) {
+            final int removed = feedStore.remove(userRepository.findFollowerIdsByUserId(authorId), postId);
+            log.info("Пост {} удален из {} лент", postId, removed);
+        }
+        // Строки feed_items удаляются каскадно вместе с постом, закэшированные окна с постами автора
+        // сбрасываются одним увеличением поколения - и для авторов, чьи посты подмешиваются при чтении
+        feedCacheInvalidator.invalidateAuthor(authorId);
+    }
+
+    /** Посты автора не раскладываются, а подмешиваются в ленты при чтении (гибридный режим) */
+    private boolean isPulledAtRead(final Long authorId) {
+        return feedMode == FeedMode.HYBRID && highDegreeAuthors.contains(authorId);
+    }
+}
@@ -1,15 +1,60 @@
 package ru.otus.orlov.services;
 
+import java.util.concurrent.CompletableFuture;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostCreateDto;
 import ru.otus.orlov.entity.Post;
 
 /** Сервис работы с постами */
 public interface PostService {
-    /** Получить посты друзей по ид */
-    PageImplDto<Post> getFeed(final Long userId,
+    /** Наибольший размер страницы ленты */
+    int MAX_PAGE_SIZE = 1000;
+
+    /** Получить посты друзей по ид, не блокируя вызывающий поток на время ожидания ответа */
+    CompletableFuture<PageImplDto<Post>> getFeed(final Long userId,
                               final int offset,
                               final int limit);
 
-    /** Метод для обработки запросов из очереди */
-    void processPostRequest(final byte[] messageBytes);
+    /**
+     * Получить страницу ленты по курсору (keyset-пагинация по created_at и id), без подсчета общего количества.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор из предыдущей страницы, пустой - первая страница
+     * @param limit  размер страницы, приводится к отрезку [1, {@link #MAX_PAGE_SIZE}]
+     * @return страница постов и курсор следующей страницы
+     */
+    CursorPageDto<Post> getFeedByCursor(final Long userId,
+                                        final String cursor,
+                                        final int limit);
+
+    /**
+     * Создать пост от имени пользователя. Раскладка по лентам подписчиков идет асинхронно после фиксации.
+     *
+     * @param authorEmail email автора
+     * @param dto         контент поста
+     * @return созданный пост
+     */
+    Post createPost(final String authorEmail, final PostCreateDto dto);
+
+    /**
+     * Изменить контент поста автора.
+     *
+     * @param authorEmail email автора
+     * @param postId      идентификатор поста
+     * @param dto         новый контент
+     * @return измененный пост
+     */
+    Post updatePost(final String authorEmail, final Long postId, final PostCreateDto dto);
+
+    /**
+     * Удалить пост автора.
+     *
+     * @param authorEmail email автора
+     * @param postId      идентификатор поста
+     */
+    void deletePost(final String authorEmail, final Long postId);
+
+    /** Метод для обработки запросов из очереди, возвращает сериализованную страницу ленты для ответа */
+    byte[] processPostRequest(final byte[] messageBytes);
 }
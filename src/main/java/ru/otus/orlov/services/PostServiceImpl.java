@@ -1,29 +1,46 @@
 package ru.otus.orlov.services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import java.io.IOException;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostCreateDto;
 import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.exceptions.InvalidPostException;
+import ru.otus.orlov.exceptions.NotFoundException;
+import ru.otus.orlov.feed.FeedCodec;
+import ru.otus.orlov.feed.FeedCursor;
+import ru.otus.orlov.feed.FeedMode;
+import ru.otus.orlov.feed.FeedSource;
+import ru.otus.orlov.feed.FeedWindowCache;
+import ru.otus.orlov.feed.PostChangedEvent;
 import ru.otus.orlov.repositories.PostRepository;
 import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.rpc.FeedRpcClient;
 
 /** Сервис работы с постами */
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class PostServiceImpl implements PostService {
+    /** Максимальная длина контента, как у колонки posts.content */
+    private static final int MAX_CONTENT_LENGTH = 1000;
+
+    /** Источники ленты для всех режимов */
+    private final List<FeedSource> feedSources;
+
+    /** RPC-клиент для запросов ленты через очередь */
+    private final FeedRpcClient feedRpcClient;
+
+    /** Общие reader/writer запросов и ответов ленты */
+    private final FeedCodec feedCodec;
 
     /** Репозиторий для работы с постами */
     private final PostRepository postRepository;
@@ -31,56 +48,105 @@ public class PostServiceImpl implements PostService {
     /** Репозиторий для работы с данными пользователя */
     private final UserRepository userRepository;
 
-    /** Template Очереди Rabbit */
-    private final RabbitTemplate rabbitTemplate;
+    /** Кэш окон ленты */
+    private final FeedWindowCache feedWindowCache;
 
+    /** Публикация событий об изменении постов */
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "feed", key = "#userId")
-    public PageImplDto<Post> getFeed(final Long userId, final int offset, final int limit) {
+    /** Режим построения ленты: PULL - запрос к БД, PUSH - материализованная лента */
+    @Value("${feed.mode:PULL}")
+    private FeedMode feedMode;
+
+
+    public CompletableFuture<PageImplDto<Post>> getFeed(final Long userId, final int offset, final int limit) {
+        return feedWindowCache.getPage(userId, offset, limit, this::requestPage);
+    }
+
+    /** Запрос страницы ленты через очередь, минуя кэш */
+    private CompletableFuture<PageImplDto<Post>> requestPage(final Long userId, final int offset, final int limit) {
         log.info("Идем в БД за данными по пользователю с id {}", userId);
-        // Отправляем запрос в очередь (передаем userId, offset и limit как сообщение)
-        rabbitTemplate.convertAndSend("postRequestQueue", new Object[]{userId, offset, limit});
-        // Ждем ответа из очереди
-        final byte[] responseBytes = (byte[]) rabbitTemplate
-                .receiveAndConvert("postResponseQueue", 5000);
-        if (responseBytes == null) {
-            throw new IllegalStateException("Не удалось извлечь записи из очереди");
-        }
-        // Десериализуем ответ в DTO
-        final ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule()); // Регистрируем модуль для поддержки Java 8 date/time
-        try {
-            return objectMapper.readValue(responseBytes, new TypeReference<PageImplDto<Post>>() {
-            });
-        } catch (final IOException e) {
-            log.error("Ошибка при десериализации сообщения", e);
-            throw new RuntimeException("Ошибка при обработке сообщения", e);
+        // Отправляем запрос в очередь (передаем userId, offset и limit как сообщение),
+        // ответ придет в очередь ответов этого экземпляра с тем же correlationId
+        return feedRpcClient.call("postRequestQueue", new long[]{userId, offset, limit})
+                .thenApply(feedCodec::readPage);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<Post> getFeedByCursor(final Long userId, final String cursor, final int limit) {
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Запрашиваем на один пост больше, чтобы понять, есть ли следующая страница
+        final List<Post> posts;
+        if (cursor == null || cursor.isBlank()) {
+            posts = postRepository.findFeedFirstPage(userId, pageSize + 1);
+        } else {
+            final FeedCursor position = FeedCursor.decode(cursor);
+            posts = postRepository.findFeedPageAfter(userId, position.createdAt(), position.id(), pageSize + 1);
         }
+        return FeedCursor.page(posts, pageSize);
+    }
+
+    @Transactional
+    public Post createPost(final String authorEmail, final PostCreateDto dto) {
+        final Long authorId = findAuthorId(authorEmail);
+        final Post post = postRepository.save(new Post(null, validContent(dto), LocalDateTime.now(), authorId));
+        // Раскладка начнется после фиксации транзакции и не задерживает ответ
+        eventPublisher.publishEvent(new PostChangedEvent(PostChangedEvent.Type.CREATED, post));
+        return post;
     }
 
-    @RabbitListener(queues = "postRequestQueue")
-    public void processPostRequest(final byte[] messageBytes) {
+    @Transactional
+    public Post updatePost(final String authorEmail, final Long postId, final PostCreateDto dto) {
+        final Post post = findAuthorPost(authorEmail, postId);
+        post.setContent(validContent(dto));
+        eventPublisher.publishEvent(new PostChangedEvent(PostChangedEvent.Type.UPDATED, post));
+        return post;
+    }
+
+    @Transactional
+    public void deletePost(final String authorEmail, final Long postId) {
+        final Post post = findAuthorPost(authorEmail, postId);
+        postRepository.delete(post);
+        eventPublisher.publishEvent(new PostChangedEvent(PostChangedEvent.Type.DELETED, post));
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] processPostRequest(final byte[] messageBytes) {
         log.info("Обработка запроса на получение постов");
-        final ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule()); // Регистрируем модуль для поддержки Java 8 date/time
-        try {
-            final Object[] requestData = objectMapper.readValue(messageBytes, Object[].class);
-            final Long userId = ((Number) requestData[0]).longValue();
-            final int offset = ((Number) requestData[1]).intValue();
-            final int limit = ((Number) requestData[2]).intValue();
-            final Set<Long> friendIds = userRepository.findFriendIdsByUserId(userId);
-            final PageImpl<Post> posts = postRepository
-                    .findPostsByFriendIds(friendIds, PageRequest.of(offset / limit, limit));
-            final PageImplDto<Post> dto = new PageImplDto<>();
-            dto.setContent(posts.getContent());
-            dto.setPageNumber(posts.getPageable().getPageNumber());
-            dto.setPageSize(posts.getPageable().getPageSize());
-            dto.setTotalElements(posts.getTotalElements());
-            rabbitTemplate.convertAndSend("postResponseQueue", objectMapper.writeValueAsBytes(dto));
-        } catch (final IOException e) {
-            log.error("Ошибка при десериализации сообщения", e);
-            throw new RuntimeException("Ошибка при обработке сообщения", e);
+        final long[] request = feedCodec.readRequest(messageBytes);
+        final PageImplDto<Post> dto = currentFeedSource().load(request[0], (int) request[1], (int) request[2]);
+        return feedCodec.writePage(dto);
+    }
+
+    /** Идентификатор автора по email */
+    private Long findAuthorId(final String authorEmail) {
+        return userRepository.findIdByEmail(authorEmail)
+                .orElseThrow(() -> new NotFoundException("Пользователь с email %s не найден".formatted(authorEmail)));
+    }
+
+    /** Пост автора; чужой пост для автора не существует */
+    private Post findAuthorPost(final String authorEmail, final Long postId) {
+        return postRepository.findByIdAndUserId(postId, findAuthorId(authorEmail))
+                .orElseThrow(() -> new NotFoundException("Пост с id %d не найден".formatted(postId)));
+    }
+
+    /** Проверенный контент поста */
+    private static String validContent(final PostCreateDto dto) {
+        final String content = dto.getContent();
+        if (content == null || content.isBlank()) {
+            throw new InvalidPostException("Контент поста не может быть пустым");
         }
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            throw new InvalidPostException("Контент поста длиннее %d символов".formatted(MAX_CONTENT_LENGTH));
+        }
+        return content;
+    }
+
+    /** Источник ленты для текущего режима */
+    private FeedSource currentFeedSource() {
+        return feedSources.stream()
+                .filter(source -> source.mode() == feedMode)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Нет источника ленты для режима " + feedMode));
     }
 }
@@ -1,9 +1,12 @@
 package ru.otus.orlov.services;
 
 import java.util.List;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.UserCreateDto;
 import ru.otus.orlov.dto.UserDto;
-import ru.otus.orlov.entity.User;
+import ru.otus.orlov.dto.UserLookupDto;
+import ru.otus.orlov.dto.UserSearchDto;
+import ru.otus.orlov.search.SearchMode;
 
 /**
  * Сервис для работы с пользователями.
@@ -33,10 +36,28 @@ public interface UserService {
     UserDto create(final UserCreateDto userCreateDto);
 
     /**
-     * Ищет пользователей по префиксу имени и фамилии.
-     * Делегирует вызов репозиторию для выполнения поиска в базе данных.
+     * Находит профили многих пользователей: сначала в кэше профилей, промахи - одним запросом к БД.
      *
-     * @return список пользователей, удовлетворяющих условиям поиска.
+     * @param ids идентификаторы пользователей, не больше {@code users.batch.max-ids}
+     * @return по элементу на каждый запрошенный id в порядке запроса, ненайденные - с признаком found = false
+     * @throws ru.otus.orlov.exceptions.TooManyIdsException если идентификаторов больше допустимого
      */
-    List<User> searchUsersByFirstNameAndLastName(final String firstName, final String lastName);
+    List<UserLookupDto> findAllByIds(final List<Long> ids);
+
+    /**
+     * Ищет пользователей по имени и фамилии с курсорной пагинацией по id.
+     *
+     * @param firstName префикс имени или, в режиме {@link SearchMode#TRIGRAM}, его часть
+     * @param lastName  префикс фамилии или, в режиме {@link SearchMode#TRIGRAM}, ее часть
+     * @param mode      режим поиска
+     * @param cursor    курсор следующей страницы, null или пустой - первая страница
+     * @param limit     размер страницы, ограничивается сверху {@code search.max-limit}
+     * @return id, имя и фамилия пользователей страницы по возрастанию id и курсор следующей страницы
+     * @throws ru.otus.orlov.exceptions.InvalidCursorException если курсор поврежден
+     * @throws ru.otus.orlov.exceptions.InvalidSearchException если в режиме {@link SearchMode#TRIGRAM} имя
+     *                                                         или фамилия короче {@code search.trigram.min-length}
+     */
+    CursorPageDto<UserSearchDto> searchUsersByFirstNameAndLastName(final String firstName, final String lastName,
+                                                                   final SearchMode mode, final String cursor,
+                                                                   final int limit);
 }
@@ -1,28 +1,53 @@
 package ru.otus.orlov.services;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
 import ru.otus.orlov.customers.Gender;
+import ru.otus.orlov.dto.CursorPageDto;
 import ru.otus.orlov.dto.UserCreateDto;
 import ru.otus.orlov.dto.UserDto;
+import ru.otus.orlov.dto.UserFriendRef;
+import ru.otus.orlov.dto.UserInterestRef;
+import ru.otus.orlov.dto.UserLookupDto;
+import ru.otus.orlov.dto.UserProfile;
+import ru.otus.orlov.dto.UserSearchDto;
+import ru.otus.orlov.dto.UserSearchRow;
 import ru.otus.orlov.entity.City;
 import ru.otus.orlov.entity.Interest;
 import ru.otus.orlov.entity.Role;
 import ru.otus.orlov.entity.User;
+import ru.otus.orlov.exceptions.InvalidSearchException;
 import ru.otus.orlov.exceptions.NotFoundException;
 import ru.otus.orlov.exceptions.RoleNotFoundException;
+import ru.otus.orlov.exceptions.TooManyIdsException;
 import ru.otus.orlov.mapper.UserMapper;
 import ru.otus.orlov.repositories.CityRepository;
 import ru.otus.orlov.repositories.InterestRepository;
 import ru.otus.orlov.repositories.RoleRepository;
 import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.search.SearchMode;
+import ru.otus.orlov.search.UserNameIndex;
+import ru.otus.orlov.search.UserRegisteredEvent;
+import ru.otus.orlov.search.UserSearchCursor;
+import ru.otus.orlov.util.LikeUtil;
 
 
 /**
@@ -38,6 +63,8 @@ import ru.otus.orlov.repositories.UserRepository;
 @RequiredArgsConstructor
 @Service
 public class UserServiceImpl implements UserService {
+    /** Имя кэша профилей пользователей */
+    public static final String CACHE_NAME = "users";
 
     /**
      * Репозиторий для работы с данными пользователей.
@@ -75,25 +102,76 @@ public class UserServiceImpl implements UserService {
      */
     private final PasswordEncoder passwordEncoder;
 
+    /** Индекс поиска по имени и фамилии в памяти */
+    private final UserNameIndex userNameIndex;
+
+    /** Публикация событий о регистрации пользователей */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Двухуровневый кэш, в том числе кэш профилей */
+    private final TwoLevelCacheManager cacheManager;
+
+    /** Наибольшее число идентификаторов в пакетном запросе профилей */
+    @Value("${users.batch.max-ids:100}")
+    private int maxBatchIds;
+
+    /** Наибольший размер страницы поиска */
+    @Value("${search.max-limit:1000}")
+    private int maxSearchLimit;
+
+    /** Наименьшая длина имени и фамилии для поиска по триграммам */
+    @Value("${search.trigram.min-length:3}")
+    private int trigramMinLength;
+
 
     /**
      * Находит пользователя по его идентификатору и возвращает его DTO-представление.
+     * Профиль читается тремя узкими запросами: строка профиля с городом, названия интересов и id друзей.
+     * Сущности друзей, посты, роли и токен не загружаются - в DTO от них нужны только id.
      *
      * @param id идентификатор пользователя.
      * @return DTO-представление пользователя.
      * @throws NotFoundException если пользователь с указанным идентификатором не найден.
      */
+    @Cacheable(cacheNames = CACHE_NAME, key = "#id", sync = true)
     @Transactional(readOnly = true)
     @Override
     public UserDto findById(final Long id) {
-        return userRepository.findById(id)
-                .map(userMapper::toDto)
+        return userRepository.findProfileById(id)
+                .map(profile -> userMapper.toDto(profile, userRepository.findInterestDescriptionsByUserId(id),
+                        userRepository.findFriendIdsByUserId(id)))
                 .orElseThrow(() -> new NotFoundException(
                         String.format("Не удалось получить юзера по Id: %d", id)));
     }
 
     /**
-     * Создает нового пользователя на основе данных из {@link UserCreateDto}
+     * Находит профили многих пользователей. Профили из кэша {@value #CACHE_NAME} отдаются сразу, промахи
+     * читаются тремя запросами на всю пачку - профили, интересы и друзья по {@code IN} - и кладутся в кэш.
+     *
+     * @param ids идентификаторы пользователей.
+     * @return результаты в порядке запроса, ненайденные пользователи - с признаком found = false.
+     * @throws TooManyIdsException если идентификаторов больше {@code users.batch.max-ids}.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<UserLookupDto> findAllByIds(final List<Long> ids) {
+        if (ids.size() > maxBatchIds) {
+            throw new TooManyIdsException(String.format("Можно запросить не больше %d пользователей, запрошено %d",
+                    maxBatchIds, ids.size()));
+        }
+        final List<Long> keys = ids.stream().filter(Objects::nonNull).toList();
+        final Map<Long, UserDto> users = keys.isEmpty() ? Map.of() : profileCache().getAll(keys, this::loadProfiles);
+        return ids.stream()
+                .map(id -> {
+                    final UserDto user = id == null ? null : users.get(id);
+                    return new UserLookupDto(id, user != null, user);
+                })
+                .toList();
+    }
+
+    /**
+     * Создает нового пользователя на основе данных из {@link UserCreateDto}.
+     * После фиксации транзакции пользователь добавляется в индекс поиска ({@link UserRegisteredEvent}).
      *
      * @param userCreateDto DTO с данными для создания пользователя.
      * @return DTO-представление созданного пользователя.
@@ -123,19 +201,93 @@ public class UserServiceImpl implements UserService {
                 null,
                 null
         );
-        return userMapper.toDto(userRepository.save(userToSave));
+        final User user = userRepository.save(userToSave);
+        eventPublisher.publishEvent(new UserRegisteredEvent(user.getId(), user.getFirstName(), user.getLastName()));
+        return userMapper.toDto(user);
     }
 
     /**
-     * Реализация метода поиска пользователей по префиксу имени и фамилии.
-     * Использует репозиторий для выполнения запроса к базе данных.
+     * Реализация метода поиска пользователей по имени и фамилии.
+     * Префиксы ищутся в индексе в памяти ({@link UserNameIndex}), а пока он не построен - запросом к базе данных.
+     * Поиск по триграммам всегда идет в базу данных, по GIN-индексам pg_trgm. Строки запросов читаются курсором
+     * JDBC и не больше размера страницы.
      *
-     * @return список пользователей, удовлетворяющих условиям поиска.
+     * @return id, имя и фамилия пользователей страницы по возрастанию id и курсор следующей страницы.
      */
     @Transactional(readOnly = true)
     @Override
-    public List<User> searchUsersByFirstNameAndLastName(final String firstName, final String lastName) {
-        return userRepository.findByFirstNameAndLastName(firstName, lastName);
+    public CursorPageDto<UserSearchDto> searchUsersByFirstNameAndLastName(final String firstName,
+                                                                          final String lastName,
+                                                                          final SearchMode mode,
+                                                                          final String cursor,
+                                                                          final int limit) {
+        if (mode == SearchMode.TRIGRAM && (firstName.length() < trigramMinLength
+                || lastName.length() < trigramMinLength)) {
+            // Из строки короче трех символов не получить ни одной полной триграммы, и GIN-индекс не помогает
+            throw new InvalidSearchException("Для поиска по триграммам имя и фамилия должны быть не короче "
+                    + trigramMinLength + " символов");
+        }
+        final int pageSize = Math.max(1, Math.min(limit, maxSearchLimit));
+        // id пользователей положительные, первая страница начинается после 0
+        final long afterId = cursor == null || cursor.isBlank() ? 0 : UserSearchCursor.decode(cursor).id();
+        // Запрашиваем на одного пользователя больше, чтобы понять, есть ли следующая страница
+        final List<UserSearchDto> users;
+        if (mode == SearchMode.TRIGRAM) {
+            try (Stream<UserSearchRow> rows = userRepository.streamByFirstNameAndLastNameTrigram(firstName, lastName,
+                    LikeUtil.escape(firstName), LikeUtil.escape(lastName), afterId, pageSize + 1)) {
+                users = rows.map(row -> new UserSearchDto(row.getId(), row.getFirstName(), row.getLastName()))
+                        .toList();
+            }
+        } else if (userNameIndex.isReady()) {
+            users = userNameIndex.search(firstName, lastName, afterId, pageSize + 1);
+        } else {
+            try (Stream<UserSearchDto> rows = userRepository.streamByFirstNameAndLastName(firstName, lastName,
+                    afterId, Limit.of(pageSize + 1))) {
+                users = rows.toList();
+            }
+        }
+        if (users.size() <= pageSize) {
+            return new CursorPageDto<>(users, null);
+        }
+        final List<UserSearchDto> page = users.subList(0, pageSize);
+        return new CursorPageDto<>(page, new UserSearchCursor(page.get(pageSize - 1).getId()).encode());
+    }
+
+    /**
+     * Читает профили пользователей из БД: по одному запросу на профили, интересы и друзей всей пачки.
+     *
+     * @param ids идентификаторы пользователей
+     * @return профили найденных пользователей по id
+     */
+    private Map<Long, UserDto> loadProfiles(final Collection<Long> ids) {
+        final List<UserProfile> profiles = userRepository.findProfilesByIds(ids);
+        if (profiles.isEmpty()) {
+            return Map.of();
+        }
+        final List<Long> foundIds = profiles.stream().map(UserProfile::getId).toList();
+        final Map<Long, Set<String>> interests = new HashMap<>();
+        for (final UserInterestRef ref : userRepository.findInterestDescriptionsByUserIds(foundIds)) {
+            interests.computeIfAbsent(ref.getUserId(), userId -> new HashSet<>()).add(ref.getDescription());
+        }
+        final Map<Long, Set<Long>> friendIds = new HashMap<>();
+        for (final UserFriendRef ref : userRepository.findFriendIdsByUserIds(foundIds)) {
+            friendIds.computeIfAbsent(ref.getUserId(), userId -> new HashSet<>()).add(ref.getFriendId());
+        }
+        final Map<Long, UserDto> users = new HashMap<>();
+        for (final UserProfile profile : profiles) {
+            users.put(profile.getId(), userMapper.toDto(profile,
+                    interests.getOrDefault(profile.getId(), Collections.emptySet()),
+                    friendIds.getOrDefault(profile.getId(), Collections.emptySet())));
+        }
+        return users;
+    }
+
+    private TwoLevelCache profileCache() {
+        final TwoLevelCache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            throw new IllegalStateException("Кэш " + CACHE_NAME + " не настроен");
+        }
+        return cache;
     }
 
     /**
@@ -15,4 +15,11 @@ public class DateUtil {
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
     }
+
+    /** Конвертируем LocalDateTime в миллисекунды от начала эпохи */
+    public static long asEpochMilli(final LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
 }
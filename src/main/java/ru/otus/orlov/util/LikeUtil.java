@@ -0,0 +1,20 @@
+package ru.otus.orlov.util;
+
+/** Для подстановки пользовательских строк в шаблоны LIKE и ILIKE */
+public class LikeUtil {
+    /**
+     * Экранирует символы шаблона {@code %}, {@code _} и символ экранирования {@code \}, чтобы строка искалась
+     * в LIKE как есть. В PostgreSQL символ экранирования LIKE по умолчанию - {@code \}.
+     */
+    public static String escape(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.otus.orlov.util;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * {@link PageRequest} с произвольным смещением, не кратным размеру страницы.
+ * Нужен, чтобы страница из БД совпадала со срезом того же смещения из кэша.
+ */
+public class OffsetPageRequest extends PageRequest {
+    /** Смещение первой строки */
+    private final long offset;
+
+    public OffsetPageRequest(final long offset, final int limit) {
+        super((int) (offset / limit), limit, Sort.unsorted());
+        this.offset = offset;
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof OffsetPageRequest other && super.equals(other) && offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(offset);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.otus.orlov.ws;
+
+import java.util.Collection;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.FeedEventDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Публикует новые посты в topic exchange {@value #EXCHANGE} с ключом {@code user.<id подписчика>}.
+ * Сообщение получает только тот экземпляр приложения, к которому подписчик подключен по WebSocket,
+ * для подписчиков офлайн привязок нет, и брокер отбрасывает сообщение.
+ */
+@Component
+public class FeedEventPublisher {
+    /** Exchange событий ленты */
+    public static final String EXCHANGE = "feed.events";
+
+    /** Template Очереди Rabbit */
+    private final RabbitTemplate rabbitTemplate;
+
+    /** Включена ли доставка онлайн */
+    private final boolean enabled;
+
+    public FeedEventPublisher(final RabbitTemplate rabbitTemplate,
+                              @Value("${feed.ws.enabled:true}") final boolean enabled) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.enabled = enabled;
+    }
+
+    /** Ключ маршрутизации событий пользователя */
+    public static String routingKey(final long userId) {
+        return "user." + userId;
+    }
+
+    /** Включена ли доставка онлайн */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Публикует пост для каждого подписчика автора в одном канале RabbitMQ.
+     *
+     * @param followerIds идентификаторы подписчиков
+     * @param authorId    идентификатор автора
+     * @param post        новый пост
+     */
+    public void publish(final Collection<Long> followerIds, final Long authorId, final Post post) {
+        if (!enabled || followerIds.isEmpty()) {
+            return;
+        }
+        rabbitTemplate.invoke(operations -> {
+            for (final Long followerId : followerIds) {
+                operations.convertAndSend(EXCHANGE, routingKey(followerId),
+                        new FeedEventDto(followerId, post.getId(), authorId, post.getContent(), post.getCreatedAt()));
+            }
+            return null;
+        });
+    }
+}
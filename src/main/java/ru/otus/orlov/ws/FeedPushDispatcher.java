@@ -0,0 +1,183 @@
+package ru.otus.orlov.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.otus.orlov.dto.FeedEventDto;
+import ru.otus.orlov.dto.FeedPushDto;
+
+/**
+ * Принимает события ленты из очереди экземпляра и доставляет их клиентам в {@value #DESTINATION}.
+ * События копятся в ограниченном буфере пользователя и отправляются пачкой раз в {@code feed.ws.flush-ms}.
+ * При переполнении буфера действует {@link OverflowPolicy}, поэтому медленный клиент не накапливает память.
+ */
+@Slf4j
+@Component
+public class FeedPushDispatcher implements MessageListener {
+    /** Пользовательское назначение STOMP, клиент подписывается на /user/queue/feed */
+    public static final String DESTINATION = "/queue/feed";
+
+    /** Буферы пользователей */
+    private final Map<Long, UserBuffer> buffers = new ConcurrentHashMap<>();
+
+    /** Отправка сообщений в STOMP-сессии */
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /** Пользователи онлайн */
+    private final OnlineUsers onlineUsers;
+
+    /** Чтение событий из JSON */
+    private final ObjectMapper objectMapper;
+
+    /** Емкость буфера одного пользователя */
+    private final int capacity;
+
+    /** Политика переполнения буфера */
+    private final OverflowPolicy overflowPolicy;
+
+    /** Доставленные посты */
+    private final Counter deliveredPosts;
+
+    /** Посты, не доставленные из-за переполнения буфера */
+    private final Counter skippedPosts;
+
+    public FeedPushDispatcher(final SimpMessagingTemplate messagingTemplate,
+                              final OnlineUsers onlineUsers,
+                              final ObjectMapper objectMapper,
+                              @Value("${feed.ws.buffer-capacity:50}") final int capacity,
+                              @Value("${feed.ws.overflow:DROP}") final OverflowPolicy overflowPolicy,
+                              final MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.onlineUsers = onlineUsers;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.deliveredPosts = Counter.builder("feed.ws.posts.delivered")
+                .description("Посты, отправленные клиентам WebSocket")
+                .register(meterRegistry);
+        this.skippedPosts = Counter.builder("feed.ws.posts.skipped")
+                .description("Посты, не отправленные из-за переполнения буфера клиента")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry);
+        Gauge.builder("feed.ws.buffers", buffers, Map::size)
+                .description("Буферы доставки пользователям")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        final FeedEventDto event;
+        try {
+            event = objectMapper.readValue(message.getBody(), FeedEventDto.class);
+        } catch (final IOException e) {
+            log.warn("Не удалось прочитать событие ленты", e);
+            return;
+        }
+        if (!onlineUsers.isOnline(event.getUserId())) {
+            return;
+        }
+        final int skipped = buffers.computeIfAbsent(event.getUserId(), id -> new UserBuffer(capacity, overflowPolicy))
+                .offer(event);
+        if (skipped > 0) {
+            skippedPosts.increment(skipped);
+        }
+    }
+
+    /** Отправляет накопленные события пользователям онлайн */
+    @Scheduled(fixedDelayString = "${feed.ws.flush-ms:250}")
+    public void flush() {
+        final Iterator<Map.Entry<Long, UserBuffer>> iterator = buffers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Long, UserBuffer> entry = iterator.next();
+            if (!onlineUsers.isOnline(entry.getKey())) {
+                iterator.remove();
+                continue;
+            }
+            final FeedPushDto push = entry.getValue().drain();
+            if (push != null) {
+                messagingTemplate.convertAndSendToUser(String.valueOf(entry.getKey()), DESTINATION, push);
+                deliveredPosts.increment(push.getPosts().size());
+            }
+        }
+    }
+
+    /** Ограниченный буфер событий одного пользователя */
+    static final class UserBuffer {
+        /** События от старых к новым */
+        private final ArrayDeque<FeedEventDto> events;
+
+        /** Емкость буфера */
+        private final int capacity;
+
+        /** Политика переполнения */
+        private final OverflowPolicy policy;
+
+        /** Пропущенные с последней отправки события */
+        private int skipped;
+
+        UserBuffer(final int capacity, final OverflowPolicy policy) {
+            this.events = new ArrayDeque<>(capacity);
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Добавляет событие с учетом политики переполнения.
+         *
+         * @return сколько событий пропущено при этом добавлении
+         */
+        synchronized int offer(final FeedEventDto event) {
+            if (policy == OverflowPolicy.COALESCE && skipped > 0) {
+                // Клиент уже получит сигнал перечитать ленту
+                skipped++;
+                return 1;
+            }
+            if (events.size() < capacity) {
+                events.addLast(event);
+                return 0;
+            }
+            if (policy == OverflowPolicy.DROP) {
+                events.pollFirst();
+                events.addLast(event);
+                skipped++;
+                return 1;
+            }
+            final int coalesced = events.size() + 1;
+            events.clear();
+            skipped += coalesced;
+            return coalesced;
+        }
+
+        /**
+         * Забирает накопленные события.
+         *
+         * @return сообщение клиенту или null, если отправлять нечего
+         */
+        synchronized FeedPushDto drain() {
+            if (events.isEmpty() && skipped == 0) {
+                return null;
+            }
+            final List<FeedEventDto> posts = new ArrayList<>(events.size());
+            events.descendingIterator().forEachRemaining(posts::add);
+            final FeedPushDto push = new FeedPushDto(posts, skipped);
+            events.clear();
+            skipped = 0;
+            return push;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.otus.orlov.ws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import ru.otus.orlov.security.UserIdPrincipal;
+
+/**
+ * Пользователи, подключенные к этому экземпляру приложения по WebSocket.
+ * Для каждого пользователя очередь событий экземпляра привязывается к exchange по ключу {@code user.<id>},
+ * привязка снимается, когда закрыта последняя сессия пользователя.
+ * Сессии считаются под блокировкой ключа карты, а привязки меняются уже после нее по переходу между
+ * нулем и одной сессией: вызов брокера не держит блокировку и его ошибка не сбивает учет сессий.
+ */
+@Slf4j
+@Component
+public class OnlineUsers {
+    /** Сессии пользователей */
+    private final Map<Long, Set<String>> sessions = new ConcurrentHashMap<>();
+
+    /** Управление привязками RabbitMQ */
+    private final AmqpAdmin amqpAdmin;
+
+    /** Очередь событий этого экземпляра */
+    private final Queue feedEventsQueue;
+
+    /** Exchange событий ленты */
+    private final TopicExchange feedEventsExchange;
+
+    public OnlineUsers(final AmqpAdmin amqpAdmin,
+                       @Qualifier("feedEventsQueue") final Queue feedEventsQueue,
+                       final TopicExchange feedEventsExchange,
+                       final MeterRegistry meterRegistry) {
+        this.amqpAdmin = amqpAdmin;
+        this.feedEventsQueue = feedEventsQueue;
+        this.feedEventsExchange = feedEventsExchange;
+        Gauge.builder("feed.ws.online.users", sessions, Map::size)
+                .description("Пользователи, подключенные по WebSocket к этому экземпляру")
+                .register(meterRegistry);
+    }
+
+    /** Подключена ли хотя бы одна сессия пользователя */
+    public boolean isOnline(final long userId) {
+        return sessions.containsKey(userId);
+    }
+
+    @EventListener
+    public void onConnected(final SessionConnectedEvent event) {
+        if (!(event.getUser() instanceof UserIdPrincipal principal)) {
+            return;
+        }
+        final String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        final Set<String> created = ConcurrentHashMap.newKeySet();
+        final Set<String> userSessions = sessions.compute(principal.userId(), (userId, current) -> {
+            final Set<String> result = current != null ? current : created;
+            result.add(sessionId);
+            return result;
+        });
+        if (userSessions == created) {
+            bind(principal.userId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(final SessionDisconnectEvent event) {
+        if (!(event.getUser() instanceof UserIdPrincipal principal)) {
+            return;
+        }
+        final AtomicBoolean closedLast = new AtomicBoolean();
+        sessions.computeIfPresent(principal.userId(), (userId, current) -> {
+            current.remove(event.getSessionId());
+            if (!current.isEmpty()) {
+                return current;
+            }
+            closedLast.set(true);
+            return null;
+        });
+        if (closedLast.get()) {
+            unbind(principal.userId());
+            // Пользователь мог подключиться снова, пока снималась привязка, и его привязка снята вместе с ней
+            if (isOnline(principal.userId())) {
+                bind(principal.userId());
+            }
+        }
+    }
+
+    /**
+     * Восстанавливает привязки онлайн-пользователей.
+     * Очередь экземпляра эксклюзивная, после переподключения к брокеру она создается заново без привязок.
+     */
+    @Scheduled(fixedDelayString = "${feed.ws.rebind-ms:60000}")
+    public void rebind() {
+        sessions.keySet().forEach(this::bind);
+    }
+
+    private void bind(final Long userId) {
+        try {
+            amqpAdmin.declareBinding(binding(userId));
+        } catch (final AmqpException e) {
+            log.warn("Не удалось привязать события пользователя {}", userId, e);
+        }
+    }
+
+    private void unbind(final Long userId) {
+        try {
+            amqpAdmin.removeBinding(binding(userId));
+        } catch (final AmqpException e) {
+            log.warn("Не удалось снять привязку событий пользователя {}", userId, e);
+        }
+    }
+
+    private Binding binding(final Long userId) {
+        return BindingBuilder.bind(feedEventsQueue).to(feedEventsExchange).with(FeedEventPublisher.routingKey(userId));
+    }
+}
@@ -0,0 +1,10 @@
+package ru.otus.orlov.ws;
+
+/** Что делать, когда буфер доставки пользователю переполнен */
+public enum OverflowPolicy {
+    /** Отбросить самые старые посты, клиент получит количество пропущенных */
+    DROP,
+
+    /** Схлопнуть буфер в одно уведомление "лента обновилась", клиент перечитает ленту */
+    COALESCE
+}
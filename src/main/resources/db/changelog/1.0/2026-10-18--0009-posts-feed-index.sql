@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset orlov:2026-10-18--0009-posts-feed-index runInTransaction:false
+-- Индекс для keyset-пагинации ленты: посты автора от новых к старым.
+-- id DESC совпадает с порядком ORDER BY created_at DESC, id DESC, поэтому страница читается прямо из индекса
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_user_id_created_at_id ON posts (user_id, created_at DESC, id DESC);
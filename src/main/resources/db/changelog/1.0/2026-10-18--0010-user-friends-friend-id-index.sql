@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset orlov:2026-10-18--0010-user-friends-friend-id-index runInTransaction:false
+-- Индекс для поиска подписчиков автора (WHERE friend_id = ?) и подсчета их числа (GROUP BY friend_id).
+-- Первичный ключ (user_id, friend_id) для этих запросов не подходит
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_friends_friend_id ON user_friends (friend_id, user_id);
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset orlov:2026-10-18--0011-feed-items
+-- Денормализованная лента: строка на каждую пару (подписчик, пост).
+-- Первичный ключ начинается с user_id, поэтому страница ленты читается одним обратным сканом индекса
+CREATE TABLE feed_items
+(
+    user_id    BIGINT    NOT NULL,
+    created_at timestamp NOT NULL,
+    post_id    BIGINT    NOT NULL,
+    PRIMARY KEY (user_id, created_at, post_id),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE
+);
+
+-- Для каскадного удаления строк ленты вместе с постом
+CREATE INDEX idx_feed_items_post_id ON feed_items (post_id);
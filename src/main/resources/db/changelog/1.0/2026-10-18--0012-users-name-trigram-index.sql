@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset orlov:2026-10-18--0012-pg-trgm-extension
+-- Триграммы для поиска по подстроке и нечеткого поиска имен; в PostgreSQL 13+ расширение доверенное,
+-- владелец БД создает его без прав суперпользователя
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+--changeset orlov:2026-10-18--0012-users-name-trigram-index runInTransaction:false
+-- GIN-индексы триграмм имени и фамилии: обслуживают ILIKE '%подстрока%' и оператор похожести %.
+-- Индексы varchar_pattern_ops из 0004 помогают только LIKE по префиксу
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_first_name_trgm ON users USING gin (first_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_last_name_trgm ON users USING gin (last_name gin_trgm_ops);
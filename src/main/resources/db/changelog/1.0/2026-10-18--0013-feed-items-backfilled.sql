@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset orlov:2026-10-18--0013-feed-items-backfilled
+-- Пользователи, чья лента в feed_items уже заполнена последними постами друзей.
+-- Строка пишется после строк первичного заполнения: непустая feed_items без нее значит,
+-- что в ленте есть только строки раскладки новых постов
+CREATE TABLE feed_items_backfilled
+(
+    user_id       BIGINT    NOT NULL PRIMARY KEY,
+    backfilled_at timestamp NOT NULL DEFAULT now(),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
@@ -0,0 +1,39 @@
+package ru.otus.orlov.cache;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccessHistoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testMostFrequentUsersArePersistedAndLoadedByNextStart() {
+        final Path hotKeys = dir.resolve("hot-keys.txt");
+        final AccessHistory history = new AccessHistory(100, hotKeys, 2);
+        record(history, 1L, 1);
+        record(history, 2L, 5);
+        record(history, 3L, 3);
+
+        assertEquals(List.of(2L, 3L, 1L), history.top(10));
+        history.persist();
+
+        assertEquals(List.of(2L, 3L), new AccessHistory(100, hotKeys, 2).loadHotKeys());
+    }
+
+    @Test
+    void testMissingHotKeysFileGivesEmptyList() {
+        assertEquals(List.of(), new AccessHistory(100, dir.resolve("absent.txt"), 10).loadHotKeys());
+    }
+
+    private static void record(final AccessHistory history, final Long userId, final int times) {
+        for (int i = 0; i < times; i++) {
+            history.record(userId);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/** Снимок кэша: запись перед остановкой и восстановление следующим запуском */
+class CacheSnapshotTest {
+
+    private static final String CACHE_NAME = "feed";
+
+    private static final OffHeapCodec CODEC = new OffHeapCodec() {
+        @Override
+        public byte[] encode(final Object value) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object decode(final byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private static final CacheSpec SPEC = new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1,
+            64 * 1024, value -> HeapSize.string((String) value), null, 64 * 1024, CODEC, null);
+
+    @TempDir
+    Path dir;
+
+    private final SharedCacheStore sharedStore = new InMemorySharedCacheStore();
+
+    private final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(
+            mock(RabbitTemplate.class));
+
+    @Test
+    void testHotValuesAreRestoredByNextStartWithTheirWriteTime() {
+        final TwoLevelCacheManager before = cacheManager();
+        final TwoLevelCache cache = before.getCache(CACHE_NAME);
+        cache.put(1L, "feed of 1");
+        cache.put(2L, "feed of 2");
+        final long writtenAt = cache.hottestEntries(10).get(1L).writtenAtMillis();
+        snapshot(before).persist();
+
+        final TwoLevelCacheManager after = cacheManager();
+        assertEquals(2, snapshot(after).restore(after.getCache(CACHE_NAME)));
+
+        final Map<Object, StampedValue> restored = after.getCache(CACHE_NAME).hottestEntries(10);
+        assertEquals("feed of 1", restored.get(1L).value());
+        assertEquals(writtenAt, restored.get(1L).writtenAtMillis());
+        assertEquals("feed of 2", restored.get(2L).value());
+    }
+
+    @Test
+    void testExpiredAndStaleGenerationValuesAreDropped() {
+        final TwoLevelCacheManager before = cacheManager();
+        final TwoLevelCache cache = before.getCache(CACHE_NAME);
+        cache.put(1L, "feed of 1");
+        snapshot(before).persist();
+        cache.clear();
+
+        final TwoLevelCacheManager after = cacheManager();
+        assertEquals(0, snapshot(after).restore(after.getCache(CACHE_NAME)));
+        assertNull(after.getCache(CACHE_NAME).get(1L));
+
+        final TwoLevelCache expired = cacheManager().getCache(CACHE_NAME);
+        assertFalse(expired.restore(2L, new OffHeapStore.Stored(CODEC.encode("feed of 2"),
+                System.currentTimeMillis() - Duration.ofMinutes(6).toMillis(), 0), true));
+    }
+
+    @Test
+    void testFileOfAnotherFormatIsSkipped() throws Exception {
+        Files.writeString(dir.resolve(CACHE_NAME + ".snapshot"), "hot keys");
+        final TwoLevelCacheManager manager = cacheManager();
+
+        assertEquals(0, snapshot(manager).restore(manager.getCache(CACHE_NAME)));
+    }
+
+    @Test
+    void testCorruptedValueLengthStopsRestore() throws Exception {
+        final TwoLevelCacheManager before = cacheManager();
+        before.getCache(CACHE_NAME).put(1L, "feed of 1");
+        snapshot(before).persist();
+        final Path file = dir.resolve(CACHE_NAME + ".snapshot");
+        final byte[] valid = Files.readAllBytes(file);
+
+        for (final int length : new int[]{-1, Integer.MAX_VALUE}) {
+            // Длина значения первой записи: после заголовка, признака горячего ключа, ключа, времени и поколения
+            final ByteBuffer corrupted = ByteBuffer.wrap(valid.clone());
+            corrupted.putInt(2 * Integer.BYTES + 1 + 3 * Long.BYTES, length);
+            Files.write(file, corrupted.array());
+            final TwoLevelCacheManager manager = cacheManager();
+
+            assertEquals(0, snapshot(manager).restore(manager.getCache(CACHE_NAME)));
+        }
+    }
+
+    private TwoLevelCacheManager cacheManager() {
+        return new TwoLevelCacheManager(Map.of(CACHE_NAME, SPEC), sharedStore, broadcaster,
+                new CacheGenerations(sharedStore, broadcaster, 1000, 60_000), Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+    }
+
+    private CacheSnapshot snapshot(final TwoLevelCacheManager manager) {
+        return new CacheSnapshot(manager, new SimpleMeterRegistry(), true, dir, 100);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.otus.orlov.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotKeySketchTest {
+
+    @Test
+    void testFrequentKeysAreFoundAmongRareOnes() {
+        final HotKeySketch sketch = new HotKeySketch(1024, 4, 3, 100);
+        final Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            sketch.record(1000 + random.nextInt(10_000));
+            if (i % 10 == 0) {
+                sketch.record(1L);
+            }
+            if (i % 20 == 0) {
+                sketch.record(2L);
+                sketch.record(3L);
+            }
+        }
+
+        final List<Map.Entry<Long, Long>> top = sketch.top();
+        assertEquals(1L, top.get(0).getKey());
+        assertEquals(Set.of(2L, 3L), Set.of(top.get(1).getKey(), top.get(2).getKey()));
+        assertTrue(sketch.estimate(1L) >= 5000);
+        assertFalse(sketch.isHot(1L));
+
+        sketch.decay();
+
+        assertEquals(Set.of(1L, 2L, 3L), sketch.hot());
+        assertTrue(sketch.isHot(1L));
+        assertTrue(sketch.estimate(1L) >= 2500 && sketch.estimate(1L) < 5000);
+    }
+
+    @Test
+    void testKeysBelowMinCountAreNotHot() {
+        final HotKeySketch sketch = new HotKeySketch(1024, 4, 10, 100);
+        for (int i = 0; i < 99; i++) {
+            sketch.record(7L);
+        }
+        sketch.record(8L);
+
+        sketch.decay();
+
+        assertEquals(Set.of(), sketch.hot());
+        assertEquals(List.of(7L, 8L), sketch.top().stream().map(Map.Entry::getKey).toList());
+    }
+}
@@ -0,0 +1,97 @@
+package ru.otus.orlov.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffHeapStoreTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @Test
+    void testValueIsReadBackWithWriteTime() {
+        final OffHeapStore store = new OffHeapStore(1024, 1, Duration.ofMinutes(5));
+
+        store.put(1L, new byte[]{1, 2, 3}, NOW, 0);
+
+        final OffHeapStore.Stored stored = store.get(1L);
+        assertArrayEquals(new byte[]{1, 2, 3}, stored.bytes());
+        assertEquals(NOW, stored.writtenAtMillis());
+        assertEquals(3, store.usedBytes());
+    }
+
+    @Test
+    void testWrapAroundEvictsOldestValues() {
+        // Сегмент на 4 значения по 100 байт
+        final OffHeapStore store = new OffHeapStore(400, 1, Duration.ofMinutes(5));
+        for (long key = 1; key <= 4; key++) {
+            store.put(key, new byte[100], NOW, 0);
+        }
+        // Перезапись ключа 2 не помещается в хвост: круг начинается заново и вытесняет самый старый ключ 1
+        store.put(2L, bytes(100, 2), NOW, 0);
+        // Прежнее место ключа 2 уже свободно, ключ 3 не вытесняется
+        store.put(5L, bytes(100, 5), NOW, 0);
+
+        assertNull(store.get(1L));
+        assertNotNull(store.get(3L));
+        assertEquals(1, store.evictionCount());
+
+        store.put(6L, new byte[100], NOW, 0);
+
+        assertNull(store.get(3L));
+        assertNotNull(store.get(4L));
+        assertArrayEquals(bytes(100, 2), store.get(2L).bytes());
+        assertArrayEquals(bytes(100, 5), store.get(5L).bytes());
+        assertEquals(4, store.size());
+        assertEquals(2, store.evictionCount());
+    }
+
+    @Test
+    void testValueOlderThanHardTtlIsMissing() {
+        final OffHeapStore store = new OffHeapStore(1024, 1, Duration.ofMinutes(5));
+
+        store.put(1L, new byte[10], NOW - Duration.ofMinutes(6).toMillis(), 0);
+
+        assertNull(store.get(1L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testTooLargeValueIsNotStoredAndDropsPreviousOne() {
+        final OffHeapStore store = new OffHeapStore(400, 1, Duration.ofMinutes(5));
+        store.put(1L, new byte[10], NOW, 0);
+
+        assertFalse(store.put(1L, new byte[101], NOW, 0));
+
+        assertNull(store.get(1L));
+    }
+
+    @Test
+    void testInvalidate() {
+        final OffHeapStore store = new OffHeapStore(1024, 4, Duration.ofMinutes(5));
+        for (long key = 1; key <= 3; key++) {
+            store.put(key, new byte[10], NOW, 0);
+        }
+
+        store.invalidateAll(List.of(1L));
+        assertNull(store.get(1L));
+        assertEquals(2, store.size());
+
+        store.invalidateAll();
+        assertEquals(0, store.size());
+        assertEquals(0, store.usedBytes());
+    }
+
+    private static byte[] bytes(final int length, final int fill) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) fill);
+        return bytes;
+    }
+}
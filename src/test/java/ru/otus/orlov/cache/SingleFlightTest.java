@@ -0,0 +1,85 @@
+package ru.otus.orlov.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<Long, String> singleFlight =
+            new SingleFlight<>("users", Duration.ofSeconds(5), meterRegistry);
+
+    @Test
+    void testConcurrentSyncMissesShareOneLoad() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+
+        final CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> load(() -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "user 1";
+        }));
+        loading.await();
+        final CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> load(() -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        while (coalesced() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("user 1", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("user 1", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testFailedLoadIsNotRemembered() throws Exception {
+        assertThrows(IllegalStateException.class, () -> singleFlight.loadSync(1L, () -> {
+            throw new IllegalStateException("db down");
+        }));
+
+        assertEquals("user 1", singleFlight.loadSync(1L, () -> "user 1"));
+    }
+
+    @Test
+    void testWaiterTimesOutWithoutFailingTheLoad() {
+        final SingleFlight<Long, String> shortWait = new SingleFlight<>("feed", Duration.ofMillis(10), meterRegistry);
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+        final CompletableFuture<String> leader = shortWait.load(1L, () -> pending);
+
+        final CompletableFuture<String> waiter = shortWait.load(1L, () -> CompletableFuture.completedFuture("other"));
+
+        final Exception error = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(TimeoutException.class, error.getCause().getClass());
+        pending.complete("feed of 1");
+        assertEquals("feed of 1", leader.join());
+    }
+
+    private String load(final Callable<String> loader) {
+        try {
+            return singleFlight.loadSync(1L, loader);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("cache.singleflight.coalesced").tag("cache", "users").counter().count();
+    }
+}
@@ -0,0 +1,274 @@
+package ru.otus.orlov.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import ru.otus.orlov.dto.CacheInvalidationDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/** Два экземпляра приложения с общим встроенным L2 */
+class TwoLevelCacheTest {
+
+    private static final String CACHE_NAME = "feed";
+
+    private static final long BUDGET = 64 * 1024;
+
+    private static final ValueWeigher WEIGHER = value -> HeapSize.string((String) value);
+
+    private static final CacheSpec DEFAULT_SPEC = new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1,
+            BUDGET, WEIGHER);
+
+    private final SharedCacheStore sharedStore = new InMemorySharedCacheStore();
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(rabbitTemplate);
+
+    private final CacheGenerations secondGenerations = new CacheGenerations(sharedStore, broadcaster, 1000, 60_000);
+
+    private TwoLevelCache first;
+
+    private TwoLevelCache second;
+
+    @BeforeEach
+    void setUp() {
+        first = cache(new SimpleMeterRegistry());
+        second = cache(DEFAULT_SPEC, meterRegistry, secondGenerations);
+    }
+
+    @Test
+    void testValueWrittenByOneInstanceIsReadFromL2ByAnother() {
+        first.put(1L, "feed of 1");
+
+        assertEquals("feed of 1", second.get(1L, String.class));
+        assertEquals("feed of 1", second.get(1L, String.class));
+
+        assertEquals(1.0, requests("l1", "miss"));
+        assertEquals(1.0, requests("l2", "hit"));
+        assertEquals(1.0, requests("l1", "hit"));
+    }
+
+    @Test
+    void testEvictClearsL2AndBroadcastsToOtherInstances() {
+        first.put(1L, "feed of 1");
+        second.get(1L);
+
+        first.evict(1L);
+        final ArgumentCaptor<CacheInvalidationDto> message = ArgumentCaptor.forClass(CacheInvalidationDto.class);
+        verify(rabbitTemplate).convertAndSend(eq(CacheInvalidationBroadcaster.EXCHANGE), eq(""), message.capture());
+        assertEquals(List.of(1L), message.getValue().getKeys());
+
+        // Доставка сообщения второму экземпляру
+        second.evictLocal(message.getValue().getKeys());
+
+        assertNull(second.get(1L));
+        assertEquals(1.0, requests("l2", "miss"));
+    }
+
+    @Test
+    void testClearIncrementsCacheGenerationOnEveryInstance() {
+        first.put(1L, "feed of 1");
+        second.get(1L);
+
+        first.clear();
+        final ArgumentCaptor<CacheInvalidationDto> message = ArgumentCaptor.forClass(CacheInvalidationDto.class);
+        verify(rabbitTemplate).convertAndSend(eq(CacheInvalidationBroadcaster.EXCHANGE), eq(""), message.capture());
+        assertNull(first.get(1L));
+
+        // Доставка нового поколения второму экземпляру: его L1 не очищается, но значение прежнего поколения - промах
+        secondGenerations.apply(message.getValue().getGenerations());
+
+        assertNull(second.get(1L));
+        assertEquals(1.0, meterRegistry.get("cache.generation.stale").tag("stage", "read").counter().count());
+    }
+
+    @Test
+    void testStatsAndHottestKeysComeFromL1() {
+        first.put(1L, "feed of 1");
+        first.put(2L, "feed of 2");
+        for (int i = 0; i < 5; i++) {
+            first.get(2L);
+        }
+        first.get(1L);
+
+        assertEquals(Set.of(1L, 2L), Set.copyOf(first.hottestKeys(10)));
+        assertEquals(1, first.hottestKeys(1).size());
+        assertEquals(6, first.localStats().hitCount());
+        assertEquals(2L * (HeapSize.CACHE_ENTRY + HeapSize.string("feed of 1")), first.weightedSize());
+    }
+
+    @Test
+    void testL1IsBoundedByEstimatedBytes() {
+        final String large = "x".repeat(10 * 1024);
+        for (long key = 0; key < 20; key++) {
+            first.put(key, large);
+        }
+        ((Cache<?, ?>) first.getNativeCache()).cleanUp();
+
+        assertTrue(first.weightedSize() <= BUDGET);
+        assertTrue(first.localSize() < 20);
+        assertTrue(first.occupancy() > 0.5);
+    }
+
+    @Test
+    void testHotKeyIsPinnedInL1() {
+        final HotKeySketch hotKeys = new HotKeySketch(1024, 4, 1, 10);
+        for (int i = 0; i < 10; i++) {
+            hotKeys.record(0L);
+        }
+        hotKeys.decay();
+        final TwoLevelCache pinning = cache(new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1, BUDGET,
+                WEIGHER, null, 0, null, hotKeys), new SimpleMeterRegistry());
+        final String large = "x".repeat(10 * 1024);
+        for (long key = 0; key < 20; key++) {
+            pinning.put(key, large);
+        }
+        ((Cache<?, ?>) pinning.getNativeCache()).cleanUp();
+
+        assertEquals(1, pinning.pinnedCount());
+        assertTrue(pinning.localSize() < 20);
+        assertTrue(pinning.weightedSize() <= BUDGET);
+        pinning.shutdown();
+    }
+
+    @Test
+    void testValueOlderThanSoftTtlIsServedWhileReloadRunsInBackground() throws Exception {
+        final TwoLevelCache refreshing = cache(new CacheSpec(Duration.ZERO, Duration.ofMinutes(1), 1, BUDGET, WEIGHER),
+                new SimpleMeterRegistry());
+        refreshing.put(1L, "old feed");
+        final CountDownLatch release = new CountDownLatch(1);
+
+        assertEquals("old feed", refreshing.get(1L, () -> {
+            release.await();
+            return "new feed";
+        }));
+        release.countDown();
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!"new feed".equals(refreshing.get(1L, String.class)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("new feed", refreshing.get(1L, String.class));
+        refreshing.shutdown();
+    }
+
+    @Test
+    void testGetAllLoadsOnlyMissesInOneCallAndCachesThem() {
+        first.put(1L, "feed of 1");
+        final List<Collection<Long>> calls = new ArrayList<>();
+
+        final Map<Long, String> values = first.getAll(List.of(3L, 1L, 2L, 3L), keys -> {
+            calls.add(keys);
+            return Map.of(3L, "feed of 3");
+        });
+
+        assertEquals(List.of(List.of(3L, 2L)), calls);
+        assertEquals(Map.of(1L, "feed of 1", 3L, "feed of 3"), values);
+        assertEquals("feed of 3", second.get(3L, String.class));
+        assertNull(second.get(2L));
+    }
+
+    @Test
+    void testLoadIsCachedWhenOnlyOtherAuthorsChangeDuringIt() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final TwoLevelCache byAuthor = cache(authorSpec(), registry, secondGenerations);
+
+        assertEquals("feed of 1", byAuthor.get(1L, () -> {
+            // Пост другого автора изменился на этом экземпляре, и его рассылка вернулась сюда же
+            secondGenerations.incrementAuthor(2L);
+            secondGenerations.apply(Map.of("author:2", 1L));
+            return "feed of 1";
+        }));
+
+        assertEquals("feed of 1", byAuthor.get(1L, String.class));
+        assertEquals(0.0, registry.get("cache.generation.stale").tag("stage", "load").counter().count());
+    }
+
+    @Test
+    void testLoadIsNotCachedWhenItsAuthorChangesDuringIt() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final TwoLevelCache byAuthor = cache(authorSpec(), registry, secondGenerations);
+
+        assertEquals("feed of 1", byAuthor.get(1L, () -> {
+            // Рассылка от другого экземпляра о посте автора значения, поколение которого здесь еще не читалось
+            secondGenerations.apply(Map.of("author:1", 1L));
+            return "feed of 1";
+        }));
+
+        assertNull(byAuthor.get(1L));
+        assertEquals(1.0, registry.get("cache.generation.stale").tag("stage", "load").counter().count());
+    }
+
+    @Test
+    void testValueIsNotCachedWhileGenerationsCannotBeRead() {
+        final AtomicBoolean unavailable = new AtomicBoolean(true);
+        final SharedCacheStore failingStore = new InMemorySharedCacheStore() {
+            @Override
+            public Map<String, Long> getGenerations(final Collection<String> keys) {
+                if (unavailable.get()) {
+                    throw new IllegalStateException("L2 недоступен");
+                }
+                return super.getGenerations(keys);
+            }
+        };
+        final TwoLevelCache failing = new TwoLevelCache(CACHE_NAME, DEFAULT_SPEC, failingStore, broadcaster,
+                new CacheGenerations(failingStore, broadcaster, 1000, 60_000), Duration.ofSeconds(1),
+                new SimpleMeterRegistry());
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("feed of 1", failing.get(1L, () -> "feed of " + loads.incrementAndGet()));
+        unavailable.set(false);
+
+        assertNull(failing.get(1L));
+        assertEquals("feed of 2", failing.get(1L, () -> "feed of " + loads.incrementAndGet()));
+        assertEquals("feed of 2", failing.get(1L, String.class));
+    }
+
+    private static CacheSpec authorSpec() {
+        return new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1, BUDGET, WEIGHER, value -> List.of(1L),
+                0, null, null);
+    }
+
+    private TwoLevelCache cache(final MeterRegistry registry) {
+        return cache(DEFAULT_SPEC, registry);
+    }
+
+    private TwoLevelCache cache(final CacheSpec spec, final MeterRegistry registry) {
+        return cache(spec, registry, new CacheGenerations(sharedStore, broadcaster, 1000, 60_000));
+    }
+
+    private TwoLevelCache cache(final CacheSpec spec, final MeterRegistry registry,
+                                final CacheGenerations generations) {
+        return new TwoLevelCache(CACHE_NAME, spec, sharedStore, broadcaster, generations, Duration.ofSeconds(1),
+                registry);
+    }
+
+    private double requests(final String level, final String result) {
+        return meterRegistry.get("cache.requests")
+                .tag("level", level)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.cache.CacheSpec;
+import ru.otus.orlov.cache.FeedWindowWeigher;
+import ru.otus.orlov.cache.InMemorySharedCacheStore;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.dto.CacheInvalidationDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class FeedCacheInvalidatorTest {
+
+    @Test
+    void testInvalidateBroadcastsUserIdsInBatches() {
+        final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        final InMemorySharedCacheStore sharedStore = new InMemorySharedCacheStore();
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(rabbitTemplate);
+        final CacheGenerations generations = new CacheGenerations(sharedStore, broadcaster, 1000, 5000);
+        final TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+                Map.of(FeedWindowCache.CACHE_NAME, new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1,
+                        1024 * 1024, new FeedWindowWeigher())),
+                sharedStore, broadcaster, generations,
+                Duration.ofSeconds(1), new SimpleMeterRegistry());
+        final FeedCacheInvalidator invalidator = new FeedCacheInvalidator(cacheManager, generations, 2);
+
+        invalidator.invalidate(List.of(1L, 2L, 3L, 4L, 5L));
+
+        final ArgumentCaptor<CacheInvalidationDto> messages = ArgumentCaptor.forClass(CacheInvalidationDto.class);
+        verify(rabbitTemplate, times(3))
+                .convertAndSend(eq(CacheInvalidationBroadcaster.EXCHANGE), eq(""), messages.capture());
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)),
+                messages.getAllValues().stream().map(CacheInvalidationDto::getKeys).toList());
+    }
+}
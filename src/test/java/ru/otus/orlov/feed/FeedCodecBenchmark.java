@@ -0,0 +1,99 @@
+package ru.otus.orlov.feed;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Замер сериализации страницы ленты из 50 постов: путь сервер -> RabbitMQ -> клиент -> HTTP-ответ.
+ * "До" - новый ObjectMapper с JavaTimeModule на каждую сторону и копия в HashSet,
+ * "после" - общий {@link FeedCodec} и упорядоченный список.
+ * Не тест: запускается вручную, см. docs/feedserialization/report.md.
+ */
+public final class FeedCodecBenchmark {
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    private FeedCodecBenchmark() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final ObjectMapper httpMapper = Jackson2ObjectMapperBuilder.json().build();
+        final FeedCodec codec = new FeedCodec(httpMapper);
+        final PageImplDto<Post> page = page();
+
+        final Operation before = () -> {
+            final ObjectMapper serverMapper = new ObjectMapper();
+            serverMapper.registerModule(new JavaTimeModule());
+            final byte[] bytes = serverMapper.writeValueAsBytes(page);
+            final ObjectMapper clientMapper = new ObjectMapper();
+            clientMapper.registerModule(new JavaTimeModule());
+            final PageImplDto<Post> read = clientMapper.readValue(bytes, new TypeReference<PageImplDto<Post>>() {
+            });
+            final ByteArrayOutputStream response = new ByteArrayOutputStream(8192);
+            httpMapper.writeValue(response, new HashSet<>(read.getContent()));
+            return response.size();
+        };
+        final Operation after = () -> {
+            final PageImplDto<Post> read = codec.readPage(codec.writePage(page));
+            final ByteArrayOutputStream response = new ByteArrayOutputStream(8192);
+            httpMapper.writeValue(response, read.getContent());
+            return response.size();
+        };
+
+        report("до", before);
+        report("после", after);
+    }
+
+    private static void report(final String name, final Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long[] latencies = new long[ITERATIONS];
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            operation.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d байт/оп, p50 %.1f мкс, p99 %.1f мкс, среднее %.1f мкс%n", name,
+                allocated / ITERATIONS, latencies[ITERATIONS / 2] / 1000.0, latencies[ITERATIONS * 99 / 100] / 1000.0,
+                Arrays.stream(latencies).average().orElse(0) / 1000.0);
+    }
+
+    private static PageImplDto<Post> page() {
+        final List<Post> posts = new ArrayList<>(PAGE_SIZE);
+        final LocalDateTime now = LocalDateTime.of(2026, 10, 18, 12, 0);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            posts.add(new Post((long) PAGE_SIZE - i, "Пост номер " + i + " с текстом средней длины для ленты друзей",
+                    now.minusMinutes(i), (long) i % 7));
+        }
+        final PageImplDto<Post> page = new PageImplDto<>();
+        page.setContent(posts);
+        page.setPageSize(PAGE_SIZE);
+        page.setTotalElements(1000);
+        return page;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run() throws IOException;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.otus.orlov.feed;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeedCodecTest {
+
+    private final FeedCodec codec = new FeedCodec(Jackson2ObjectMapperBuilder.json().build());
+
+    @Test
+    void testPageRoundTripKeepsOrderAndDates() {
+        final LocalDateTime createdAt = LocalDateTime.of(2026, 10, 18, 12, 30, 15);
+        final PageImplDto<Post> page = new PageImplDto<>();
+        page.setContent(List.of(new Post(3L, "c", createdAt, 7L), new Post(1L, "a", createdAt.minusDays(1), 8L)));
+        page.setPageSize(2);
+        page.setTotalElements(10);
+
+        final PageImplDto<Post> read = codec.readPage(codec.writePage(page));
+
+        assertEquals(List.of(3L, 1L), read.getContent().stream().map(Post::getId).toList());
+        assertEquals(createdAt, read.getContent().get(0).getCreatedAt());
+        assertEquals(8L, read.getContent().get(1).getUserId());
+        assertEquals(10, read.getTotalElements());
+    }
+
+    @Test
+    void testReadRequest() {
+        assertArrayEquals(new long[]{42L, 100L, 50L}, codec.readRequest("[42,100,50]".getBytes()));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.otus.orlov.feed;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.otus.orlov.dto.CursorPageDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.exceptions.InvalidCursorException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeedCursorTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_000_000);
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        final FeedCursor cursor = new FeedCursor(BASE, 42L);
+
+        assertEquals(cursor, FeedCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testDecodeRejectsDamagedCursor() {
+        assertThrows(InvalidCursorException.class, () -> FeedCursor.decode("%%%"));
+        assertThrows(InvalidCursorException.class, () -> FeedCursor.decode(encodeRaw("2026-01-01T12:00")));
+        assertThrows(InvalidCursorException.class, () -> FeedCursor.decode(encodeRaw("not a date|1")));
+        assertThrows(InvalidCursorException.class, () -> FeedCursor.decode(encodeRaw("2026-01-01T12:00|x")));
+    }
+
+    @Test
+    void testPageDropsExtraRowAndPointsCursorAtLastPostOfPage() {
+        final List<Post> rows = List.of(post(3L, 30), post(2L, 20), post(1L, 10));
+
+        final CursorPageDto<Post> page = FeedCursor.page(rows, 2);
+
+        assertEquals(List.of(3L, 2L), page.getContent().stream().map(Post::getId).toList());
+        assertEquals(new FeedCursor(BASE.plusSeconds(20), 2L), FeedCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void testLastPageHasNoCursor() {
+        final List<Post> rows = List.of(post(2L, 20), post(1L, 10));
+
+        assertNull(FeedCursor.page(rows, 2).getNextCursor());
+        assertNull(FeedCursor.page(List.of(), 1).getNextCursor());
+    }
+
+    private static Post post(final long id, final int seconds) {
+        return new Post(id, "post " + id, BASE.plusSeconds(seconds), 1L);
+    }
+
+    private static String encodeRaw(final String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.otus.orlov.dto.PostRefDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeedItemWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final FeedCacheInvalidator feedCacheInvalidator = mock(FeedCacheInvalidator.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testFailedBatchIsRetriedRowByRowAndOnlyBadRowIsLost() throws InterruptedException {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("feed_items_user_id_fkey"));
+        doThrow(new DataIntegrityViolationException("feed_items_user_id_fkey"))
+                .when(jdbcTemplate).update(anyString(), any(), eq(10L), eq(2L));
+        final FeedItemWriter writer = new FeedItemWriter(jdbcTemplate, feedCacheInvalidator, 100, 10, meterRegistry);
+
+        writer.enqueue(List.of(1L, 2L, 3L), 10L, LocalDateTime.now());
+        writer.start();
+        writer.stop();
+
+        verify(feedCacheInvalidator).invalidate(Set.of(1L, 3L));
+        assertEquals(2.0, meterRegistry.get("feed.table.items.written").counter().count());
+        assertEquals(1.0, meterRegistry.get("feed.table.items.failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("feed.table.batches.failed").counter().count());
+    }
+
+    @Test
+    void testLagIsRecordedOnlyForFanOutRows() throws InterruptedException {
+        final FeedItemWriter writer = new FeedItemWriter(jdbcTemplate, feedCacheInvalidator, 100, 10, meterRegistry);
+
+        writer.enqueue(List.of(1L), 10L, LocalDateTime.now());
+        writer.enqueue(2L, List.of(new PostRefDto(5L, LocalDateTime.now().minusDays(3)),
+                new PostRefDto(4L, LocalDateTime.now().minusDays(4))));
+        writer.start();
+        writer.stop();
+
+        assertEquals(3.0, meterRegistry.get("feed.table.items.written").counter().count());
+        assertEquals(1, meterRegistry.get("feed.table.lag").timer().count());
+    }
+
+    @Test
+    void testBackfillIsMarkedAfterItsRows() throws InterruptedException {
+        final FeedItemWriter writer = new FeedItemWriter(jdbcTemplate, feedCacheInvalidator, 100, 10, meterRegistry);
+
+        writer.enqueue(2L, List.of(new PostRefDto(5L, LocalDateTime.now().minusDays(3))));
+        assertTrue(writer.isBackfilling(2L));
+        writer.start();
+        writer.stop();
+
+        final InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO feed_items "),
+                any(BatchPreparedStatementSetter.class));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO feed_items_backfilled"), eq(2L));
+        assertFalse(writer.isBackfilling(2L));
+    }
+}
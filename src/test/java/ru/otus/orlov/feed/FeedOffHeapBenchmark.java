@@ -0,0 +1,170 @@
+package ru.otus.orlov.feed;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.cache.CacheSpec;
+import ru.otus.orlov.cache.FeedWindowWeigher;
+import ru.otus.orlov.cache.SharedCacheStore;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+/**
+ * Замер кучи и пауз GC кэша окон ленты: все окна в Caffeine ("heap") против 1000 горячих окон в Caffeine
+ * и остальных вне кучи ("offheap"). L2 отключен, чтобы он не держал окна в той же куче.
+ * Нагрузка: заполнение кэша окнами всех пользователей, затем случайные чтения с перезаписью каждого десятого окна.
+ * Режим передается аргументом, каждый режим запускается в отдельной JVM.
+ * Не тест: запускается вручную, см. docs/offheapcache/report.md.
+ */
+public final class FeedOffHeapBenchmark {
+    private static final int USERS = 10_000;
+    private static final int WINDOW = 200;
+    /** Бюджет L1 под 1000 горячих окон в режиме offheap */
+    private static final long HOT_BYTES = 64L * 1024 * 1024;
+    /** Бюджет L1 под все окна в режиме heap */
+    private static final long ALL_BYTES = 1024L * 1024 * 1024;
+    private static final long OFF_HEAP_BYTES = 512L * 1024 * 1024;
+    private static final int OPERATIONS = 200_000;
+
+    private FeedOffHeapBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final boolean offHeap = "offheap".equals(args[0]);
+        final CacheSpec spec = offHeap
+                ? new CacheSpec(Duration.ofMinutes(30), Duration.ofHours(1), 1, HOT_BYTES, new FeedWindowWeigher(),
+                null, OFF_HEAP_BYTES, new FeedWindowCodec(), null)
+                : new CacheSpec(Duration.ofMinutes(30), Duration.ofHours(1), 1, ALL_BYTES, new FeedWindowWeigher());
+        final SharedCacheStore sharedStore = new NoSharedStore();
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(null);
+        final TwoLevelCache cache = new TwoLevelCache(FeedWindowCache.CACHE_NAME, spec, sharedStore, broadcaster,
+                new CacheGenerations(sharedStore, broadcaster, 1000, 60_000), Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+        final GcPauses pauses = new GcPauses();
+
+        final long fillStart = System.nanoTime();
+        for (long userId = 0; userId < USERS; userId++) {
+            cache.put(userId, window(userId));
+        }
+        final long fillMs = (System.nanoTime() - fillStart) / 1_000_000;
+        final long heapAfterFill = usedHeapAfterGc();
+
+        pauses.reset();
+        final Random random = new Random(42);
+        final long workStart = System.nanoTime();
+        int misses = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final long userId = random.nextInt(USERS);
+            if (i % 10 == 0) {
+                cache.put(userId, window(userId));
+            } else if (cache.get(userId) == null) {
+                misses++;
+            }
+        }
+        final long workMs = (System.nanoTime() - workStart) / 1_000_000;
+
+        System.out.printf("%s: окон %d, заполнение %d мс, куча после заполнения и GC %d МБ%n", args[0], USERS,
+                fillMs, heapAfterFill / (1024 * 1024));
+        System.out.printf("%s: %d операций за %d мс, промахов %d, GC %s%n", args[0], OPERATIONS, workMs, misses,
+                pauses);
+        cache.shutdown();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    static PageImplDto<Post> window(final long userId) {
+        final List<Post> posts = new ArrayList<>(WINDOW);
+        final LocalDateTime now = LocalDateTime.of(2026, 10, 18, 12, 0);
+        for (int i = 0; i < WINDOW; i++) {
+            posts.add(new Post(userId * WINDOW + i, "Пост " + i + " друга пользователя " + userId
+                    + " с текстом средней длины для ленты", now.minusMinutes(i), (userId + i) % 1000));
+        }
+        final PageImplDto<Post> window = new PageImplDto<>();
+        window.setContent(posts);
+        window.setPageSize(WINDOW);
+        window.setTotalElements(1000);
+        return window;
+    }
+
+    /** Паузы сборщика мусора по уведомлениям о сборках */
+    private static final class GcPauses {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                            .equals(notification.getType())) {
+                        return;
+                    }
+                    final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                            .from((CompositeData) notification.getUserData());
+                    // Параллельные фазы G1 не останавливают приложение
+                    if (info.getGcCause().contains("Concurrent") || info.getGcName().contains("Concurrent")) {
+                        return;
+                    }
+                    final long duration = info.getGcInfo().getDuration();
+                    count.incrementAndGet();
+                    totalMs.addAndGet(duration);
+                    maxMs.accumulateAndGet(duration, Math::max);
+                }, null, null);
+            }
+        }
+
+        void reset() {
+            count.set(0);
+            totalMs.set(0);
+            maxMs.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("пауз %d, суммарно %d мс, максимум %d мс", count.get(), totalMs.get(), maxMs.get());
+        }
+    }
+
+    /** Без L2 */
+    static final class NoSharedStore implements SharedCacheStore {
+        @Override
+        public Object get(final String cacheName, final Object key) {
+            return null;
+        }
+
+        @Override
+        public void put(final String cacheName, final Object key, final Object value, final Duration ttl) {
+        }
+
+        @Override
+        public void evict(final String cacheName, final Collection<?> keys) {
+        }
+
+        @Override
+        public long incrementGeneration(final String key) {
+            return 0;
+        }
+
+        @Override
+        public Map<String, Long> getGenerations(final Collection<String> keys) {
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.cache.CacheSnapshot;
+import ru.otus.orlov.cache.CacheSpec;
+import ru.otus.orlov.cache.FeedWindowWeigher;
+import ru.otus.orlov.cache.SharedCacheStore;
+import ru.otus.orlov.cache.TwoLevelCache;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+
+/**
+ * Замер выхода кэша окон ленты на рабочий режим после перезапуска: холодный старт ("cold") против
+ * восстановления из снимка ("snapshot").
+ * Сначала кэш прогревается запросами до рабочей доли попаданий, в режиме snapshot сохраняется снимок. Затем
+ * создается новый кэш - перезапуск, - в режиме snapshot в него восстанавливается снимок, и идут те же запросы.
+ * Промах загружает окно с задержкой {@value #LOAD_MS} мс - запрос к БД. Пользователи выбираются по закону Ципфа:
+ * небольшая часть лент читается намного чаще остальных. L2 отключен - как при перезапуске всех экземпляров
+ * или потере Redis.
+ * Не тест: запускается вручную, см. docs/cachesnapshot/report.md.
+ */
+public final class FeedSnapshotBenchmark {
+    private static final int USERS = 10_000;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final long L1_BYTES = 64L * 1024 * 1024;
+    private static final long OFF_HEAP_BYTES = 512L * 1024 * 1024;
+    private static final int SNAPSHOT_ENTRIES = 20_000;
+    private static final long LOAD_MS = 2;
+    private static final int WARM_REQUESTS = 200_000;
+    private static final int RESTART_REQUESTS = 100_000;
+    /** Доля попаданий считается по последним запросам */
+    private static final int RATIO_WINDOW = 1000;
+    /** Рабочий режим - доля попаданий не ниже этой доли от доли до перезапуска */
+    private static final double STEADY_SHARE = 0.95;
+
+    private FeedSnapshotBenchmark() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final boolean snapshot = "snapshot".equals(args[0]);
+        final Path dir = Files.createTempDirectory("cache-snapshot");
+        final double[] zipf = zipfDistribution();
+
+        final TwoLevelCacheManager before = cacheManager();
+        final TwoLevelCache warm = before.getCache(FeedWindowCache.CACHE_NAME);
+        final Random random = new Random(42);
+        int warmHits = 0;
+        for (int i = 0; i < WARM_REQUESTS; i++) {
+            final boolean hit = request(warm, user(zipf, random));
+            if (i >= WARM_REQUESTS - RESTART_REQUESTS && hit) {
+                warmHits++;
+            }
+        }
+        final double steadyRatio = (double) warmHits / RESTART_REQUESTS;
+        final long persistStart = System.nanoTime();
+        if (snapshot) {
+            snapshot(before, dir).persist();
+        }
+        final long persistMs = (System.nanoTime() - persistStart) / 1_000_000;
+        warm.shutdown();
+
+        final TwoLevelCacheManager after = cacheManager();
+        final TwoLevelCache cache = after.getCache(FeedWindowCache.CACHE_NAME);
+        final long restoreStart = System.nanoTime();
+        if (snapshot) {
+            snapshot(after, dir).run(null);
+        }
+        final long restoreMs = (System.nanoTime() - restoreStart) / 1_000_000;
+
+        final boolean[] window = new boolean[RATIO_WINDOW];
+        int windowHits = 0;
+        int hits = 0;
+        long steadyMs = -1;
+        int steadyRequests = -1;
+        final long start = System.nanoTime();
+        for (int i = 0; i < RESTART_REQUESTS; i++) {
+            final boolean hit = request(cache, user(zipf, random));
+            hits += hit ? 1 : 0;
+            windowHits += (hit ? 1 : 0) - (window[i % RATIO_WINDOW] ? 1 : 0);
+            window[i % RATIO_WINDOW] = hit;
+            if (steadyMs < 0 && i >= RATIO_WINDOW && windowHits >= STEADY_SHARE * steadyRatio * RATIO_WINDOW) {
+                steadyMs = (System.nanoTime() - start) / 1_000_000;
+                steadyRequests = i + 1;
+            }
+        }
+        final long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%s: доля попаданий до перезапуска %.3f, снимок %d КБ, запись %d мс, восстановление %d мс%n",
+                args[0], steadyRatio, size(dir) / 1024, persistMs, restoreMs);
+        System.out.printf("%s: рабочий режим через %d мс и %d запросов, %d запросов за %d мс, попаданий %.3f%n",
+                args[0], steadyMs, steadyRequests, RESTART_REQUESTS, totalMs, (double) hits / RESTART_REQUESTS);
+        cache.shutdown();
+    }
+
+    /** Чтение окна: попадание или загрузка с задержкой запроса к БД */
+    private static boolean request(final TwoLevelCache cache, final long userId) {
+        final boolean[] loaded = new boolean[1];
+        cache.get(userId, () -> {
+            loaded[0] = true;
+            Thread.sleep(LOAD_MS);
+            return FeedOffHeapBenchmark.window(userId);
+        });
+        return !loaded[0];
+    }
+
+    private static TwoLevelCacheManager cacheManager() {
+        final CacheSpec spec = new CacheSpec(Duration.ofMinutes(30), Duration.ofHours(1), 1, L1_BYTES,
+                new FeedWindowWeigher(), null, OFF_HEAP_BYTES, new FeedWindowCodec(), null);
+        final SharedCacheStore sharedStore = new FeedOffHeapBenchmark.NoSharedStore();
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(null);
+        return new TwoLevelCacheManager(Map.of(FeedWindowCache.CACHE_NAME, spec), sharedStore, broadcaster,
+                new CacheGenerations(sharedStore, broadcaster, 1000, 60_000), Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+    }
+
+    private static CacheSnapshot snapshot(final TwoLevelCacheManager cacheManager, final Path dir) {
+        return new CacheSnapshot(cacheManager, new SimpleMeterRegistry(), true, dir, SNAPSHOT_ENTRIES);
+    }
+
+    /** Накопленные вероятности пользователей по закону Ципфа */
+    private static double[] zipfDistribution() {
+        final double[] cumulative = new double[USERS];
+        double sum = 0;
+        for (int i = 0; i < USERS; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < USERS; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static long user(final double[] zipf, final Random random) {
+        final int index = Arrays.binarySearch(zipf, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static long size(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
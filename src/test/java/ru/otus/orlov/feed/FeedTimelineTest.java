@@ -0,0 +1,61 @@
+package ru.otus.orlov.feed;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedTimelineTest {
+
+    @Test
+    void testPushKeepsNewestFirstAndEvictsOldest() {
+        final FeedTimeline timeline = new FeedTimeline(3);
+        timeline.push(1L, 100L);
+        timeline.push(2L, 300L);
+        timeline.push(3L, 200L);
+        timeline.push(4L, 400L);
+
+        assertEquals(3, timeline.size());
+        assertEquals(List.of(4L, 2L, 3L), timeline.slice(0, 10));
+    }
+
+    @Test
+    void testPushIgnoresDuplicatesAndTooOldPosts() {
+        final FeedTimeline timeline = new FeedTimeline(2);
+        timeline.push(5L, 500L);
+        timeline.push(6L, 600L);
+        timeline.push(5L, 500L);
+        timeline.push(1L, 100L);
+
+        assertEquals(List.of(6L, 5L), timeline.slice(0, 10));
+    }
+
+    @Test
+    void testSliceAndRemove() {
+        final FeedTimeline timeline = new FeedTimeline(10);
+        assertTrue(timeline.append(3L, 300L));
+        assertTrue(timeline.append(2L, 200L));
+        assertTrue(timeline.append(1L, 100L));
+
+        assertEquals(List.of(2L), timeline.slice(1, 1));
+        assertEquals(List.of(), timeline.slice(5, 10));
+        assertTrue(timeline.remove(2L));
+        assertFalse(timeline.remove(2L));
+        assertEquals(List.of(3L, 1L), timeline.slice(0, 10));
+    }
+
+    @Test
+    void testTrimOlderThanRemovesOldestEntries() {
+        final FeedTimeline timeline = new FeedTimeline(3);
+        timeline.push(1L, 100L);
+        timeline.push(2L, 200L);
+        timeline.push(3L, 300L);
+
+        assertEquals(100L, timeline.evictionBoundary());
+        assertEquals(2, timeline.trimOlderThan(250L));
+        assertEquals(List.of(3L), timeline.slice(0, 10));
+        assertEquals(Long.MIN_VALUE, timeline.evictionBoundary());
+    }
+}
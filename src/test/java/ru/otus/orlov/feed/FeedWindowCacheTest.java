@@ -0,0 +1,150 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import ru.otus.orlov.cache.CacheGenerations;
+import ru.otus.orlov.cache.CacheInvalidationBroadcaster;
+import ru.otus.orlov.cache.CacheSpec;
+import ru.otus.orlov.cache.FeedWindowAuthors;
+import ru.otus.orlov.cache.FeedWindowWeigher;
+import ru.otus.orlov.cache.InMemorySharedCacheStore;
+import ru.otus.orlov.cache.TwoLevelCacheManager;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class FeedWindowCacheTest {
+
+    private static final int WINDOW_SIZE = 10;
+
+    private static final int TOTAL_POSTS = 25;
+
+    private FeedWindowCache feedWindowCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CacheGenerations generations;
+
+    @BeforeEach
+    void setUp() {
+        final InMemorySharedCacheStore sharedStore = new InMemorySharedCacheStore();
+        final CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(mock(RabbitTemplate.class));
+        generations = new CacheGenerations(sharedStore, broadcaster, 1000, 5000);
+        final TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+                Map.of(FeedWindowCache.CACHE_NAME, new CacheSpec(Duration.ofMinutes(1), Duration.ofMinutes(5), 1,
+                        1024 * 1024, new FeedWindowWeigher(), new FeedWindowAuthors(), 0, null, null)),
+                sharedStore, broadcaster, generations,
+                Duration.ofSeconds(1), meterRegistry);
+        feedWindowCache = new FeedWindowCache(cacheManager, WINDOW_SIZE);
+    }
+
+    @Test
+    void testOneLoadServesEveryPageInsideWindow() {
+        assertEquals(List.of(0L, 1L, 2L), ids(feedWindowCache.getPage(1L, 0, 3, this::load)));
+        assertEquals(List.of(3L, 4L, 5L), ids(feedWindowCache.getPage(1L, 3, 3, this::load)));
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L), ids(feedWindowCache.getPage(1L, 5, 5, this::load)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testPageOutsideWindowFallsThroughWithoutEvictingWindow() {
+        feedWindowCache.getPage(1L, 0, 5, this::load).join();
+        assertEquals(List.of(12L, 13L, 14L), ids(feedWindowCache.getPage(1L, 12, 3, this::load)));
+
+        final PageImplDto<Post> window = feedWindowCache.getWindow(1L);
+        assertNotNull(window);
+        assertEquals(WINDOW_SIZE, window.getContent().size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testDeepPageDoesNotOverflowAndInvalidPageIsRejected() {
+        feedWindowCache.getPage(1L, 0, 5, this::load).join();
+
+        assertEquals(List.of(), ids(feedWindowCache.getPage(1L, Integer.MAX_VALUE - 1, 3, this::load)));
+        assertEquals(2, loads.get());
+        assertThrows(IllegalArgumentException.class, () -> feedWindowCache.getPage(1L, 0, 0, this::load));
+        assertThrows(IllegalArgumentException.class, () -> feedWindowCache.getPage(1L, -1, 3, this::load));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneWindowLoad() {
+        final CompletableFuture<PageImplDto<Post>> pending = new CompletableFuture<>();
+        final AtomicInteger slowLoads = new AtomicInteger();
+        final FeedPageLoader slowLoader = (userId, offset, limit) -> {
+            slowLoads.incrementAndGet();
+            return pending;
+        };
+
+        final CompletableFuture<PageImplDto<Post>> first = feedWindowCache.getPage(1L, 0, 3, slowLoader);
+        final CompletableFuture<PageImplDto<Post>> second = feedWindowCache.getPage(1L, 3, 3, slowLoader);
+        pending.complete(load(1L, 0, WINDOW_SIZE).join());
+
+        assertEquals(List.of(0L, 1L, 2L), ids(first));
+        assertEquals(List.of(3L, 4L, 5L), ids(second));
+        assertEquals(1, slowLoads.get());
+        assertEquals(1.0, meterRegistry.get("cache.singleflight.coalesced").counter().count());
+    }
+
+    @Test
+    void testAuthorGenerationInvalidatesWindowsWithAuthorPosts() {
+        feedWindowCache.getPage(1L, 0, 3, this::load).join();
+        feedWindowCache.getPage(2L, 0, 3, this::load).join();
+
+        // Все посты тестовой ленты - автора 1
+        generations.incrementAuthor(1L);
+
+        assertNull(feedWindowCache.getWindow(1L));
+        assertNull(feedWindowCache.getWindow(2L));
+        feedWindowCache.getPage(1L, 0, 3, this::load).join();
+        assertEquals(3, loads.get());
+        assertNotNull(feedWindowCache.getWindow(1L));
+    }
+
+    @Test
+    void testWindowLoadedAcrossGenerationChangeIsNotCached() {
+        final CompletableFuture<PageImplDto<Post>> pending = new CompletableFuture<>();
+        final CompletableFuture<PageImplDto<Post>> page = feedWindowCache.getPage(1L, 0, 3, (userId, offset, limit) ->
+                pending);
+        // Пост автора изменился, пока окно собиралось из источника
+        generations.incrementAuthor(1L);
+        pending.complete(load(1L, 0, WINDOW_SIZE).join());
+
+        assertEquals(List.of(0L, 1L, 2L), ids(page));
+        assertNull(feedWindowCache.getWindow(1L));
+    }
+
+    private CompletableFuture<PageImplDto<Post>> load(final Long userId, final int offset, final int limit) {
+        loads.incrementAndGet();
+        final List<Post> posts = new ArrayList<>();
+        for (long id = offset; id < Math.min(offset + limit, TOTAL_POSTS); id++) {
+            posts.add(new Post(id, "post " + id, LocalDateTime.now(), 1L));
+        }
+        final PageImplDto<Post> page = new PageImplDto<>();
+        page.setContent(posts);
+        page.setPageSize(limit);
+        page.setTotalElements(TOTAL_POSTS);
+        return CompletableFuture.completedFuture(page);
+    }
+
+    private static List<Long> ids(final CompletableFuture<PageImplDto<Post>> page) {
+        return page.join().getContent().stream().map(Post::getId).toList();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.otus.orlov.feed;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.entity.Post;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeedWindowCodecTest {
+
+    private final FeedWindowCodec codec = new FeedWindowCodec();
+
+    @Test
+    void testWindowRoundTripKeepsOrderDatesAndUnicode() {
+        final LocalDateTime createdAt = LocalDateTime.of(2026, 10, 18, 12, 30, 15, 123_456_789);
+        final PageImplDto<Post> window = new PageImplDto<>();
+        window.setContent(List.of(new Post(3L, "привет", createdAt, 7L), new Post(1L, "", createdAt.minusDays(1), 8L)));
+        window.setPageSize(200);
+        window.setTotalElements(2);
+
+        final PageImplDto<Post> read = codec.decode(codec.encode(window));
+
+        assertEquals(List.of(3L, 1L), read.getContent().stream().map(Post::getId).toList());
+        assertEquals("привет", read.getContent().get(0).getContent());
+        assertEquals(createdAt, read.getContent().get(0).getCreatedAt());
+        assertEquals(8L, read.getContent().get(1).getUserId());
+        assertEquals(200, read.getPageSize());
+        assertEquals(2, read.getTotalElements());
+    }
+}
@@ -0,0 +1,127 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import ru.otus.orlov.dto.PostRefDto;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+import ru.otus.orlov.util.DateUtil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HybridFeedSourceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void testMergeInterleavesByCreatedAtAndSkipsDuplicates() {
+        final long[] pushedIds = {5L, 3L, 1L};
+        final long[] pushedCreatedAt = {millis(50), millis(30), millis(10)};
+        final List<PostRefDto> pulled = List.of(ref(4L, 40), ref(3L, 30), ref(2L, 20));
+
+        assertEquals(Optional.of(List.of(5L, 4L, 3L, 2L, 1L)),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 3, pulled, 0, 10, Long.MIN_VALUE));
+        // Страница и первый пост следующей
+        assertEquals(Optional.of(List.of(3L, 2L, 1L)),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 3, pulled, 2, 2, Long.MIN_VALUE));
+    }
+
+    @Test
+    void testMergeBreaksTiesById() {
+        final long[] pushedIds = {7L};
+        final long[] pushedCreatedAt = {millis(10)};
+
+        assertEquals(Optional.of(List.of(8L, 7L, 6L)), HybridFeedSource.merge(pushedIds, pushedCreatedAt, 1,
+                List.of(ref(8L, 10), ref(6L, 10)), 0, 10, Long.MIN_VALUE));
+    }
+
+    @Test
+    void testMergeStopsAtBoundary() {
+        // Заполненная лента: посты обычных авторов старше 30 вытеснены
+        final long[] pushedIds = {5L, 3L};
+        final long[] pushedCreatedAt = {millis(50), millis(30)};
+        final List<PostRefDto> pulled = List.of(ref(4L, 40), ref(2L, 20), ref(1L, 10));
+
+        assertEquals(Optional.of(List.of(5L, 4L, 3L)),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 2, pulled, 0, 2, millis(30)));
+        assertEquals(Optional.empty(),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 2, pulled, 2, 2, millis(30)));
+        // Первый пост следующей страницы за границей: страница отдается, следующая точно есть
+        assertEquals(Optional.of(List.of(5L, 4L, 3L)),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 2, pulled, 0, 3, millis(30)));
+        // Обе последовательности кончились, но более старые посты обрезаны границей
+        assertEquals(Optional.empty(),
+                HybridFeedSource.merge(pushedIds, pushedCreatedAt, 2, List.of(), 0, 3, millis(30)));
+    }
+
+    @Test
+    void testLoadReadsDatabaseWhenPageCrossesFullTimelineBoundary() {
+        final FeedStore feedStore = mock(FeedStore.class);
+        final HighDegreeAuthors highDegreeAuthors = mock(HighDegreeAuthors.class);
+        final PostHydrator postHydrator = mock(PostHydrator.class);
+        final PostRepository postRepository = mock(PostRepository.class);
+        final UserRepository userRepository = mock(UserRepository.class);
+        final FeedTimeline timeline = new FeedTimeline(2);
+        timeline.append(5L, millis(50));
+        timeline.append(3L, millis(30));
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(2L, 3L));
+        when(highDegreeAuthors.split(any(), any())).thenReturn(Set.of(3L));
+        when(feedStore.get(eq(1L), any())).thenReturn(timeline);
+        when(postRepository.findPostRefsByAuthorIds(eq(Set.of(3L)), any()))
+                .thenReturn(List.of(ref(4L, 40), ref(2L, 20), ref(1L, 10)));
+        when(postRepository.findPostsByFriendIds(eq(Set.of(2L, 3L)), any()))
+                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(1, 2), 7));
+        final HybridFeedSource source = new HybridFeedSource(feedStore, postHydrator,
+                mock(TimelineMaterializer.class), highDegreeAuthors, postRepository, userRepository,
+                new SimpleMeterRegistry(), 200);
+
+        // Первая страница до границы: из слияния, total - нижняя граница с признаком следующей страницы
+        assertEquals(3, source.load(1L, 0, 2).getTotalElements());
+        verify(postHydrator).hydrate(List.of(5L, 4L));
+        // Вторая страница пересекает границу: вытесненные посты обычных авторов есть только в БД
+        assertEquals(7, source.load(1L, 2, 2).getTotalElements());
+        verify(postRepository).findPostsByFriendIds(eq(Set.of(2L, 3L)), any());
+    }
+
+    @Test
+    void testLoadReadsDatabaseWhenPageIsDeeperThanTimelineAndPullWindow() {
+        final FeedStore feedStore = mock(FeedStore.class);
+        final HighDegreeAuthors highDegreeAuthors = mock(HighDegreeAuthors.class);
+        final PostRepository postRepository = mock(PostRepository.class);
+        final UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(2L, 3L));
+        when(highDegreeAuthors.split(any(), any())).thenReturn(Set.of(3L));
+        when(feedStore.get(eq(1L), any())).thenReturn(new FeedTimeline(200));
+        when(postRepository.findPostsByFriendIds(eq(Set.of(2L, 3L)), any())).thenReturn(new PageImpl<>(List.of()));
+        final HybridFeedSource source = new HybridFeedSource(feedStore, mock(PostHydrator.class),
+                mock(TimelineMaterializer.class), highDegreeAuthors, postRepository, userRepository,
+                new SimpleMeterRegistry(), 200);
+
+        source.load(1L, 1000, 10);
+        source.load(1L, Integer.MAX_VALUE - 5, 10);
+
+        verify(postRepository, times(2)).findPostsByFriendIds(eq(Set.of(2L, 3L)), any());
+        verify(postRepository, never()).findPostRefsByAuthorIds(any(), any());
+    }
+
+    private static PostRefDto ref(final long id, final int seconds) {
+        return new PostRefDto(id, BASE.plusSeconds(seconds));
+    }
+
+    private static long millis(final int seconds) {
+        return DateUtil.asEpochMilli(BASE.plusSeconds(seconds));
+    }
+}
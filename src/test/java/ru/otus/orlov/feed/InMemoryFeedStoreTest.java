@@ -0,0 +1,35 @@
+package ru.otus.orlov.feed;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryFeedStoreTest {
+
+    private final InMemoryFeedStore store = new InMemoryFeedStore(10, 100);
+
+    @Test
+    void testPostFannedOutWhileTimelineIsBuiltIsNotLost() {
+        final FeedTimeline timeline = store.get(1L, userId -> {
+            final FeedTimeline snapshot = store.newTimeline();
+            snapshot.append(2L, 200);
+            snapshot.append(1L, 100);
+            // Пост закоммичен после запроса построения, лента еще не установлена в хранилище
+            assertEquals(0, store.push(List.of(1L), 3L, 300));
+            return snapshot;
+        });
+
+        assertEquals(List.of(3L, 2L, 1L), timeline.slice(0, 10));
+    }
+
+    @Test
+    void testPostIsPushedOnlyIntoBuiltTimelines() {
+        store.get(1L, userId -> store.newTimeline());
+
+        assertEquals(1, store.push(List.of(1L, 2L), 5L, 500));
+
+        assertEquals(List.of(5L), store.get(1L, userId -> store.newTimeline()).slice(0, 10));
+        assertEquals(List.of(), store.get(2L, userId -> store.newTimeline()).slice(0, 10));
+    }
+}
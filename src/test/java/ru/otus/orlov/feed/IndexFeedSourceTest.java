@@ -0,0 +1,99 @@
+package ru.otus.orlov.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexFeedSourceTest {
+
+    @Test
+    void testMergeReturnsNewestPostsAcrossAuthors() {
+        final List<FeedTimeline> timelines = List.of(
+                timeline(10, 1L, 100L, 4L, 400L),
+                timeline(10, 2L, 200L, 5L, 500L),
+                timeline(10, 3L, 300L));
+
+        assertEquals(Optional.of(List.of(5L, 4L, 3L)), IndexFeedSource.merge(timelines, 0, 3, 0L));
+        assertEquals(Optional.of(List.of(2L, 1L)), IndexFeedSource.merge(timelines, 3, 2, 0L));
+    }
+
+    @Test
+    void testMergeFallsBackWhenPageLeavesHotWindow() {
+        final List<FeedTimeline> timelines = List.of(timeline(10, 1L, 100L, 2L, 200L, 3L, 300L));
+
+        assertEquals(Optional.of(List.of(3L)), IndexFeedSource.merge(timelines, 0, 1, 250L));
+        assertTrue(IndexFeedSource.merge(timelines, 0, 2, 250L).isEmpty());
+    }
+
+    @Test
+    void testMergeServesShortFeedWhenNoIndexIsFull() {
+        final List<FeedTimeline> timelines = List.of(timeline(10, 1L, 100L, 2L, 200L), timeline(10, 3L, 300L),
+                timeline(10));
+
+        // Ни один индекс не заполнен: в них вся лента за горячее окно, БД не нужна
+        assertEquals(Optional.of(List.of(3L, 2L, 1L)), IndexFeedSource.merge(timelines, 0, 5, 0L));
+        assertEquals(Optional.of(List.of(1L)), IndexFeedSource.merge(timelines, 2, 5, 0L));
+        assertEquals(Optional.of(List.of()), IndexFeedSource.merge(timelines, 3, 5, 0L));
+        assertEquals(Optional.of(List.of()), IndexFeedSource.merge(List.of(timeline(10)), 0, 5, 0L));
+    }
+
+    @Test
+    void testMergeFallsBackBelowEvictedPostsOfFullIndex() {
+        final List<FeedTimeline> timelines = List.of(
+                timeline(2, 5L, 500L, 4L, 400L),
+                timeline(10, 1L, 100L, 3L, 300L));
+
+        assertEquals(Optional.of(List.of(5L, 4L)), IndexFeedSource.merge(timelines, 0, 2, 0L));
+        assertTrue(IndexFeedSource.merge(timelines, 0, 3, 0L).isEmpty());
+        // Постов в индексах меньше страницы, но заполненный индекс обрезан: продолжение ленты только в БД
+        assertTrue(IndexFeedSource.merge(timelines, 0, 10, 0L).isEmpty());
+    }
+
+    @Test
+    void testMergeDoesNotCopyWhenPageIsDeeperThanIndexes() {
+        final List<FeedTimeline> timelines = List.of(timeline(10, 1L, 100L), timeline(10));
+
+        assertEquals(Optional.of(List.of()), IndexFeedSource.merge(timelines, Integer.MAX_VALUE - 10, 100, 0L));
+        assertTrue(IndexFeedSource.merge(List.of(timeline(1, 1L, 100L)), Integer.MAX_VALUE - 10, 100, 0L).isEmpty());
+        assertEquals(Optional.of(List.of(1L)), IndexFeedSource.merge(timelines, 0, 1, 0L));
+    }
+
+    @Test
+    void testLoadReadsDatabaseWhenPageIsDeeperThanIndexCapacity() {
+        final AuthorPostIndex authorPostIndex = mock(AuthorPostIndex.class);
+        final PostRepository postRepository = mock(PostRepository.class);
+        final UserRepository userRepository = mock(UserRepository.class);
+        when(authorPostIndex.authorCapacity()).thenReturn(200);
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(2L, 3L));
+        when(postRepository.findPostsByFriendIds(eq(Set.of(2L, 3L)), any())).thenReturn(new PageImpl<>(List.of()));
+        final IndexFeedSource source = new IndexFeedSource(authorPostIndex, mock(PostHydrator.class),
+                postRepository, userRepository, new SimpleMeterRegistry());
+
+        source.load(1L, 400, 10);
+
+        verify(authorPostIndex, never()).get(any());
+        verify(postRepository).findPostsByFriendIds(eq(Set.of(2L, 3L)), any());
+    }
+
+    private static FeedTimeline timeline(final int capacity, final long... idsAndTimes) {
+        final FeedTimeline timeline = new FeedTimeline(capacity);
+        for (int i = 0; i < idsAndTimes.length; i += 2) {
+            timeline.push(idsAndTimes[i], idsAndTimes[i + 1]);
+        }
+        return timeline;
+    }
+}
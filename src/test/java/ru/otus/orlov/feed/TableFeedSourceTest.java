@@ -0,0 +1,120 @@
+package ru.otus.orlov.feed;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import ru.otus.orlov.dto.PageImplDto;
+import ru.otus.orlov.dto.PostRefDto;
+import ru.otus.orlov.entity.Post;
+import ru.otus.orlov.repositories.PostRepository;
+import ru.otus.orlov.repositories.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TableFeedSourceTest {
+
+    private final FeedItemWriter feedItemWriter = mock(FeedItemWriter.class);
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final TableFeedSource source = new TableFeedSource(feedItemWriter, postRepository, userRepository,
+            200);
+
+    @Test
+    void testExtraRowIsDroppedAndCountedAsNextPage() {
+        when(postRepository.findFeedItemsPage(1L, 10, 4)).thenReturn(posts(4));
+
+        final PageImplDto<Post> page = source.load(1L, 10, 3);
+
+        assertEquals(3, page.getContent().size());
+        // Есть следующая страница: totalElements больше конца текущей
+        assertEquals(14, page.getTotalElements());
+        assertEquals(3, page.getPageNumber());
+    }
+
+    @Test
+    void testExhaustedBackfilledTableFallsBackToFriendsPosts() {
+        when(postRepository.findFeedItemsPage(1L, 10, 4)).thenReturn(posts(2));
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(7L));
+        when(postRepository.isFeedItemsBackfilled(1L)).thenReturn(true);
+        when(postRepository.findPostsByFriendIds(eq(Set.of(7L)), any())).thenReturn(dbPage(3, 250));
+
+        final PageImplDto<Post> page = source.load(1L, 10, 3);
+
+        // Строки feed_items кончились: страница и точный total - из постов друзей
+        assertEquals(3, page.getContent().size());
+        assertEquals(250, page.getTotalElements());
+        verify(feedItemWriter, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void testEmptyFirstPageIsBackfilledFromFriendsPosts() {
+        final List<PostRefDto> refs = List.of(new PostRefDto(2L, LocalDateTime.now()),
+                new PostRefDto(1L, LocalDateTime.now().minusHours(1)));
+        when(postRepository.findFeedItemsPage(1L, 0, 4)).thenReturn(List.of());
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(7L));
+        when(postRepository.findPostRefsByAuthorIds(eq(Set.of(7L)), any())).thenReturn(refs);
+        when(postRepository.findPostsByFriendIds(eq(Set.of(7L)), any())).thenReturn(dbPage(2, 2));
+
+        final PageImplDto<Post> page = source.load(1L, 0, 3);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(2, page.getTotalElements());
+        verify(feedItemWriter).enqueue(1L, refs);
+    }
+
+    @Test
+    void testFanOutRowBeforeFirstReadDoesNotPreventBackfill() {
+        final List<PostRefDto> refs = List.of(new PostRefDto(3L, LocalDateTime.now()),
+                new PostRefDto(2L, LocalDateTime.now().minusHours(1)),
+                new PostRefDto(1L, LocalDateTime.now().minusHours(2)));
+        // Друг написал пост до первого чтения ленты: в feed_items одна строка раскладки
+        when(postRepository.findFeedItemsPage(1L, 0, 4)).thenReturn(posts(1));
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(7L));
+        when(postRepository.findPostRefsByAuthorIds(eq(Set.of(7L)), any())).thenReturn(refs);
+        when(postRepository.findPostsByFriendIds(eq(Set.of(7L)), any())).thenReturn(dbPage(3, 3));
+
+        final PageImplDto<Post> page = source.load(1L, 0, 3);
+
+        assertEquals(3, page.getContent().size());
+        assertEquals(3, page.getTotalElements());
+        verify(feedItemWriter).enqueue(1L, refs);
+    }
+
+    @Test
+    void testBackfillIsNotRepeatedWhileQueued() {
+        when(postRepository.findFeedItemsPage(1L, 0, 4)).thenReturn(posts(1));
+        when(userRepository.findFriendIdsByUserId(1L)).thenReturn(Set.of(7L));
+        when(feedItemWriter.isBackfilling(1L)).thenReturn(true);
+        when(postRepository.findPostsByFriendIds(eq(Set.of(7L)), any())).thenReturn(dbPage(3, 3));
+
+        source.load(1L, 0, 3);
+
+        verify(postRepository, never()).findPostRefsByAuthorIds(any(), any());
+        verify(feedItemWriter, never()).enqueue(any(), any());
+    }
+
+    private static PageImpl<Post> dbPage(final int count, final long total) {
+        return new PageImpl<>(posts(count), PageRequest.of(0, count), total);
+    }
+
+    private static List<Post> posts(final int count) {
+        final List<Post> posts = new ArrayList<>();
+        for (long id = count; id > 0; id--) {
+            posts.add(new Post(id, "post " + id, LocalDateTime.now(), 7L));
+        }
+        return posts;
+    }
+}
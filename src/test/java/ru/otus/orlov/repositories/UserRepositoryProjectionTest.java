@@ -0,0 +1,55 @@
+package ru.otus.orlov.repositories;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import ru.otus.orlov.dto.UserSearchRow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Строка нативного запроса проходит в проекцию так же, как у Spring Data: колонки по псевдонимам
+ * с учетом регистра. Псевдоним без кавычек PostgreSQL приводит к нижнему регистру.
+ */
+class UserRepositoryProjectionTest {
+    private static final Pattern ALIAS = Pattern.compile(" AS (?:\"(\\w+)\"|(\\w+))");
+
+    @Test
+    void testTrigramSearchRowMapsToProjection() {
+        final Map<String, Object> row = row(nativeQuery("streamByFirstNameAndLastNameTrigram"),
+                42L, "Константин", "Осипов");
+
+        final UserSearchRow user = new SpelAwareProxyProjectionFactory().createProjection(UserSearchRow.class, row);
+
+        assertEquals(42L, user.getId());
+        assertEquals("Константин", user.getFirstName());
+        assertEquals("Осипов", user.getLastName());
+    }
+
+    private static String nativeQuery(final String methodName) {
+        final Method method = Arrays.stream(UserRepository.class.getMethods())
+                .filter(candidate -> candidate.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return method.getAnnotation(Query.class).value();
+    }
+
+    /** Строка результата запроса: имена колонок, как их вернет PostgreSQL, и значения по порядку */
+    private static Map<String, Object> row(final String sql, final Object... values) {
+        final Matcher matcher = ALIAS.matcher(sql.substring(0, sql.indexOf(" FROM ")));
+        final Map<String, Object> row = new LinkedHashMap<>();
+        int i = 0;
+        while (matcher.find()) {
+            final String column = matcher.group(1) != null ? matcher.group(1) : matcher.group(2).toLowerCase();
+            row.put(column, values[i++]);
+        }
+        assertEquals(values.length, i, "число колонок");
+        return row;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.otus.orlov.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import ru.otus.orlov.dto.UserSearchDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameSegmentTest {
+    private static final String[] FIRST_NAMES = {"Константин", "Конкордия", "Ксения", "Кирилл", "Анна", "Андрей"};
+    private static final String[] LAST_NAMES = {"Осипов", "Осина", "Орлов", "Оси", "Иванов", "Ивашкин"};
+
+    @Test
+    void testSearchMatchesPrefixScanInIdOrder() {
+        final Random random = new Random(1);
+        final List<UserSearchDto> users = new ArrayList<>();
+        final NameSegment.Builder builder = new NameSegment.Builder();
+        long id = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // Разреженные id дают разности номеров в несколько байт varint
+            id += 1 + random.nextInt(i % 100 == 0 ? 100_000 : 3);
+            final UserSearchDto user = new UserSearchDto(id, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            users.add(user);
+            builder.add(user.getId(), user.getFirstName(), user.getLastName());
+        }
+        final NameSegment segment = builder.build();
+
+        for (final String first : List.of("", "К", "Кон", "Конст", "Константин", "Ан", "Я")) {
+            for (final String last : List.of("", "О", "Оси", "Осипов", "Ива", "Осиповы", "и")) {
+                assertEquals(ids(scan(users, first, last)), ids(segment.search(first, last, 0, Integer.MAX_VALUE)),
+                        first + " " + last);
+            }
+        }
+        assertEquals(20_000, segment.size());
+        assertEquals(id, segment.maxId());
+        assertTrue(segment.contains(id));
+        assertFalse(segment.contains(id + 1));
+    }
+
+    @Test
+    void testPagesAfterIdCoverAllMatches() {
+        final Random random = new Random(2);
+        final List<UserSearchDto> users = new ArrayList<>();
+        final NameSegment.Builder builder = new NameSegment.Builder();
+        for (long id = 1; id <= 5000; id++) {
+            final UserSearchDto user = new UserSearchDto(id * 3, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            users.add(user);
+            builder.add(user.getId(), user.getFirstName(), user.getLastName());
+        }
+        final NameSegment segment = builder.build();
+
+        // "Константин" - одно значение, "Ко" - два: список одного значения разбирается до limit, двух - сортируется
+        for (final String first : List.of("Константин", "Ко")) {
+            final List<Long> paged = new ArrayList<>();
+            long afterId = 0;
+            List<UserSearchDto> page;
+            do {
+                page = segment.search(first, "Оси", afterId, 37);
+                assertTrue(page.size() <= 37);
+                paged.addAll(ids(page));
+                afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+            } while (page.size() == 37);
+            assertEquals(ids(scan(users, first, "Оси")), paged);
+        }
+        // Курсор на id, которого нет в индексе: страница начинается со следующего
+        assertEquals(ids(scan(users, "", "")).subList(1, 3), ids(segment.search("", "", 4, 2)));
+    }
+
+    @Test
+    void testMergeAddsUsersInIdOrderAndKeepsExisting() {
+        final NameSegment segment = new NameSegment.Builder()
+                .add(10, "Константин", "Осипов")
+                .add(30, "Кирилл", "Орлов")
+                .build();
+
+        final NameSegment merged = segment.merge(List.of(
+                new UserSearchDto(5L, "Константин", "Осина"),
+                new UserSearchDto(10L, "Константин", "Осипов"),
+                new UserSearchDto(40L, "Конкордия", "Оси")));
+
+        assertEquals(4, merged.size());
+        assertEquals(List.of(5L, 10L, 40L), ids(merged.search("Кон", "Оси", 0, 10)));
+        assertEquals(List.of(30L), ids(merged.search("Ки", "", 0, 10)));
+        assertEquals(List.of(), merged.search("Кон", "Орл", 0, 10));
+    }
+
+    @Test
+    void testUsersMustBeAddedInIdOrder() {
+        final NameSegment.Builder builder = new NameSegment.Builder().add(2, "Анна", "Иванова");
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(2, "Анна", "Иванова"));
+        assertEquals(List.of(), NameSegment.EMPTY.search("", "", 0, 10));
+    }
+
+    private static List<UserSearchDto> scan(final List<UserSearchDto> users, final String first, final String last) {
+        return users.stream()
+                .filter(user -> user.getFirstName().startsWith(first) && user.getLastName().startsWith(last))
+                .toList();
+    }
+
+    private static List<Long> ids(final List<UserSearchDto> users) {
+        return users.stream().map(UserSearchDto::getId).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package ru.otus.orlov.search;
+
+import com.github.javafaker.Faker;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Замер индекса поиска по имени и фамилии на 1 млн пользователей: построение, занятая память и время поиска.
+ * Имена и фамилии - как у {@link ru.otus.orlov.util.GenerateCSV}: по 1000 значений Faker, пользователю
+ * достается случайная пара. Запросы - префиксы длиной 1-5 символов случайных имени и фамилии.
+ * Аргумент page - запрашивается первая страница (50 пользователей), all - все найденные.
+ * Не тест: запускается вручную, см. docs/usersearch/report.md.
+ */
+public final class UserSearchBenchmark {
+    private static final int USERS = 1_000_000;
+    private static final int NAMES = 1000;
+    private static final int QUERIES = 100_000;
+    private static final int WARM_QUERIES = 20_000;
+    /** Размер страницы поиска по умолчанию */
+    private static final int PAGE = 50;
+
+    private UserSearchBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int limit = "all".equals(args[0]) ? Integer.MAX_VALUE : PAGE + 1;
+        final Faker faker = new Faker(Locale.ENGLISH, new Random(42));
+        final List<String> firstNames = new ArrayList<>();
+        final List<String> lastNames = new ArrayList<>();
+        for (int i = 0; i < NAMES; i++) {
+            firstNames.add(faker.name().firstName());
+            lastNames.add(faker.name().lastName());
+        }
+        final Random random = new Random(7);
+        final String[][] users = new String[USERS][];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = new String[]{firstNames.get(random.nextInt(NAMES)), lastNames.get(random.nextInt(NAMES))};
+        }
+
+        final long heapBefore = usedHeap();
+        final long buildStart = System.nanoTime();
+        final NameSegment segment = build(users);
+        final long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+        final long heapMb = (usedHeap() - heapBefore) / (1024 * 1024);
+
+        final String[][] queries = new String[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            final String[] user = users[random.nextInt(USERS)];
+            queries[i] = new String[]{prefix(user[0], random), prefix(user[1], random)};
+        }
+        for (int i = 0; i < WARM_QUERIES; i++) {
+            segment.search(queries[i][0], queries[i][1], 0, limit);
+        }
+        final long[] nanos = new long[QUERIES];
+        long found = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            final long queryStart = System.nanoTime();
+            found += segment.search(queries[i][0], queries[i][1], 0, limit).size();
+            nanos[i] = System.nanoTime() - queryStart;
+        }
+        final long totalMs = (System.nanoTime() - start) / 1_000_000;
+        Arrays.sort(nanos);
+
+        System.out.printf("%s: построение %d мс, индекс %d МБ кучи, %d пользователей%n",
+                args[0], buildMs, heapMb, segment.size());
+        System.out.printf("%s: %d запросов за %d мс в одном потоке, в среднем %.1f найдено, "
+                        + "p50 %.1f мкс, p99 %.1f мкс, max %.1f мкс%n",
+                args[0], QUERIES, totalMs, (double) found / QUERIES, nanos[QUERIES / 2] / 1000.0,
+                nanos[QUERIES * 99 / 100] / 1000.0, nanos[QUERIES - 1] / 1000.0);
+    }
+
+    /** Построение в отдельном методе: после него построитель недостижим и не попадает в замер памяти */
+    private static NameSegment build(final String[][] users) {
+        final NameSegment.Builder builder = new NameSegment.Builder();
+        for (int i = 0; i < users.length; i++) {
+            builder.add(i + 1, users[i][0], users[i][1]);
+        }
+        return builder.build();
+    }
+
+    private static String prefix(final String name, final Random random) {
+        return name.substring(0, Math.min(name.length(), 1 + random.nextInt(5)));
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
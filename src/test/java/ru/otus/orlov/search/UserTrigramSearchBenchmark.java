@@ -0,0 +1,121 @@
+package ru.otus.orlov.search;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Замер поиска по имени и фамилии в БД на 1 млн пользователей: префикс ("prefix") по B-деревьям
+ * varchar_pattern_ops против поиска по триграммам по GIN-индексам pg_trgm - подстроки ("substring")
+ * и имени с опечаткой ("fuzzy").
+ * Запросы - те же, что у {@link ru.otus.orlov.repositories.UserRepository}, первая страница (51 строка).
+ * Строки запросов берутся из случайных пользователей БД: префикс - 1-5 первых символов, подстрока - 3-5 символов
+ * из середины, опечатка - имя и фамилия без одной буквы.
+ * Аргументы: режим, JDBC URL, пользователь, пароль.
+ * Не тест: запускается вручную на заполненной БД, см. docs/trigramsearch/report.md.
+ */
+public final class UserTrigramSearchBenchmark {
+    private static final String PREFIX_SQL = "SELECT id, first_name, last_name FROM users "
+            + "WHERE first_name LIKE ? || '%' AND last_name LIKE ? || '%' AND id > 0 ORDER BY id LIMIT 51";
+    private static final String TRIGRAM_SQL = "SELECT id, first_name, last_name FROM users "
+            + "WHERE (first_name ILIKE '%' || ? || '%' OR first_name % ?) "
+            + "AND (last_name ILIKE '%' || ? || '%' OR last_name % ?) AND id > 0 ORDER BY id LIMIT 51";
+    private static final String SAMPLE_SQL = "SELECT first_name, last_name FROM users TABLESAMPLE SYSTEM (1) "
+            + "WHERE length(first_name) >= 4 AND length(last_name) >= 4 LIMIT ?";
+    private static final int QUERIES = 2000;
+    private static final int WARM_QUERIES = 200;
+
+    private UserTrigramSearchBenchmark() {
+    }
+
+    public static void main(final String[] args) throws SQLException {
+        final String mode = args[0];
+        try (Connection connection = DriverManager.getConnection(args[1], args[2], args[3])) {
+            connection.setReadOnly(true);
+            final String[][] queries = queries(connection, mode, new Random(42));
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "prefix".equals(mode) ? PREFIX_SQL : TRIGRAM_SQL)) {
+                for (int i = 0; i < WARM_QUERIES; i++) {
+                    search(statement, mode, queries[i]);
+                }
+                final long[] nanos = new long[QUERIES];
+                long found = 0;
+                final long start = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    final long queryStart = System.nanoTime();
+                    found += search(statement, mode, queries[i]);
+                    nanos[i] = System.nanoTime() - queryStart;
+                }
+                final long totalMs = (System.nanoTime() - start) / 1_000_000;
+                Arrays.sort(nanos);
+                System.out.printf("%s: %d запросов за %d мс в одном потоке, в среднем %.1f найдено, "
+                                + "p50 %.2f мс, p99 %.2f мс, max %.2f мс%n",
+                        mode, QUERIES, totalMs, (double) found / QUERIES, nanos[QUERIES / 2] / 1e6,
+                        nanos[QUERIES * 99 / 100] / 1e6, nanos[QUERIES - 1] / 1e6);
+            }
+        }
+    }
+
+    /** Выполняет запрос и возвращает число найденных строк */
+    private static int search(final PreparedStatement statement, final String mode, final String[] query)
+            throws SQLException {
+        if ("prefix".equals(mode)) {
+            statement.setString(1, query[0]);
+            statement.setString(2, query[1]);
+        } else {
+            statement.setString(1, query[0]);
+            statement.setString(2, query[0]);
+            statement.setString(3, query[1]);
+            statement.setString(4, query[1]);
+        }
+        int found = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /** Строки запросов из имен и фамилий случайных пользователей */
+    private static String[][] queries(final Connection connection, final String mode, final Random random)
+            throws SQLException {
+        final List<String[]> users = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SAMPLE_SQL)) {
+            statement.setInt(1, QUERIES + WARM_QUERIES);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+                }
+            }
+        }
+        final String[][] queries = new String[QUERIES + WARM_QUERIES][];
+        for (int i = 0; i < queries.length; i++) {
+            final String[] user = users.get(random.nextInt(users.size()));
+            queries[i] = new String[]{query(user[0], mode, random), query(user[1], mode, random)};
+        }
+        return queries;
+    }
+
+    private static String query(final String name, final String mode, final Random random) {
+        switch (mode) {
+            case "prefix":
+                return name.substring(0, Math.min(name.length(), 1 + random.nextInt(5)));
+            case "substring":
+                final int length = Math.min(name.length() - 1, 3 + random.nextInt(3));
+                final int from = 1 + random.nextInt(name.length() - length);
+                return name.substring(from, from + length);
+            case "fuzzy":
+                final int skip = 1 + random.nextInt(name.length() - 1);
+                return name.substring(0, skip) + name.substring(skip + 1);
+            default:
+                throw new IllegalArgumentException("Неизвестный режим: " + mode);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.otus.orlov.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LikeUtilTest {
+
+    @Test
+    void testEscapeWildcardsAndEscapeCharacter() {
+        assertEquals("Конст", LikeUtil.escape("Конст"));
+        assertEquals("100\\%", LikeUtil.escape("100%"));
+        assertEquals("a\\_b", LikeUtil.escape("a_b"));
+        assertEquals("c:\\\\x", LikeUtil.escape("c:\\x"));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.otus.orlov.ws;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.otus.orlov.dto.FeedEventDto;
+import ru.otus.orlov.dto.FeedPushDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FeedPushDispatcherTest {
+
+    @Test
+    void testDropKeepsNewestEventsAndCountsSkipped() {
+        final FeedPushDispatcher.UserBuffer buffer = new FeedPushDispatcher.UserBuffer(2, OverflowPolicy.DROP);
+        assertEquals(0, buffer.offer(event(1L)));
+        assertEquals(0, buffer.offer(event(2L)));
+        assertEquals(1, buffer.offer(event(3L)));
+
+        final FeedPushDto push = buffer.drain();
+        assertEquals(List.of(3L, 2L), push.getPosts().stream().map(FeedEventDto::getPostId).toList());
+        assertEquals(1, push.getSkipped());
+        assertNull(buffer.drain());
+    }
+
+    @Test
+    void testCoalesceReplacesBufferWithRefreshSignal() {
+        final FeedPushDispatcher.UserBuffer buffer = new FeedPushDispatcher.UserBuffer(2, OverflowPolicy.COALESCE);
+        buffer.offer(event(1L));
+        buffer.offer(event(2L));
+        assertEquals(3, buffer.offer(event(3L)));
+        assertEquals(1, buffer.offer(event(4L)));
+
+        final FeedPushDto push = buffer.drain();
+        assertEquals(List.of(), push.getPosts());
+        assertEquals(4, push.getSkipped());
+    }
+
+    private static FeedEventDto event(final Long postId) {
+        return new FeedEventDto(1L, postId, 2L, "post " + postId, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.otus.orlov.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import ru.otus.orlov.security.UserIdPrincipal;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OnlineUsersTest {
+
+    private static final UserIdPrincipal USER = new UserIdPrincipal(1L, "user@example.com");
+
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+
+    private final OnlineUsers onlineUsers = new OnlineUsers(amqpAdmin, new Queue("feed.events.test"),
+            new TopicExchange("feed.events"), new SimpleMeterRegistry());
+
+    @Test
+    void testBindingFollowsFirstAndLastSession() {
+        onlineUsers.onConnected(connected("s1"));
+        onlineUsers.onConnected(connected("s2"));
+        onlineUsers.onDisconnected(disconnected("s1"));
+
+        verify(amqpAdmin, times(1)).declareBinding(any(Binding.class));
+        verify(amqpAdmin, times(0)).removeBinding(any(Binding.class));
+        assertTrue(onlineUsers.isOnline(USER.userId()));
+
+        onlineUsers.onDisconnected(disconnected("s2"));
+
+        verify(amqpAdmin, times(1)).removeBinding(any(Binding.class));
+        assertFalse(onlineUsers.isOnline(USER.userId()));
+    }
+
+    @Test
+    void testBrokerErrorKeepsSessionCount() {
+        doThrow(new AmqpConnectException(new RuntimeException("broker down")))
+                .when(amqpAdmin).declareBinding(any(Binding.class));
+
+        onlineUsers.onConnected(connected("s1"));
+        assertTrue(onlineUsers.isOnline(USER.userId()));
+
+        onlineUsers.onDisconnected(disconnected("s1"));
+        assertFalse(onlineUsers.isOnline(USER.userId()));
+        verify(amqpAdmin, times(1)).removeBinding(any(Binding.class));
+    }
+
+    private static SessionConnectedEvent connected(final String sessionId) {
+        return new SessionConnectedEvent(OnlineUsersTest.class, message(sessionId), USER);
+    }
+
+    private static SessionDisconnectEvent disconnected(final String sessionId) {
+        return new SessionDisconnectEvent(OnlineUsersTest.class, message(sessionId), sessionId, CloseStatus.NORMAL,
+                USER);
+    }
+
+    private static Message<byte[]> message(final String sessionId) {
+        return MessageBuilder.createMessage(new byte[0],
+                new MessageHeaders(Map.of(SimpMessageHeaderAccessor.SESSION_ID_HEADER, sessionId)));
+    }
+}